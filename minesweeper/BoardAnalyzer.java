@@ -0,0 +1,468 @@
+import java.util.Arrays;
+
+/**
+ * Difficulty figures of a board, for matchmaking and for scoring generated
+ * boards: the number of openings (connected regions of zero-count cells, each
+ * cleared by one click), the isolated numbers (cells that no opening reveals,
+ * each needing its own click) and their sum, the 3BV: the fewest clicks that
+ * clear the board. Groups of touching mines are counted as well, for
+ * studies of how mines clump.
+ *
+ * Everything is computed in one scan over the counts. Zero-count cells are
+ * joined with union-find as they are met, so openings are the zero cells minus
+ * the successful unions; mines are joined the same way. The work is O(rowCount x colCount) with no recursion,
+ * so boards of any size can be scored as they are generated.
+ *
+ * @author basel barham
+ */
+public class BoardAnalyzer {
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private final int rowCount;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private final int colCount;
+
+	/**
+	 * number of openings.
+	 */
+	private int openings;
+
+	/**
+	 * number of numbered cells not next to a zero-count cell.
+	 */
+	private int isolated;
+
+	/**
+	 * number of zero-count cells.
+	 */
+	private int zeroCells;
+
+	/**
+	 * zero-count cells in the biggest opening.
+	 */
+	private int largestOpening;
+
+	/**
+	 * number of mines.
+	 */
+	private int mineCount;
+
+	/**
+	 * number of groups of touching mines (orthogonally or diagonally).
+	 */
+	private int mineClusters;
+
+	/**
+	 * mines in the biggest group.
+	 */
+	private int largestMineCluster;
+
+	/**
+	 * counts of the last layout given to analyze(), null unless reused.
+	 */
+	private int[] counts;
+
+	/**
+	 * union-find parent links, kept between analyze() calls.
+	 */
+	private int[] parent;
+
+	/**
+	 * union-find set sizes, valid at roots.
+	 */
+	private int[] size;
+
+	/**
+	 * constructor, analyze a game from its getCount() data.
+	 *
+	 * @param game game, SQUARE, with its mines placed
+	 */
+	public BoardAnalyzer(MineSweeper game) {
+		this(game.rowCount(), game.colCount(), counts(game));
+	}
+
+	/**
+	 * constructor, analyze a grid of cells whose counts are set.
+	 *
+	 * @param board board
+	 */
+	public BoardAnalyzer(DynGrid310<Cell> board) {
+		this(board.getNumRow(), board.getNumCol(), counts(board));
+	}
+
+	/**
+	 * constructor, analyze a packed mine layout such as the one drawn by
+	 * MineSweeper.drawMines().
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 * @param mines    rowCount * colCount long, true where a mine is (row *
+	 *                 colCount + col)
+	 */
+	public BoardAnalyzer(int rowCount, int colCount, boolean[] mines) {
+		this(rowCount, colCount, counts(rowCount, colCount, mines));
+	}
+
+	/**
+	 * constructor, analyze packed counts.
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 * @param counts   rowCount * colCount long, count of each cell (row *
+	 *                 colCount + col), -1 for a mine
+	 */
+	public BoardAnalyzer(int rowCount, int colCount, int[] counts) {
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		analyze(counts);
+	}
+
+	/**
+	 * constructor, an analyzer for many layouts of one size, see
+	 * analyze(boolean[]).
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 */
+	BoardAnalyzer(int rowCount, int colCount) {
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		counts = new int[rowCount * colCount];
+	}
+
+	/**
+	 * method that analyzes another mine layout of this size, reusing the work
+	 * arrays, so scanning many boards allocates nothing.
+	 *
+	 * @param mines rowCount * colCount long, true where a mine is
+	 * @return this analyzer
+	 */
+	BoardAnalyzer analyze(boolean[] mines) {
+		Arrays.fill(counts, 0);
+		countMines(rowCount, colCount, mines, counts);
+		openings = 0;
+		isolated = 0;
+		zeroCells = 0;
+		largestOpening = 0;
+		mineCount = 0;
+		mineClusters = 0;
+		largestMineCluster = 0;
+		analyze(counts);
+		return this;
+	}
+
+	/**
+	 * method reports the count of a cell of the last layout given to
+	 * analyze(boolean[]).
+	 *
+	 * @param index row * colCount + col
+	 * @return count, -1 for a mine
+	 */
+	int countAt(int index) {
+		return counts[index];
+	}
+
+	/**
+	 * method that scans the counts once, joining each zero cell with the zero
+	 * cells before it (left and the three above) and checking every number for
+	 * a zero neighbor.
+	 *
+	 * @param counts counts
+	 */
+	private void analyze(int[] counts) {
+		if (parent == null || parent.length != counts.length) {
+			parent = new int[counts.length];
+			size = new int[counts.length];
+		}
+		int unions = 0;
+		int mineUnions = 0;
+		for (int row = 0, i = 0; row < rowCount; row++) {
+			for (int col = 0; col < colCount; col++, i++) {
+				int count = counts[i];
+				if (count < 0) {
+					mineCount++;
+					parent[i] = i;
+					size[i] = 1;
+					largestMineCluster = Math.max(largestMineCluster, 1);
+					mineUnions += joinBefore(counts, row, col, true);
+				} else if (count == 0) {
+					zeroCells++;
+					parent[i] = i;
+					size[i] = 1;
+					largestOpening = Math.max(largestOpening, 1);
+					unions += joinBefore(counts, row, col, false);
+				} else if (!nextToZero(counts, row, col)) {
+					isolated++;
+				}
+			}
+		}
+		openings = zeroCells - unions;
+		mineClusters = mineCount - mineUnions;
+	}
+
+	/**
+	 * method that joins a zero cell with the zero cells before it, or a mine
+	 * with the mines before it: the left one and the three above.
+	 *
+	 * @param counts counts
+	 * @param row    row
+	 * @param col    col
+	 * @param mine   true to join mines, false to join zero cells
+	 * @return number of sets joined
+	 */
+	private int joinBefore(int[] counts, int row, int col, boolean mine) {
+		int i = row * colCount + col;
+		int unions = 0;
+		if (col > 0 && same(counts[i - 1], mine)) {
+			unions += union(i, i - 1, mine);
+		}
+		if (row > 0) {
+			int up = i - colCount;
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, colCount - 1); c++) {
+				int j = up - col + c;
+				if (same(counts[j], mine)) {
+					unions += union(i, j, mine);
+				}
+			}
+		}
+		return unions;
+	}
+
+	/**
+	 * method that checks whether a cell has a zero-count neighbor.
+	 *
+	 * @param counts counts
+	 * @param row    row
+	 * @param col    col
+	 * @return true or false
+	 */
+	private boolean nextToZero(int[] counts, int row, int col) {
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rowCount - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, colCount - 1); c++) {
+				if (counts[r * colCount + c] == 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * method reports whether a count is a mine, or a zero cell.
+	 *
+	 * @param count count
+	 * @param mine  true for a mine, false for a zero cell
+	 * @return true or false
+	 */
+	private static boolean same(int count, boolean mine) {
+		return mine ? count < 0 : count == 0;
+	}
+
+	/**
+	 * method that joins the sets of two zero cells or two mines, smaller under
+	 * bigger, and keeps largestOpening or largestMineCluster up to date.
+	 *
+	 * @param a    a
+	 * @param b    b
+	 * @param mine whether a and b are mines
+	 * @return 1 if two sets were joined, 0 if they were the same set
+	 */
+	private int union(int a, int b, boolean mine) {
+		a = find(a);
+		b = find(b);
+		if (a == b) {
+			return 0;
+		}
+		if (size[a] < size[b]) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		parent[b] = a;
+		size[a] += size[b];
+		if (mine) {
+			largestMineCluster = Math.max(largestMineCluster, size[a]);
+		} else {
+			largestOpening = Math.max(largestOpening, size[a]);
+		}
+		return 1;
+	}
+
+	/**
+	 * method that finds the root of a set, halving the path on the way.
+	 *
+	 * @param i i
+	 * @return root
+	 */
+	private int find(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * method that reads the counts of a game.
+	 *
+	 * @param game game
+	 * @return counts
+	 */
+	private static int[] counts(MineSweeper game) {
+		// the figures join cells with the 8 square neighbor offsets
+		if (game.topology() != Topology.SQUARE) {
+			throw new IllegalStateException("Only square boards support this!");
+		}
+		if (!game.minesPlaced()) {
+			throw new IllegalStateException("Mines are placed on the first click!");
+		}
+		int cols = game.colCount();
+		int[] counts = new int[game.rowCount() * cols];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = game.getCount(i / cols, i % cols);
+		}
+		return counts;
+	}
+
+	/**
+	 * method that reads the counts of a grid.
+	 *
+	 * @param board board
+	 * @return counts
+	 */
+	private static int[] counts(DynGrid310<Cell> board) {
+		int rows = board.getNumRow();
+		int cols = board.getNumCol();
+		int[] counts = new int[rows * cols];
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				Cell cell = board.get(row, col);
+				counts[row * cols + col] = cell.hasMine() ? -1 : cell.getCount();
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * method that computes the counts of a mine layout.
+	 *
+	 * @param rows  rows
+	 * @param cols  cols
+	 * @param mines mines
+	 * @return counts
+	 */
+	private static int[] counts(int rows, int cols, boolean[] mines) {
+		int[] counts = new int[rows * cols];
+		countMines(rows, cols, mines, counts);
+		return counts;
+	}
+
+	/**
+	 * method that fills in the counts of a mine layout.
+	 *
+	 * @param rows   rows
+	 * @param cols   cols
+	 * @param mines  mines
+	 * @param counts all 0, rows * cols long; set to the count of each cell, -1
+	 *               for a mine
+	 */
+	private static void countMines(int rows, int cols, boolean[] mines, int[] counts) {
+		for (int row = 0, i = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++, i++) {
+				if (!mines[i]) {
+					continue;
+				}
+				counts[i] = Integer.MIN_VALUE;
+				for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+					for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+						counts[r * cols + c]++;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] < 0) {
+				counts[i] = -1;
+			}
+		}
+	}
+
+	/**
+	 * method reports the 3BV of the board, the fewest clicks that clear it.
+	 *
+	 * @return openings + isolated numbers
+	 */
+	public int threeBV() {
+		return openings + isolated;
+	}
+
+	/**
+	 * method reports number of openings.
+	 *
+	 * @return openings
+	 */
+	public int openings() {
+		return openings;
+	}
+
+	/**
+	 * method reports number of numbered cells that no opening reveals.
+	 *
+	 * @return isolated numbers
+	 */
+	public int isolatedNumbers() {
+		return isolated;
+	}
+
+	/**
+	 * method reports number of zero-count cells.
+	 *
+	 * @return zeroCells
+	 */
+	public int zeroCells() {
+		return zeroCells;
+	}
+
+	/**
+	 * method reports zero-count cells in the biggest opening.
+	 *
+	 * @return largestOpening, 0 if there is no opening
+	 */
+	public int largestOpening() {
+		return largestOpening;
+	}
+
+	/**
+	 * method reports number of groups of touching mines.
+	 *
+	 * @return mineClusters
+	 */
+	public int mineClusters() {
+		return mineClusters;
+	}
+
+	/**
+	 * method reports mines in the biggest group of touching mines.
+	 *
+	 * @return largestMineCluster, 0 if there are no mines
+	 */
+	public int largestMineCluster() {
+		return largestMineCluster;
+	}
+
+	/**
+	 * method reports 3BV per cell without a mine, a size-independent
+	 * difficulty.
+	 *
+	 * @return density, 0 for a board of mines only
+	 */
+	public double density() {
+		int safe = rowCount * colCount - mineCount;
+		return safe == 0 ? 0 : (double) threeBV() / safe;
+	}
+}
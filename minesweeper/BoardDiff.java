@@ -0,0 +1,234 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Diffs and patches for keeping copies of a board in step, e.g. a spectator
+ * or a backup following a game: diff() turns two BoardPlanes into a patch,
+ * apply() plays it on the other side. Only the open and flagged cells are
+ * sent; both sides must already agree on the board size and the mines, e.g.
+ * from the seed or a GameSnapshot. Clicks and flags keep those fixed, but
+ * insertRow(), insertCol(), removeRow() and removeCol() change both, so after
+ * one the other side needs a full copy again: diff() and apply() check the
+ * sizes and throw IllegalArgumentException rather than misalign the cells,
+ * and the mines are not checked at all.
+ *
+ * A patch is the XOR of the two states, run-length encoded a plane at a time
+ * over 64-cell words: the board size as varints, then for the visible plane
+ * and then the flagged plane a list of runs until the plane is covered, each
+ * run being a varint count of unchanged words, a varint count of changed
+ * words, and the changed words themselves as 8-byte XOR masks. Unchanged
+ * stretches are found with Arrays.mismatch(), which compares many words per
+ * instruction, so a patch of a few clicks on a 10M cell board is built in
+ * well under a millisecond and takes a few bytes per changed word. Being an
+ * XOR, the patch from a to b also turns b back into a.
+ *
+ * @author basel barham
+ */
+public final class BoardDiff {
+
+	/**
+	 * bytes of one changed word in a patch.
+	 */
+	private static final int WORD_BYTES = Long.BYTES;
+
+	/**
+	 * no instances, static helpers only.
+	 */
+	private BoardDiff() {
+	}
+
+	/**
+	 * method that makes the patch turning from into to. O(rowCount x colCount /
+	 * 64)
+	 *
+	 * @param from state the other side has
+	 * @param to   state it should get
+	 * @return patch
+	 */
+	public static byte[] diff(BoardPlanes from, BoardPlanes to) {
+		if (from.rowCount() != to.rowCount() || from.colCount() != to.colCount())
+			throw new IllegalArgumentException("Boards are different sizes: " + from.rowCount() + "x" + from.colCount()
+					+ " and " + to.rowCount() + "x" + to.colCount() + "!");
+		int size = VarInt.size(from.rowCount()) + VarInt.size(from.colCount())
+				+ runs(from.visible, to.visible, null) + runs(from.flagged, to.flagged, null);
+		ByteBuffer buf = ByteBuffer.allocate(size);
+		VarInt.put(buf, from.rowCount());
+		VarInt.put(buf, from.colCount());
+		runs(from.visible, to.visible, buf);
+		runs(from.flagged, to.flagged, buf);
+		return buf.array();
+	}
+
+	/**
+	 * method that plays a patch made by diff() on the state it was made from,
+	 * in place. the patch is checked whole before anything is changed, so a bad
+	 * patch throws IllegalArgumentException and leaves target as it was.
+	 * O(patch length)
+	 *
+	 * @param target state to patch
+	 * @param patch  patch
+	 */
+	public static void apply(BoardPlanes target, byte[] patch) {
+		ByteBuffer buf = ByteBuffer.wrap(patch);
+		int rowCount = VarInt.get(buf);
+		int colCount = VarInt.get(buf);
+		if (rowCount != target.rowCount() || colCount != target.colCount())
+			throw new IllegalArgumentException("Patch is for a " + rowCount + "x" + colCount + " board, not "
+					+ target.rowCount() + "x" + target.colCount() + "!");
+		ByteBuffer check = buf.duplicate();
+		xorRuns(check, target.visible.length, null);
+		xorRuns(check, target.flagged.length, null);
+		if (check.hasRemaining())
+			throw new IllegalArgumentException("Trailing bytes in patch!");
+		xorRuns(buf, target.visible.length, target.visible);
+		xorRuns(buf, target.flagged.length, target.flagged);
+	}
+
+	/**
+	 * method that reports whether a patch changes nothing.
+	 *
+	 * @param patch patch
+	 * @return true if applying it is a no-op
+	 */
+	public static boolean isEmpty(byte[] patch) {
+		ByteBuffer buf = ByteBuffer.wrap(patch);
+		int words = (int) (((long) VarInt.get(buf) * VarInt.get(buf) + 63) >>> 6);
+		for (int plane = 0; plane < 2; plane++) {
+			if (VarInt.get(buf) != words || VarInt.get(buf) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * method that finds the runs of changed words between two planes, and
+	 * writes them to buf unless it is null.
+	 *
+	 * @param from from
+	 * @param to   to
+	 * @param buf  buf or null to only measure
+	 * @return bytes the runs take
+	 */
+	private static int runs(long[] from, long[] to, ByteBuffer buf) {
+		int words = from.length;
+		int size = 0;
+		int w = 0;
+		while (w < words) {
+			int differ = Arrays.mismatch(from, w, words, to, w, words);
+			int same = differ < 0 ? words - w : differ;
+			w += same;
+			int start = w;
+			while (w < words && from[w] != to[w]) {
+				w++;
+			}
+			int changed = w - start;
+			size += VarInt.size(same) + VarInt.size(changed) + changed * WORD_BYTES;
+			if (buf != null) {
+				VarInt.put(buf, same);
+				VarInt.put(buf, changed);
+				for (int k = start; k < w; k++) {
+					buf.putLong(from[k] ^ to[k]);
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * method that reads the runs of one plane and XORs them into it, or only
+	 * checks them when plane is null.
+	 *
+	 * @param buf   buf, at the first run
+	 * @param words words in the plane
+	 * @param plane plane or null to only check
+	 */
+	private static void xorRuns(ByteBuffer buf, int words, long[] plane) {
+		int w = 0;
+		while (w < words) {
+			int same = VarInt.get(buf);
+			int changed = VarInt.get(buf);
+			if (same < 0 || changed < 0 || (long) same + changed > words - w || same + changed == 0)
+				throw new IllegalArgumentException("Malformed patch!");
+			w += same;
+			if (plane == null) {
+				if (buf.remaining() < changed * WORD_BYTES)
+					throw new IllegalArgumentException("Truncated patch!");
+				buf.position(buf.position() + changed * WORD_BYTES);
+				w += changed;
+			} else {
+				for (int end = w + changed; w < end; w++) {
+					plane[w] ^= buf.getLong();
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method times diff() and apply() on a 10M cell board, for a few
+	 * clicks and for every cell changed, best of 5 rounds after a warm-up.
+	 *
+	 * @param args [rows cols], default 3163 3163
+	 */
+	public static void main(String[] args) {
+		int rows = args.length > 1 ? Integer.parseInt(args[0]) : 3163;
+		int cols = args.length > 1 ? Integer.parseInt(args[1]) : 3163;
+		SplittableRandom random = new SplittableRandom(42);
+		BoardPlanes from = new BoardPlanes(rows, cols);
+		for (int k = 0; k < rows * cols / 3; k++) {
+			from.setVisible(random.nextInt(rows), random.nextInt(cols), true);
+		}
+		// a few clicks: an opening, some single cells and flags
+		BoardPlanes clicks = from.copy();
+		for (int r = rows / 2; r < Math.min(rows / 2 + 30, rows); r++) {
+			for (int c = cols / 2; c < Math.min(cols / 2 + 40, cols); c++) {
+				clicks.setVisible(r, c, true);
+			}
+		}
+		for (int k = 0; k < 50; k++) {
+			clicks.setVisible(random.nextInt(rows), random.nextInt(cols), true);
+			clicks.setFlagged(random.nextInt(rows), random.nextInt(cols), true);
+		}
+		BoardPlanes all = new BoardPlanes(rows, cols);
+		for (int w = 0; w < all.visible.length; w++) {
+			all.visible[w] = ~from.visible[w];
+			all.flagged[w] = ~from.flagged[w];
+		}
+		System.out.printf("%dx%d, %d cells%n", rows, cols, (long) rows * cols);
+		System.out.printf("%-8s %12s %10s %10s%n", "change", "patch bytes", "diff ms", "apply ms");
+		time("clicks", from, clicks);
+		time("all", from, all);
+	}
+
+	/**
+	 * method that prints the patch size and best diff and apply times for one
+	 * change, and checks the patch gives to.
+	 *
+	 * @param name name
+	 * @param from from
+	 * @param to   to
+	 */
+	private static void time(String name, BoardPlanes from, BoardPlanes to) {
+		byte[] patch = diff(from, to);
+		BoardPlanes replica = from.copy();
+		apply(replica, patch);
+		if (!replica.equals(to))
+			throw new IllegalStateException("Patch does not give the new board!");
+		long diffBest = Long.MAX_VALUE;
+		long applyBest = Long.MAX_VALUE;
+		for (int round = 0; round <= 5; round++) {
+			long start = System.nanoTime();
+			patch = diff(from, to);
+			long mid = System.nanoTime();
+			// applying twice turns replica back and forth
+			apply(replica, patch);
+			long end = System.nanoTime();
+			if (round > 0) {
+				diffBest = Math.min(diffBest, mid - start);
+				applyBest = Math.min(applyBest, end - mid);
+			}
+		}
+		System.out.printf("%-8s %12d %10.3f %10.3f%n", name, patch.length, diffBest / 1e6, applyBest / 1e6);
+	}
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Flight Recorder event for one run of MineSweeper.initBoard(). Start a
+ * recording with "jcmd &lt;pid&gt; JFR.start" to see it next to GC and GUI
+ * thread activity.
+ *
+ * @author basel barham
+ */
+@Name("minesweeper.BoardGeneration")
+@Label("Board Generation")
+@Category("Minesweeper")
+@Description("Mine placement and neighbor counting for a new board")
+class BoardGenerationEvent extends jdk.jfr.Event {
+
+	/**
+	 * number of rows.
+	 */
+	@Label("Rows")
+	int rows;
+
+	/**
+	 * number of columns.
+	 */
+	@Label("Columns")
+	int cols;
+
+	/**
+	 * number of mines.
+	 */
+	@Label("Mines")
+	int mines;
+
+	/**
+	 * seed of the board.
+	 */
+	@Label("Seed")
+	int seed;
+
+	/**
+	 * random cells drawn that already had a mine.
+	 */
+	@Label("Placement Retries")
+	int retries;
+
+	/**
+	 * This method is for testing code: every board built while recording gives
+	 * one event with its settings.
+	 *
+	 * @param args args
+	 * @throws IOException if the recording can not be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+		Path dump = Files.createTempFile("minesweeper", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("minesweeper.BoardGeneration");
+			recording.start();
+			new MineSweeper(12, MineSweeper.Level.CUSTOM, 30, 40, 100);
+			new MineSweeper(5, MineSweeper.Level.EASY);
+			recording.stop();
+			recording.dump(dump);
+		}
+		int events = 0;
+		boolean same = true;
+		for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+			if (event.getInt("seed") == 12) {
+				same &= event.getInt("rows") == 30 && event.getInt("cols") == 40 && event.getInt("mines") == 100;
+			} else {
+				same &= event.getInt("seed") == 5 && event.getInt("rows") == 9 && event.getInt("mines") == 10;
+			}
+			same &= event.getInt("retries") >= 0;
+			events++;
+		}
+		Files.delete(dump);
+		if (same && events == 2) {
+			System.out.println("Yay 1");
+		}
+	}
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * The open and flagged cells of a board as two bitplanes, one bit per cell at
+ * index row * colCount + col, 64 cells per long. This is what BoardDiff
+ * compares and patches: a spectator or backup keeps a BoardPlanes in step
+ * with a game by applying patches to it, and knows the mines from the seed.
+ * The size is fixed; a game resized by insertRow() and the like needs new
+ * planes.
+ *
+ * @author basel barham
+ */
+public class BoardPlanes {
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private final int rowCount;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private final int colCount;
+
+	/**
+	 * open cells.
+	 */
+	final long[] visible;
+
+	/**
+	 * flagged cells.
+	 */
+	final long[] flagged;
+
+	/**
+	 * constructor, a board of a size with every cell hidden and unflagged.
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 */
+	public BoardPlanes(int rowCount, int colCount) {
+		if (rowCount <= 0 || colCount <= 0 || (long) rowCount * colCount > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Bad board size!");
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		int words = (int) (((long) rowCount * colCount + 63) >>> 6);
+		visible = new long[words];
+		flagged = new long[words];
+	}
+
+	/**
+	 * method that returns the planes of a game. O(rowCount x colCount)
+	 *
+	 * @param game game
+	 * @return planes
+	 */
+	public static BoardPlanes of(MineSweeper game) {
+		BoardPlanes planes = new BoardPlanes(game.rowCount(), game.colCount());
+		planes.capture(game);
+		return planes;
+	}
+
+	/**
+	 * method that overwrites these planes with the state of a game of the same
+	 * size, reusing the arrays. O(rowCount x colCount)
+	 *
+	 * @param game game
+	 */
+	public void capture(MineSweeper game) {
+		if (game.rowCount() != rowCount || game.colCount() != colCount)
+			throw new IllegalArgumentException("Game is another size!");
+		game.capture(visible, flagged);
+	}
+
+	/**
+	 * method that returns a copy.
+	 *
+	 * @return copy
+	 */
+	public BoardPlanes copy() {
+		BoardPlanes copy = new BoardPlanes(rowCount, colCount);
+		System.arraycopy(visible, 0, copy.visible, 0, visible.length);
+		System.arraycopy(flagged, 0, copy.flagged, 0, flagged.length);
+		return copy;
+	}
+
+	/**
+	 * method reports number of rows.
+	 *
+	 * @return rowCount
+	 */
+	public int rowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * method reports number of columns.
+	 *
+	 * @return colCount
+	 */
+	public int colCount() {
+		return colCount;
+	}
+
+	/**
+	 * method to report if cell isn't hidden. return false for invalid cell indexes
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean isVisible(int row, int col) {
+		return isValidCell(row, col) && bit(visible, row * colCount + col);
+	}
+
+	/**
+	 * method to report if cell flagged. return false for invalid cell indexes
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean isFlagged(int row, int col) {
+		return isValidCell(row, col) && bit(flagged, row * colCount + col);
+	}
+
+	/**
+	 * method that opens or hides a cell.
+	 *
+	 * @param row  row
+	 * @param col  col
+	 * @param open true to open
+	 */
+	public void setVisible(int row, int col, boolean open) {
+		set(visible, row, col, open);
+	}
+
+	/**
+	 * method that flags or un-flags a cell.
+	 *
+	 * @param row  row
+	 * @param col  col
+	 * @param flag true to flag
+	 */
+	public void setFlagged(int row, int col, boolean flag) {
+		set(flagged, row, col, flag);
+	}
+
+	/**
+	 * method that compares the size and both planes.
+	 *
+	 * @param other other
+	 * @return true if the boards look the same
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof BoardPlanes)) {
+			return false;
+		}
+		BoardPlanes planes = (BoardPlanes) other;
+		return rowCount == planes.rowCount && colCount == planes.colCount && Arrays.equals(visible, planes.visible)
+				&& Arrays.equals(flagged, planes.flagged);
+	}
+
+	/**
+	 * method that hashes the size and both planes.
+	 *
+	 * @return hash
+	 */
+	@Override
+	public int hashCode() {
+		return (rowCount * 31 + colCount) * 31 + Arrays.hashCode(visible) * 17 + Arrays.hashCode(flagged);
+	}
+
+	/**
+	 * method that checks (row,col) is on the board.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	private boolean isValidCell(int row, int col) {
+		return row >= 0 && row < rowCount && col >= 0 && col < colCount;
+	}
+
+	/**
+	 * method that sets or clears the bit of a valid cell.
+	 *
+	 * @param plane plane
+	 * @param row   row
+	 * @param col   col
+	 * @param on    true to set
+	 */
+	private void set(long[] plane, int row, int col, boolean on) {
+		if (!isValidCell(row, col))
+			throw new IllegalArgumentException("Bad cell: " + row + "," + col + "!");
+		int index = row * colCount + col;
+		if (on) {
+			plane[index >>> 6] |= 1L << index;
+		} else {
+			plane[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+	/**
+	 * method that tests the bit of a cell.
+	 *
+	 * @param plane plane
+	 * @param index flat index
+	 * @return true if set
+	 */
+	private static boolean bit(long[] plane, int index) {
+		return (plane[index >>> 6] & (1L << index)) != 0;
+	}
+}
@@ -0,0 +1,353 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * A streaming text renderer for minesweeper boards. It writes the same text as
+ * MineSweeper.boardToString() and toString(), but straight to an Appendable or
+ * OutputStream through a small fixed buffer, so no String is built for the
+ * board or for any cell.
+ *
+ * @author basel barham
+ */
+public final class BoardWriter {
+
+	/**
+	 * text of each cell state: counts 0-8, then flagged, hidden, exploded.
+	 */
+	private static final byte[] CELL_BYTES = { ' ', '1', '2', '3', '4', '5', '6', '7', '8', 'F', '?', 'X' };
+
+	/**
+	 * index of a flagged cell in CELL_BYTES.
+	 */
+	private static final int FLAGGED = 9;
+
+	/**
+	 * index of a hidden cell in CELL_BYTES.
+	 */
+	private static final int HIDDEN = 10;
+
+	/**
+	 * index of an open mine in CELL_BYTES.
+	 */
+	private static final int MINE = 11;
+
+	/**
+	 * size of the output buffer.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * stream to write to, null when writing to an Appendable.
+	 */
+	private final OutputStream stream;
+
+	/**
+	 * text sink to write to, null when writing to a stream.
+	 */
+	private final Appendable text;
+
+	/**
+	 * pending output (ASCII only).
+	 */
+	private final byte[] buf = new byte[BUFFER_SIZE];
+
+	/**
+	 * buffer for handing chars to an Appendable, allocated on first use.
+	 */
+	private char[] chars;
+
+	/**
+	 * number of pending bytes in buf.
+	 */
+	private int pos;
+
+	/**
+	 * constructor, only used by the static methods.
+	 *
+	 * @param stream stream
+	 * @param text   text
+	 */
+	private BoardWriter(OutputStream stream, Appendable text) {
+		this.stream = stream;
+		this.text = text;
+	}
+
+	/**
+	 * method that writes the text of game.boardToString().
+	 *
+	 * @param game game
+	 * @param out  out
+	 * @throws IOException if out fails
+	 */
+	public static void writeBoard(MineSweeper game, Appendable out) throws IOException {
+		BoardWriter writer = new BoardWriter(null, out);
+		writer.board(game);
+		writer.flush();
+	}
+
+	/**
+	 * method that writes the text of game.boardToString() as ASCII bytes.
+	 *
+	 * @param game game
+	 * @param out  out
+	 * @throws IOException if out fails
+	 */
+	public static void writeBoard(MineSweeper game, OutputStream out) throws IOException {
+		BoardWriter writer = new BoardWriter(out, null);
+		writer.board(game);
+		writer.flush();
+	}
+
+	/**
+	 * method that writes the text of game.toString().
+	 *
+	 * @param game game
+	 * @param out  out
+	 * @throws IOException if out fails
+	 */
+	public static void writeGame(MineSweeper game, Appendable out) throws IOException {
+		BoardWriter writer = new BoardWriter(null, out);
+		writer.game(game);
+		writer.flush();
+	}
+
+	/**
+	 * method that writes the text of game.toString() as ASCII bytes.
+	 *
+	 * @param game game
+	 * @param out  out
+	 * @throws IOException if out fails
+	 */
+	public static void writeGame(MineSweeper game, OutputStream out) throws IOException {
+		BoardWriter writer = new BoardWriter(out, null);
+		writer.game(game);
+		writer.flush();
+	}
+
+	/**
+	 * method that reports the table index of a cell's text.
+	 *
+	 * @param cell cell
+	 * @return index into CELL_BYTES
+	 */
+	private static int state(Cell cell) {
+		if (cell.isFlagged()) {
+			return FLAGGED;
+		}
+		if (!cell.visible()) {
+			return HIDDEN;
+		}
+		if (cell.hasMine()) {
+			return MINE;
+		}
+		return cell.getCount();
+	}
+
+	/**
+	 * method that renders the game header followed by the board.
+	 *
+	 * @param game game
+	 * @throws IOException if the output fails
+	 */
+	private void game(MineSweeper game) throws IOException {
+		ascii("Board Size: ");
+		number(game.rowCount());
+		ascii(" x ");
+		number(game.colCount());
+		ascii("\nTotal mines: ");
+		number(game.mineCount());
+		ascii("\nRemaining mines: ");
+		number(game.mineLeft());
+		ascii("\nGame status: ");
+		ascii(game.getStatus());
+		put('\n');
+		board(game);
+	}
+
+	/**
+	 * method that renders the column header and one line per row.
+	 *
+	 * @param game game
+	 * @throws IOException if the output fails
+	 */
+	private void board(MineSweeper game) throws IOException {
+		DynGrid310<Cell> board = game.getBoard();
+		int rows = board.getNumRow();
+		int cols = board.getNumCol();
+
+		// header of column indexes
+		ascii("- |");
+		for (int j = 0; j < cols; j++) {
+			number(j);
+			put('|');
+		}
+
+		for (int i = 0; i < rows; i++) {
+			put('\n');
+			number(i);
+			put(' ');
+			put('|');
+			for (int j = 0; j < cols; j++) {
+				int state = state(board.get(i, j));
+				if (state < 0) {
+					// open cell of a board whose counts were never set
+					number(state);
+					put('|');
+					continue;
+				}
+				if (pos + 2 > BUFFER_SIZE) {
+					drain();
+				}
+				buf[pos++] = CELL_BYTES[state];
+				buf[pos++] = '|';
+			}
+		}
+	}
+
+	/**
+	 * method that buffers one ASCII char.
+	 *
+	 * @param c c
+	 * @throws IOException if the output fails
+	 */
+	private void put(char c) throws IOException {
+		if (pos == BUFFER_SIZE) {
+			drain();
+		}
+		buf[pos++] = (byte) c;
+	}
+
+	/**
+	 * method that buffers an ASCII string.
+	 *
+	 * @param s s
+	 * @throws IOException if the output fails
+	 */
+	private void ascii(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			put(s.charAt(i));
+		}
+	}
+
+	/**
+	 * method that buffers the decimal digits of a number.
+	 *
+	 * @param n n
+	 * @throws IOException if the output fails
+	 */
+	private void number(int n) throws IOException {
+		if (n < 0) {
+			put('-');
+			n = -n;
+		}
+		if (pos + 10 > BUFFER_SIZE) {
+			drain();
+		}
+		int end = pos;
+		int digits = n;
+		do {
+			end++;
+			digits /= 10;
+		} while (digits != 0);
+		pos = end;
+		do {
+			buf[--end] = (byte) ('0' + n % 10);
+			n /= 10;
+		} while (n != 0);
+	}
+
+	/**
+	 * method that hands pending bytes to the output.
+	 *
+	 * @throws IOException if the output fails
+	 */
+	private void drain() throws IOException {
+		if (stream != null) {
+			stream.write(buf, 0, pos);
+		} else {
+			if (chars == null) {
+				chars = new char[BUFFER_SIZE];
+			}
+			for (int i = 0; i < pos; i++) {
+				chars[i] = (char) buf[i];
+			}
+			if (text instanceof StringBuilder) {
+				((StringBuilder) text).append(chars, 0, pos);
+			} else if (text instanceof Writer) {
+				((Writer) text).write(chars, 0, pos);
+			} else {
+				for (int i = 0; i < pos; i++) {
+					text.append(chars[i]);
+				}
+			}
+		}
+		pos = 0;
+	}
+
+	/**
+	 * method that hands pending bytes to the output and flushes a stream or
+	 * Writer.
+	 *
+	 * @throws IOException if the output fails
+	 */
+	private void flush() throws IOException {
+		drain();
+		if (stream != null) {
+			stream.flush();
+		} else if (text instanceof Writer) {
+			((Writer) text).flush();
+		}
+	}
+
+	/**
+	 * This method is for testing code: the text of a played board, larger than
+	 * the buffer, is the one built cell by cell with Cell.toString(), written to
+	 * a StringBuilder, a Writer and a stream.
+	 *
+	 * @param args args
+	 * @throws IOException if writing fails
+	 */
+	public static void main(String[] args) throws IOException {
+		MineSweeper game = new MineSweeper(7, MineSweeper.Level.CUSTOM, 60, 150, 900);
+		game.clickAt(30, 75);
+		for (int row = 0; row < 60; row += 7) {
+			game.flagAt(row, (row * 13) % 150);
+		}
+		for (int col = 0; col < 150; col++) {
+			if (game.hasMine(59, col) && !game.isFlagged(59, col)) {
+				game.clickAt(59, col);
+				break;
+			}
+		}
+		DynGrid310<Cell> board = game.getBoard();
+		StringBuilder text = new StringBuilder("- |");
+		for (int col = 0; col < board.getNumCol(); col++) {
+			text.append(col).append('|');
+		}
+		for (int row = 0; row < board.getNumRow(); row++) {
+			text.append('\n').append(row).append(" |");
+			for (int col = 0; col < board.getNumCol(); col++) {
+				text.append(board.get(row, col)).append('|');
+			}
+		}
+		String boardText = text.toString();
+		String gameText = "Board Size: 60 x 150\nTotal mines: 900\nRemaining mines: " + game.mineLeft()
+				+ "\nGame status: " + game.getStatus() + "\n" + boardText;
+
+		StringBuilder built = new StringBuilder();
+		writeBoard(game, built);
+		StringWriter written = new StringWriter();
+		writeGame(game, written);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		writeGame(game, bytes);
+		if (boardText.length() > BUFFER_SIZE && gameText.contains("X|") && gameText.contains("F|")
+				&& boardText.equals(built.toString()) && boardText.equals(game.boardToString())
+				&& gameText.equals(written.toString()) && gameText.equals(bytes.toString("US-ASCII"))
+				&& gameText.equals(game.toString())) {
+			System.out.println("Yay 1");
+		}
+	}
+}
@@ -39,6 +39,17 @@ public class Cell{
 		nbrMineCount = -1; //if hasMine, count is always -1  
 	}
 	
+	/**
+	 * The method that puts this cell back to its initial state, so a board
+	 * can be reused for a new game.
+	 */
+	public void reset() {
+		hasMine = false;
+		visible = false;
+		flagged = false;
+		nbrMineCount = -1;
+	}
+	
 	//setters and getters
 	
 	/**
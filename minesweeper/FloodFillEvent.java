@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Flight Recorder event for a click on a zero-count cell, which opens a whole
+ * region of the board.
+ *
+ * @author basel barham
+ */
+@Name("minesweeper.FloodFill")
+@Label("Flood Fill")
+@Category("Minesweeper")
+@Description("Cells opened by one click on a zero-count cell")
+class FloodFillEvent extends jdk.jfr.Event {
+
+	/**
+	 * row clicked.
+	 */
+	@Label("Row")
+	int row;
+
+	/**
+	 * column clicked.
+	 */
+	@Label("Column")
+	int col;
+
+	/**
+	 * number of cells opened.
+	 */
+	@Label("Cells Revealed")
+	int cellsRevealed;
+
+	/**
+	 * This method is for testing code: a click on a zero cell gives one event
+	 * with the number of cells it opened, a click on a number gives none.
+	 *
+	 * @param args args
+	 * @throws IOException if the recording can not be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+		MineSweeper game = new MineSweeper(12, MineSweeper.Level.CUSTOM, 30, 40, 100);
+		int zero = 0;
+		while (game.getCount(zero / 40, zero % 40) != 0) {
+			zero++;
+		}
+		Path dump = Files.createTempFile("minesweeper", ".jfr");
+		int opened = 0;
+		try (Recording recording = new Recording()) {
+			recording.enable("minesweeper.FloodFill");
+			recording.start();
+			game.clickAt(zero / 40, zero % 40);
+			for (int i = 0; i < 30 * 40; i++) {
+				opened += game.isVisible(i / 40, i % 40) ? 1 : 0;
+			}
+			int number = 0;
+			while (game.isVisible(number / 40, number % 40) || game.getCount(number / 40, number % 40) <= 0) {
+				number++;
+			}
+			game.clickAt(number / 40, number % 40);
+			recording.stop();
+			recording.dump(dump);
+		}
+		int events = 0;
+		boolean same = opened > 1;
+		for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+			same &= event.getInt("row") == zero / 40 && event.getInt("col") == zero % 40
+					&& event.getInt("cellsRevealed") == opened;
+			events++;
+		}
+		Files.delete(dump);
+		if (same && events == 1) {
+			System.out.println("Yay 1");
+		}
+	}
+}
@@ -0,0 +1,419 @@
+import java.util.Arrays;
+
+/**
+ * The frontier of a game: the hidden cells next to an open number, which is
+ * where solvers, hints and renderers look. The open numbers that still touch
+ * hidden cells, which every deduction starts from, are kept alongside.
+ * MineSweeper keeps both up to date as clickAt() opens cells and undo() hides
+ * them again, so reading the frontier costs O(frontier) instead of a scan of
+ * the board; see MineSweeper.frontier().
+ *
+ * Each set is a dense array of members plus the slot of every padded index,
+ * so add, remove and contains are O(1) and members are listed without gaps.
+ * Flagged cells count as hidden: a flag is the player's guess, not something
+ * the board has shown. Cells that joined or left the frontier, or were
+ * flagged or unflagged, are also listed once each as dirty until
+ * clearDirty(), for renderers that repaint only what changed.
+ *
+ * @author basel barham
+ */
+public class Frontier {
+
+	/**
+	 * A set of padded indexes with O(1) add, remove and contains.
+	 */
+	private static final class IndexSet {
+
+		/**
+		 * slot of each padded index in members, -1 if it is not a member.
+		 */
+		private final int[] slot;
+
+		/**
+		 * the members, the first size are used.
+		 */
+		private final int[] members;
+
+		/**
+		 * number of members.
+		 */
+		private int size;
+
+		/**
+		 * constructor, an empty set.
+		 *
+		 * @param capacity number of padded indexes
+		 */
+		private IndexSet(int capacity) {
+			slot = new int[capacity];
+			members = new int[capacity];
+			Arrays.fill(slot, -1);
+		}
+
+		/**
+		 * method that adds a padded index, if it is not a member yet.
+		 *
+		 * @param p p
+		 * @return true if it was added
+		 */
+		private boolean add(int p) {
+			if (slot[p] >= 0) {
+				return false;
+			}
+			slot[p] = size;
+			members[size++] = p;
+			return true;
+		}
+
+		/**
+		 * method that removes a padded index, moving the last member into its
+		 * slot.
+		 *
+		 * @param p p
+		 * @return true if it was removed
+		 */
+		private boolean remove(int p) {
+			int s = slot[p];
+			if (s < 0) {
+				return false;
+			}
+			int last = members[--size];
+			members[s] = last;
+			slot[last] = s;
+			slot[p] = -1;
+			return true;
+		}
+
+		/**
+		 * method reports whether a padded index is a member.
+		 *
+		 * @param p padded index, may be out of range
+		 * @return true or false
+		 */
+		private boolean contains(int p) {
+			return p >= 0 && p < slot.length && slot[p] >= 0;
+		}
+	}
+
+	/**
+	 * cells of the game with a sentinel border.
+	 */
+	private final Cell[] cells;
+
+	/**
+	 * row length of cells.
+	 */
+	private final int stride;
+
+	/**
+	 * flat offsets of the 8 neighbors.
+	 */
+	private final int[] nbr;
+
+	/**
+	 * number of hidden neighbors of each padded index.
+	 */
+	private final byte[] hiddenAround;
+
+	/**
+	 * number of open numbered neighbors of each padded index.
+	 */
+	private final byte[] numbersAround;
+
+	/**
+	 * hidden cells next to an open number.
+	 */
+	private final IndexSet hidden;
+
+	/**
+	 * open numbers next to a hidden cell.
+	 */
+	private final IndexSet numbers;
+
+	/**
+	 * one bit per padded index, set while it is in dirty.
+	 */
+	private final long[] dirtyBits;
+
+	/**
+	 * padded indexes changed since clearDirty(), the first dirtyCount are used.
+	 */
+	private final int[] dirty;
+
+	/**
+	 * number of dirty cells.
+	 */
+	private int dirtyCount;
+
+	/**
+	 * constructor, find the frontier of a board. O(rowCount x colCount)
+	 *
+	 * @param cells  cells with a sentinel border
+	 * @param stride row length of cells
+	 * @param nbr    flat offsets of the 8 neighbors
+	 */
+	Frontier(Cell[] cells, int stride, int[] nbr) {
+		this.cells = cells;
+		this.stride = stride;
+		this.nbr = nbr;
+		hiddenAround = new byte[cells.length];
+		numbersAround = new byte[cells.length];
+		hidden = new IndexSet(cells.length);
+		numbers = new IndexSet(cells.length);
+		dirtyBits = new long[(cells.length + 63) >>> 6];
+		dirty = new int[cells.length];
+		for (int p = stride + 1; p < cells.length - stride - 1; p++) {
+			if (p % stride == 0 || p % stride == stride - 1) {
+				continue;
+			}
+			int hiddenCount = 0;
+			int numberCount = 0;
+			for (int k = 0; k < 8; k++) {
+				Cell cell = cells[p + nbr[k]];
+				hiddenCount += cell.visible() ? 0 : 1;
+				numberCount += isNumber(cell) ? 1 : 0;
+			}
+			hiddenAround[p] = (byte) hiddenCount;
+			numbersAround[p] = (byte) numberCount;
+			if (cells[p].visible()) {
+				if (hiddenCount > 0 && isNumber(cells[p])) {
+					numbers.add(p);
+				}
+			} else if (numberCount > 0) {
+				hidden.add(p);
+			}
+		}
+	}
+
+	/**
+	 * method that updates the frontier after a cell was opened. O(1)
+	 *
+	 * @param p padded index of the cell, now visible
+	 */
+	void opened(int p) {
+		if (hidden.remove(p)) {
+			markDirty(p);
+		}
+		boolean number = isNumber(cells[p]);
+		for (int k = 0; k < 8; k++) {
+			int q = p + nbr[k];
+			if (--hiddenAround[q] == 0) {
+				numbers.remove(q);
+			}
+			if (number && ++numbersAround[q] == 1 && !cells[q].visible()) {
+				hidden.add(q);
+				markDirty(q);
+			}
+		}
+		if (number && hiddenAround[p] > 0) {
+			numbers.add(p);
+		}
+	}
+
+	/**
+	 * method that updates the frontier after a cell was hidden again. O(1)
+	 *
+	 * @param p padded index of the cell, now hidden
+	 */
+	void hidden(int p) {
+		// it was a number while it was open
+		boolean number = !cells[p].hasMine() && cells[p].getCount() >= 0;
+		numbers.remove(p);
+		for (int k = 0; k < 8; k++) {
+			int q = p + nbr[k];
+			if (++hiddenAround[q] == 1 && isNumber(cells[q])) {
+				numbers.add(q);
+			}
+			if (number && --numbersAround[q] == 0 && hidden.remove(q)) {
+				markDirty(q);
+			}
+		}
+		if (numbersAround[p] > 0) {
+			hidden.add(p);
+			markDirty(p);
+		}
+	}
+
+	/**
+	 * method that records a flag change.
+	 *
+	 * @param p padded index of the cell
+	 */
+	void flagged(int p) {
+		markDirty(p);
+	}
+
+	/**
+	 * method reports whether an open cell has a count to reason from.
+	 *
+	 * @param cell cell
+	 * @return true or false
+	 */
+	private static boolean isNumber(Cell cell) {
+		return cell.visible() && !cell.hasMine() && cell.getCount() >= 0;
+	}
+
+	/**
+	 * method that lists a cell as dirty, once.
+	 *
+	 * @param p padded index
+	 */
+	private void markDirty(int p) {
+		long bit = 1L << p;
+		if ((dirtyBits[p >>> 6] & bit) == 0) {
+			dirtyBits[p >>> 6] |= bit;
+			dirty[dirtyCount++] = p;
+		}
+	}
+
+	/**
+	 * method reports number of hidden cells next to an open number.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return hidden.size;
+	}
+
+	/**
+	 * method reports the row of a frontier cell. cells are in no particular
+	 * order, and the order changes as the frontier does.
+	 *
+	 * @param i 0 to size() - 1
+	 * @return row
+	 */
+	public int row(int i) {
+		return hidden.members[i] / stride - 1;
+	}
+
+	/**
+	 * method reports the column of a frontier cell.
+	 *
+	 * @param i 0 to size() - 1
+	 * @return col
+	 */
+	public int col(int i) {
+		return hidden.members[i] % stride - 1;
+	}
+
+	/**
+	 * method reports whether (row,col) is a frontier cell. O(1)
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false, false off the board
+	 */
+	public boolean contains(int row, int col) {
+		return row >= 0 && col >= 0 && col < stride - 2 && hidden.contains((row + 1) * stride + col + 1);
+	}
+
+	/**
+	 * method reports number of open numbers next to a hidden cell.
+	 *
+	 * @return count
+	 */
+	public int numberCount() {
+		return numbers.size;
+	}
+
+	/**
+	 * method reports the row of an open number next to a hidden cell.
+	 *
+	 * @param i 0 to numberCount() - 1
+	 * @return row
+	 */
+	public int numberRow(int i) {
+		return numbers.members[i] / stride - 1;
+	}
+
+	/**
+	 * method reports the column of an open number next to a hidden cell.
+	 *
+	 * @param i 0 to numberCount() - 1
+	 * @return col
+	 */
+	public int numberCol(int i) {
+		return numbers.members[i] % stride - 1;
+	}
+
+	/**
+	 * method reports number of cells changed since clearDirty(): cells that
+	 * joined or left the frontier, or were flagged or unflagged.
+	 *
+	 * @return count
+	 */
+	public int dirtyCount() {
+		return dirtyCount;
+	}
+
+	/**
+	 * method reports the row of a changed cell.
+	 *
+	 * @param i 0 to dirtyCount() - 1
+	 * @return row
+	 */
+	public int dirtyRow(int i) {
+		return dirty[i] / stride - 1;
+	}
+
+	/**
+	 * method reports the column of a changed cell.
+	 *
+	 * @param i 0 to dirtyCount() - 1
+	 * @return col
+	 */
+	public int dirtyCol(int i) {
+		return dirty[i] % stride - 1;
+	}
+
+	/**
+	 * method that empties the dirty list. O(dirtyCount())
+	 */
+	public void clearDirty() {
+		for (int i = 0; i < dirtyCount; i++) {
+			dirtyBits[dirty[i] >>> 6] &= ~(1L << dirty[i]);
+		}
+		dirtyCount = 0;
+	}
+
+	/**
+	 * method reports whether a padded index is a hidden frontier cell.
+	 *
+	 * @param p padded index
+	 * @return true or false
+	 */
+	boolean isEdge(int p) {
+		return hidden.contains(p);
+	}
+
+	/**
+	 * method that returns a hidden frontier cell.
+	 *
+	 * @param i 0 to size() - 1
+	 * @return padded index
+	 */
+	int edgeAt(int i) {
+		return hidden.members[i];
+	}
+
+	/**
+	 * method reports whether a padded index is an open number next to a hidden
+	 * cell.
+	 *
+	 * @param p padded index, may be out of range
+	 * @return true or false
+	 */
+	boolean containsNumber(int p) {
+		return numbers.contains(p);
+	}
+
+	/**
+	 * method that returns an open number next to a hidden cell.
+	 *
+	 * @param i 0 to numberCount() - 1
+	 * @return padded index
+	 */
+	int numberAt(int i) {
+		return numbers.members[i];
+	}
+}
@@ -0,0 +1,225 @@
+import java.util.Arrays;
+
+/**
+ * Undo/redo history of a minesweeper game. Each move is stored as a small delta:
+ * its type, the cell it targeted, the game status before and after it and, for
+ * clicks, the cells it opened. Undoing a click hides exactly those cells again,
+ * so no copy of the board is ever made.
+ *
+ * A position in the history (see MineSweeper.mark()) works as a snapshot of the board:
+ * rolling back to it only touches the cells changed since.
+ *
+ * @author basel barham
+ */
+public class GameHistory {
+
+	/**
+	 * all status values, indexed by ordinal.
+	 */
+	private static final MineSweeper.Status[] STATUSES = MineSweeper.Status.values();
+
+	/**
+	 * type, status before and status after of each move, packed in 2 bits each.
+	 */
+	private int[] info;
+
+	/**
+	 * flat index (row * colCount + col) of the cell each move targeted.
+	 */
+	private int[] target;
+
+	/**
+	 * start of each move's opened cells in opened[].
+	 */
+	private int[] start;
+
+	/**
+	 * flat indexes of opened cells, for all moves one after another.
+	 */
+	private int[] opened;
+
+	/**
+	 * number of moves stored, including undone ones that can be redone.
+	 */
+	private int size;
+
+	/**
+	 * number of moves currently applied to the board.
+	 */
+	private int top;
+
+	/**
+	 * number of used slots in opened[].
+	 */
+	private int openedCount;
+
+	/**
+	 * constructor, create an empty history.
+	 */
+	public GameHistory() {
+		info = new int[16];
+		target = new int[16];
+		start = new int[16];
+		opened = new int[64];
+	}
+
+	/**
+	 * method reports the current position, i.e. the number of applied moves.
+	 *
+	 * @return top
+	 */
+	public int position() {
+		return top;
+	}
+
+	/**
+	 * method reports whether there is a move to undo.
+	 *
+	 * @return true or false
+	 */
+	public boolean canUndo() {
+		return top > 0;
+	}
+
+	/**
+	 * method reports whether there is an undone move to redo.
+	 *
+	 * @return true or false
+	 */
+	public boolean canRedo() {
+		return top < size;
+	}
+
+	/**
+	 * method that starts a new move. any undone moves are dropped.
+	 *
+	 * @param type   move type (see GameSnapshot)
+	 * @param index  flat index of the target cell
+	 * @param before game status before the move
+	 */
+	void begin(int type, int index, MineSweeper.Status before) {
+		if (top < size) {
+			openedCount = start[top];
+			size = top;
+		}
+		if (size == info.length) {
+			info = Arrays.copyOf(info, size * 2);
+			target = Arrays.copyOf(target, size * 2);
+			start = Arrays.copyOf(start, size * 2);
+		}
+		info[size] = type | (before.ordinal() << 2);
+		target[size] = index;
+		start[size] = openedCount;
+		size++;
+		top = size;
+	}
+
+	/**
+	 * method that logs a cell opened by the current move. amortized O(1)
+	 *
+	 * @param index flat index of the cell
+	 */
+	void opened(int index) {
+		if (openedCount == opened.length) {
+			opened = Arrays.copyOf(opened, openedCount * 2);
+		}
+		opened[openedCount++] = index;
+	}
+
+	/**
+	 * method that finishes the current move.
+	 *
+	 * @param after game status after the move
+	 */
+	void end(MineSweeper.Status after) {
+		info[size - 1] |= after.ordinal() << 4;
+	}
+
+	/**
+	 * method that steps back one move and returns it, the caller reverts it.
+	 *
+	 * @return position of the move to revert
+	 */
+	int undo() {
+		return --top;
+	}
+
+	/**
+	 * method that steps forward one move and returns it, the caller re-applies it.
+	 *
+	 * @return position of the move to re-apply
+	 */
+	int redo() {
+		return top++;
+	}
+
+	/**
+	 * method reports the type of a move.
+	 *
+	 * @param move position of the move
+	 * @return move type (see GameSnapshot)
+	 */
+	int type(int move) {
+		return info[move] & 3;
+	}
+
+	/**
+	 * method reports the status before a move.
+	 *
+	 * @param move position of the move
+	 * @return status
+	 */
+	MineSweeper.Status before(int move) {
+		return STATUSES[(info[move] >>> 2) & 3];
+	}
+
+	/**
+	 * method reports the status after a move.
+	 *
+	 * @param move position of the move
+	 * @return status
+	 */
+	MineSweeper.Status after(int move) {
+		return STATUSES[(info[move] >>> 4) & 3];
+	}
+
+	/**
+	 * method reports the target cell of a move.
+	 *
+	 * @param move position of the move
+	 * @return flat index
+	 */
+	int target(int move) {
+		return target[move];
+	}
+
+	/**
+	 * method reports where the opened cells of a move start.
+	 *
+	 * @param move position of the move
+	 * @return first slot in the opened list
+	 */
+	int openedStart(int move) {
+		return start[move];
+	}
+
+	/**
+	 * method reports where the opened cells of a move end.
+	 *
+	 * @param move position of the move
+	 * @return slot right after the last one in the opened list
+	 */
+	int openedEnd(int move) {
+		return move + 1 < size ? start[move + 1] : openedCount;
+	}
+
+	/**
+	 * method reports an opened cell.
+	 *
+	 * @param slot slot in the opened list
+	 * @return flat index
+	 */
+	int openedAt(int slot) {
+		return opened[slot];
+	}
+}
@@ -0,0 +1,452 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads a log written by GameRecorder, one record at a time, and replays its
+ * games into MineSweeper instances. Moves are applied with the same unchecked
+ * path as GameSnapshot.restore(), so replay runs at full speed; they are only
+ * checked to be on the board, as GameSnapshot.fromBytes() does. A truncated or
+ * corrupt log throws IOException.
+ *
+ * A log a recorder was appended to holds several sessions, each starting with
+ * a header of its own. A header can not be mistaken for records: read as
+ * records, the magic "MSLG" is a MOVE of game 19 ('M' the tag, 'S' the time,
+ * 'L' the move) and then a tag of kind 3 ('G'), which no recorder writes. The
+ * game ids of a session are shifted past those of the sessions before it, so
+ * they stay unique, and times count from the start of the session.
+ *
+ * @author basel barham
+ */
+public class GameLogReader implements Closeable {
+
+	/**
+	 * channel the log is read from.
+	 */
+	private final ReadableByteChannel channel;
+
+	/**
+	 * bytes read but not parsed yet, kept in read mode.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+	/**
+	 * whether the channel has no more bytes.
+	 */
+	private boolean eof;
+
+	/**
+	 * start time of the current session, epoch milliseconds.
+	 */
+	private long startMillis;
+
+	/**
+	 * added to the game ids of the current session.
+	 */
+	private int idBase;
+
+	/**
+	 * number of game ids used by the current session so far.
+	 */
+	private int sessionGames;
+
+	/**
+	 * number of records read.
+	 */
+	private long records;
+
+	/**
+	 * kind of the current record.
+	 */
+	private int kind;
+
+	/**
+	 * game of the current record.
+	 */
+	private int game;
+
+	/**
+	 * time of the current record, microseconds since the start of the log.
+	 */
+	private long micros;
+
+	/**
+	 * encoded move of the current MOVE record.
+	 */
+	private int move;
+
+	/**
+	 * settings of the current START record.
+	 */
+	private GameSnapshot settings;
+
+	/**
+	 * constructor, read the header of a log.
+	 *
+	 * @param channel channel
+	 * @throws IOException if reading fails
+	 */
+	public GameLogReader(ReadableByteChannel channel) throws IOException {
+		this.channel = channel;
+		buffer.flip();
+		fill(GameRecorder.HEADER_SIZE);
+		if (!atHeader()) {
+			throw new IllegalArgumentException("Not a game log!");
+		}
+		header();
+	}
+
+	/**
+	 * method reports whether a session header starts at the current position.
+	 *
+	 * @return true or false
+	 */
+	private boolean atHeader() {
+		return buffer.remaining() >= GameRecorder.HEADER_SIZE && buffer.getInt(buffer.position()) == GameRecorder.MAGIC;
+	}
+
+	/**
+	 * method that reads a session header and starts the session.
+	 */
+	private void header() {
+		buffer.getInt();
+		byte version = buffer.get();
+		if (version != GameRecorder.VERSION) {
+			throw new IllegalArgumentException("Unknown game log version: " + version + "!");
+		}
+		startMillis = buffer.getLong();
+		micros = 0;
+		idBase += sessionGames;
+		sessionGames = 0;
+	}
+
+	/**
+	 * method that moves to the next record.
+	 *
+	 * @return false at the end of the log
+	 * @throws IOException if reading fails
+	 */
+	public boolean next() throws IOException {
+		fill(GameRecorder.MAX_RECORD);
+		try {
+			while (atHeader()) {
+				header();
+				fill(GameRecorder.MAX_RECORD);
+			}
+			if (!buffer.hasRemaining()) {
+				return false;
+			}
+			long tag = VarInt.getLong(buffer);
+			kind = (int) (tag & 3);
+			if ((tag >>> 2) >= Integer.MAX_VALUE - idBase) {
+				throw new IllegalArgumentException("Bad game id: " + (tag >>> 2) + "!");
+			}
+			game = idBase + (int) (tag >>> 2);
+			sessionGames = Math.max(sessionGames, game - idBase + 1);
+			micros += VarInt.getLong(buffer);
+			if (kind == GameRecorder.START) {
+				settings = GameSnapshot.getHeader(buffer);
+			} else if (kind == GameRecorder.MOVE) {
+				move = VarInt.get(buffer);
+			} else if (kind != GameRecorder.END) {
+				throw new IllegalArgumentException("Bad record in game log: " + tag + "!");
+			}
+		} catch (IllegalArgumentException | BufferUnderflowException ex) {
+			throw new IOException("Corrupt game log after " + records + " records: " + ex.getMessage(), ex);
+		}
+		records++;
+		return true;
+	}
+
+	/**
+	 * method reports the kind of the current record.
+	 *
+	 * @return GameRecorder.START, MOVE or END
+	 */
+	public int kind() {
+		return kind;
+	}
+
+	/**
+	 * method reports the game of the current record.
+	 *
+	 * @return game id
+	 */
+	public int game() {
+		return game;
+	}
+
+	/**
+	 * method reports the time of the current record.
+	 *
+	 * @return epoch milliseconds
+	 */
+	public long timeMillis() {
+		return startMillis + micros / 1000;
+	}
+
+	/**
+	 * method reports the time of the current record since the start of its
+	 * session.
+	 *
+	 * @return microseconds
+	 */
+	public long micros() {
+		return micros;
+	}
+
+	/**
+	 * method reports the settings of the current START record.
+	 *
+	 * @return settings, without moves
+	 */
+	public GameSnapshot settings() {
+		return settings;
+	}
+
+	/**
+	 * method reports the move type of the current MOVE record.
+	 *
+	 * @return move type (see GameSnapshot)
+	 */
+	public int moveType() {
+		return (move & 3) == GameSnapshot.UNDO ? GameSnapshot.UNDO + (move >>> 2) : move & 3;
+	}
+
+	/**
+	 * method reports the cell of the current MOVE record.
+	 *
+	 * @return row * colCount + col, meaningless for UNDO and REDO
+	 */
+	public int moveIndex() {
+		return move >>> 2;
+	}
+
+	/**
+	 * method that replays every game of the rest of the log. a game is handed
+	 * over when its END record is read, or at the end of the log if it was not
+	 * ended. undo is turned on for every game, since the log does not say when
+	 * it was turned on; logged undos and redos were ones that succeeded, so the
+	 * result is the same.
+	 *
+	 * @param finished called with each game id and its final state
+	 * @return number of records read
+	 * @throws IOException if reading fails
+	 */
+	public long replayAll(BiConsumer<Integer, MineSweeper> finished) throws IOException {
+		Map<Integer, MineSweeper> games = new HashMap<>();
+		long count = 0;
+		while (next()) {
+			count++;
+			if (kind == GameRecorder.START) {
+				MineSweeper replayed = settings.newGame();
+				replayed.enableUndo();
+				games.put(game, replayed);
+			} else if (kind == GameRecorder.MOVE) {
+				MineSweeper replayed = games.get(game);
+				if (replayed != null) {
+					replayMove(replayed);
+				}
+			} else {
+				MineSweeper replayed = games.remove(game);
+				if (replayed != null) {
+					finished.accept(game, replayed);
+				}
+			}
+		}
+		games.forEach(finished);
+		return count;
+	}
+
+	/**
+	 * method that replays one game of the rest of the log, skipping the others.
+	 *
+	 * @param id game id
+	 * @return the game at its END record or the end of the log, null if it does
+	 *         not start in the rest of the log
+	 * @throws IOException if reading fails
+	 */
+	public MineSweeper replay(int id) throws IOException {
+		MineSweeper replayed = null;
+		while (next()) {
+			if (game != id) {
+				continue;
+			}
+			if (kind == GameRecorder.START) {
+				replayed = settings.newGame();
+				replayed.enableUndo();
+			} else if (kind == GameRecorder.END) {
+				break;
+			} else if (replayed != null) {
+				replayMove(replayed);
+			}
+		}
+		return replayed;
+	}
+
+	/**
+	 * method that applies the current move to its game, once it is known to fit
+	 * the board.
+	 *
+	 * @param replayed game of the move
+	 * @throws IOException if the move is not on the board
+	 */
+	private void replayMove(MineSweeper replayed) throws IOException {
+		boolean fits = (move & 3) == GameSnapshot.UNDO ? (move >>> 2) <= GameSnapshot.REDO - GameSnapshot.UNDO
+				: (move >>> 2) < replayed.rowCount() * replayed.colCount();
+		if (!fits) {
+			throw new IOException("Bad move in game log for game " + game + " after " + records + " records: "
+					+ move + "!");
+		}
+		GameSnapshot.replay(replayed, move);
+	}
+
+	/**
+	 * method that reads until at least n bytes are buffered or the channel ends.
+	 *
+	 * @param n n
+	 * @throws IOException if reading fails
+	 */
+	private void fill(int n) throws IOException {
+		if (buffer.remaining() >= n || eof) {
+			return;
+		}
+		buffer.compact();
+		while (buffer.position() < n && !eof) {
+			eof = channel.read(buffer) < 0;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * method that closes the channel.
+	 *
+	 * @throws IOException if closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * This method is for testing code: games logged side by side to one
+	 * recorder replay to the boards they ended with, two recorders appended to
+	 * one log replay as two sessions with distinct game ids, and a move off
+	 * the board or a cut record is an IOException. the header magic does not
+	 * read as valid records.
+	 *
+	 * @param args args
+	 * @throws IOException if the log can not be read
+	 */
+	public static void main(String[] args) throws IOException {
+		ByteArrayOutputStream log = new ByteArrayOutputStream();
+		MineSweeper[] games = new MineSweeper[3];
+		boolean same = true;
+		try (GameRecorder recorder = new GameRecorder(Channels.newChannel(log))) {
+			for (int i = 0; i < games.length; i++) {
+				games[i] = new MineSweeper(40 + i, MineSweeper.Level.EASY);
+				games[i].enableUndo();
+				same &= games[i].attachRecorder(recorder) == i;
+			}
+			// moves of the games take turns in the log
+			for (int move = 0; move < 6; move++) {
+				for (MineSweeper game : games) {
+					if (move == 3) {
+						game.undo();
+					} else if (move % 2 == 0) {
+						game.clickAt(move, 8 - move);
+					} else {
+						game.flagAt(8 - move, move);
+					}
+				}
+			}
+			for (MineSweeper game : games) {
+				game.detachRecorder();
+			}
+		}
+		String[] replayed = new String[4];
+		byte[] bytes = log.toByteArray();
+		try (GameLogReader reader = new GameLogReader(Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+			reader.replayAll((id, game) -> replayed[Math.min(id, 3)] = game.toString());
+		}
+		for (int i = 0; i < games.length; i++) {
+			same &= games[i].toString().equals(replayed[i]);
+		}
+		try (GameLogReader reader = new GameLogReader(Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+			same &= games[1].toString().equals(reader.replay(1).toString()) && reader.replay(1) == null;
+		}
+		if (same && replayed[3] == null) {
+			System.out.println("Yay 1");
+		}
+
+		log.reset();
+		String[] played = new String[4];
+		same = true;
+		for (int session = 0; session < 2; session++) {
+			try (GameRecorder recorder = new GameRecorder(Channels.newChannel(log))) {
+				for (int i = 0; i < 2; i++) {
+					MineSweeper game = new MineSweeper(40 + session * 2 + i, MineSweeper.Level.EASY);
+					same &= game.attachRecorder(recorder) == i;
+					game.clickAt(4, i);
+					game.flagAt(0, 8);
+					game.flagAt(8, 0);
+					game.detachRecorder();
+					played[session * 2 + i] = game.toString();
+				}
+			}
+		}
+		String[] sessions = new String[5];
+		byte[] appended = log.toByteArray();
+		try (GameLogReader reader = new GameLogReader(Channels.newChannel(new ByteArrayInputStream(appended)))) {
+			reader.replayAll((id, game) -> sessions[Math.min(id, 4)] = game.toString());
+		}
+		same &= Arrays.equals(played, Arrays.copyOf(sessions, 4)) && sessions[4] == null;
+		try (GameLogReader reader = new GameLogReader(Channels.newChannel(new ByteArrayInputStream(appended)))) {
+			same &= played[3].equals(reader.replay(3).toString());
+		}
+		if (same) {
+			System.out.println("Yay 2");
+		}
+
+		ByteBuffer bad = ByteBuffer.allocate(64);
+		bad.putInt(GameRecorder.MAGIC).put(GameRecorder.VERSION).putLong(0);
+		VarInt.putLong(bad, GameRecorder.START);
+		VarInt.putLong(bad, 0);
+		new GameSnapshot(MineSweeper.Level.EASY, 9, 9, 10, 1).putHeader(bad);
+		VarInt.putLong(bad, GameRecorder.MOVE);
+		VarInt.putLong(bad, 0);
+		VarInt.put(bad, GameSnapshot.encode(GameSnapshot.CLICK, 81));
+		byte[][] corrupt = { Arrays.copyOf(bad.array(), bad.position()),
+				Arrays.copyOf(appended, appended.length - 1) };
+		same = true;
+		for (byte[] broken : corrupt) {
+			try (GameLogReader reader = new GameLogReader(Channels.newChannel(new ByteArrayInputStream(broken)))) {
+				reader.replayAll((id, game) -> {
+				});
+				same = false;
+			} catch (IOException ex) {
+				// expected
+			}
+		}
+		if (same) {
+			System.out.println("Yay 3");
+		}
+
+		ByteBuffer magic = ByteBuffer.allocate(4).putInt(GameRecorder.MAGIC).flip();
+		long tag = VarInt.getLong(magic);
+		VarInt.getLong(magic);
+		VarInt.get(magic);
+		if ((tag & 3) == GameRecorder.MOVE && (VarInt.getLong(magic) & 3) == 3) {
+			System.out.println("Yay 4");
+		}
+	}
+}
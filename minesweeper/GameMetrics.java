@@ -0,0 +1,308 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms for the hot paths of the game: clickAt(),
+ * initBoard(), countNbrMines() and the GUI's button refresh.
+ *
+ * Metrics are off unless the JVM is started with -Dminesweeper.metrics=true.
+ * Every call site is guarded by the constant ENABLED, so when it is false the
+ * JIT drops the instrumentation entirely. When on, the numbers can be pulled
+ * with snapshot() or read over JMX (see GameMetricsMBean).
+ *
+ * @author basel barham
+ */
+public final class GameMetrics implements GameMetricsMBean {
+
+	/**
+	 * whether metrics are recorded, fixed at startup.
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+	/**
+	 * name the MBean is registered under.
+	 */
+	public static final String OBJECT_NAME = "minesweeper:type=GameMetrics";
+
+	/**
+	 * number of clicks.
+	 */
+	private static final LongAdder CLICKS = new LongAdder();
+
+	/**
+	 * number of cells opened by clicks.
+	 */
+	private static final LongAdder REVEALED = new LongAdder();
+
+	/**
+	 * number of flag/unflag changes.
+	 */
+	private static final LongAdder FLAG_CHANGES = new LongAdder();
+
+	/**
+	 * number of boards generated.
+	 */
+	private static final LongAdder BOARDS = new LongAdder();
+
+	/**
+	 * number of mine placements that hit a cell with a mine already.
+	 */
+	private static final LongAdder RETRIES = new LongAdder();
+
+	/**
+	 * clickAt() latency.
+	 */
+	private static final LatencyHistogram CLICK_NANOS = new LatencyHistogram();
+
+	/**
+	 * cells opened per click.
+	 */
+	private static final LatencyHistogram REVEALED_PER_CLICK = new LatencyHistogram();
+
+	/**
+	 * largest flood fill stack per click.
+	 */
+	private static final LatencyHistogram DEPTH_PER_CLICK = new LatencyHistogram();
+
+	/**
+	 * initBoard() latency.
+	 */
+	private static final LatencyHistogram INIT_NANOS = new LatencyHistogram();
+
+	/**
+	 * countNbrMines() latency.
+	 */
+	private static final LatencyHistogram COUNT_NANOS = new LatencyHistogram();
+
+	/**
+	 * GUI button refresh latency.
+	 */
+	private static final LatencyHistogram GUI_NANOS = new LatencyHistogram();
+
+	/**
+	 * hint() latency.
+	 */
+	private static final LatencyHistogram HINT_NANOS = new LatencyHistogram();
+
+	static {
+		if (ENABLED) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new GameMetrics(),
+						new ObjectName(OBJECT_NAME));
+			} catch (JMException ex) {
+				// metrics still work through snapshot()
+				System.err.println("GameMetrics: JMX registration failed: " + ex);
+			}
+		}
+	}
+
+	/**
+	 * only the MBean instance is created.
+	 */
+	private GameMetrics() {
+	}
+
+	/**
+	 * method that records one click.
+	 *
+	 * @param nanos    time spent in clickAt()
+	 * @param revealed cells opened
+	 * @param depth    largest flood fill stack size reached
+	 */
+	static void recordClick(long nanos, int revealed, int depth) {
+		CLICKS.increment();
+		REVEALED.add(revealed);
+		CLICK_NANOS.record(nanos);
+		REVEALED_PER_CLICK.record(revealed);
+		DEPTH_PER_CLICK.record(depth);
+	}
+
+	/**
+	 * method that records one board generation.
+	 *
+	 * @param nanos   time spent in initBoard()
+	 * @param retries placements that hit a mine already
+	 */
+	static void recordInit(long nanos, int retries) {
+		BOARDS.increment();
+		RETRIES.add(retries);
+		INIT_NANOS.record(nanos);
+	}
+
+	/**
+	 * method that records one countNbrMines() call.
+	 *
+	 * @param nanos time spent
+	 */
+	static void recordCount(long nanos) {
+		COUNT_NANOS.record(nanos);
+	}
+
+	/**
+	 * method that records a cell being flagged or unflagged.
+	 */
+	static void recordFlagChange() {
+		FLAG_CHANGES.increment();
+	}
+
+	/**
+	 * method that records cells flagged or unflagged by one batch.
+	 *
+	 * @param count number of cells changed
+	 */
+	static void recordFlagChanges(int count) {
+		FLAG_CHANGES.add(count);
+	}
+
+	/**
+	 * method that records one GUI button refresh.
+	 *
+	 * @param nanos time spent
+	 */
+	static void recordGuiUpdate(long nanos) {
+		GUI_NANOS.record(nanos);
+	}
+
+	/**
+	 * method that records one hint() call.
+	 *
+	 * @param nanos time spent
+	 */
+	static void recordHint(long nanos) {
+		HINT_NANOS.record(nanos);
+	}
+
+	/**
+	 * method that returns the current value of every metric, by name.
+	 *
+	 * @return metric names and values, in a stable order
+	 */
+	public static Map<String, Long> snapshot() {
+		Map<String, Long> snap = new LinkedHashMap<>();
+		snap.put("clicks", CLICKS.sum());
+		snap.put("cellsRevealed", REVEALED.sum());
+		snap.put("flagChanges", FLAG_CHANGES.sum());
+		snap.put("boardsGenerated", BOARDS.sum());
+		snap.put("placementRetries", RETRIES.sum());
+		put(snap, "clickNanos", CLICK_NANOS);
+		put(snap, "revealedPerClick", REVEALED_PER_CLICK);
+		put(snap, "revealDepth", DEPTH_PER_CLICK);
+		put(snap, "initBoardNanos", INIT_NANOS);
+		put(snap, "countNbrMinesNanos", COUNT_NANOS);
+		put(snap, "updateButtonsNanos", GUI_NANOS);
+		put(snap, "hintNanos", HINT_NANOS);
+		return snap;
+	}
+
+	/**
+	 * method that adds the summary of a histogram to a snapshot.
+	 *
+	 * @param snap snap
+	 * @param name name
+	 * @param h    h
+	 */
+	private static void put(Map<String, Long> snap, String name, LatencyHistogram h) {
+		snap.put(name + ".count", h.count());
+		snap.put(name + ".p50", h.percentile(0.50));
+		snap.put(name + ".p99", h.percentile(0.99));
+		snap.put(name + ".max", h.max());
+	}
+
+	/**
+	 * method that clears all metrics.
+	 */
+	public static void clear() {
+		CLICKS.reset();
+		REVEALED.reset();
+		FLAG_CHANGES.reset();
+		BOARDS.reset();
+		RETRIES.reset();
+		CLICK_NANOS.reset();
+		REVEALED_PER_CLICK.reset();
+		DEPTH_PER_CLICK.reset();
+		INIT_NANOS.reset();
+		COUNT_NANOS.reset();
+		GUI_NANOS.reset();
+		HINT_NANOS.reset();
+	}
+
+	@Override
+	public long getClicks() {
+		return CLICKS.sum();
+	}
+
+	@Override
+	public long getCellsRevealed() {
+		return REVEALED.sum();
+	}
+
+	@Override
+	public long getFlagChanges() {
+		return FLAG_CHANGES.sum();
+	}
+
+	@Override
+	public long getBoardsGenerated() {
+		return BOARDS.sum();
+	}
+
+	@Override
+	public long getPlacementRetries() {
+		return RETRIES.sum();
+	}
+
+	@Override
+	public long getClickP50Nanos() {
+		return CLICK_NANOS.percentile(0.50);
+	}
+
+	@Override
+	public long getClickP99Nanos() {
+		return CLICK_NANOS.percentile(0.99);
+	}
+
+	@Override
+	public long getClickMaxNanos() {
+		return CLICK_NANOS.max();
+	}
+
+	@Override
+	public long getRevealedP99() {
+		return REVEALED_PER_CLICK.percentile(0.99);
+	}
+
+	@Override
+	public long getMaxRevealDepth() {
+		return DEPTH_PER_CLICK.max();
+	}
+
+	@Override
+	public long getInitBoardP99Nanos() {
+		return INIT_NANOS.percentile(0.99);
+	}
+
+	@Override
+	public long getCountNbrMinesP99Nanos() {
+		return COUNT_NANOS.percentile(0.99);
+	}
+
+	@Override
+	public long getUpdateButtonsP99Nanos() {
+		return GUI_NANOS.percentile(0.99);
+	}
+
+	@Override
+	public long getHintP99Nanos() {
+		return HINT_NANOS.percentile(0.99);
+	}
+
+	@Override
+	public void reset() {
+		clear();
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * JMX view of GameMetrics, registered as "minesweeper:type=GameMetrics" when
+ * metrics are enabled.
+ *
+ * @author basel barham
+ */
+public interface GameMetricsMBean {
+
+	/**
+	 * method reports number of clickAt() calls.
+	 *
+	 * @return clicks
+	 */
+	long getClicks();
+
+	/**
+	 * method reports number of cells opened by clicks.
+	 *
+	 * @return cells opened
+	 */
+	long getCellsRevealed();
+
+	/**
+	 * method reports number of flagAt()/unFlagAt() calls that changed a cell.
+	 *
+	 * @return flag changes
+	 */
+	long getFlagChanges();
+
+	/**
+	 * method reports number of boards generated by initBoard().
+	 *
+	 * @return boards
+	 */
+	long getBoardsGenerated();
+
+	/**
+	 * method reports number of random cells initBoard() drew that already had a
+	 * mine.
+	 *
+	 * @return retries
+	 */
+	long getPlacementRetries();
+
+	/**
+	 * method reports median clickAt() latency.
+	 *
+	 * @return nanoseconds
+	 */
+	long getClickP50Nanos();
+
+	/**
+	 * method reports 99th percentile clickAt() latency.
+	 *
+	 * @return nanoseconds
+	 */
+	long getClickP99Nanos();
+
+	/**
+	 * method reports worst clickAt() latency.
+	 *
+	 * @return nanoseconds
+	 */
+	long getClickMaxNanos();
+
+	/**
+	 * method reports 99th percentile of cells opened by one click.
+	 *
+	 * @return cells
+	 */
+	long getRevealedP99();
+
+	/**
+	 * method reports largest flood fill stack seen in one click.
+	 *
+	 * @return stack size
+	 */
+	long getMaxRevealDepth();
+
+	/**
+	 * method reports 99th percentile initBoard() latency.
+	 *
+	 * @return nanoseconds
+	 */
+	long getInitBoardP99Nanos();
+
+	/**
+	 * method reports 99th percentile countNbrMines() latency.
+	 *
+	 * @return nanoseconds
+	 */
+	long getCountNbrMinesP99Nanos();
+
+	/**
+	 * method reports 99th percentile latency of the GUI's button refresh.
+	 *
+	 * @return nanoseconds
+	 */
+	long getUpdateButtonsP99Nanos();
+
+	/**
+	 * method reports 99th percentile hint() latency.
+	 *
+	 * @return nanoseconds
+	 */
+	long getHintP99Nanos();
+
+	/**
+	 * method that clears all metrics.
+	 */
+	void reset();
+}
@@ -0,0 +1,259 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of finished games whose boards are reused for new ones. A new game
+ * normally allocates a DynGrid310, its DynArr310 rows and one Cell per square;
+ * a game taken from the pool keeps all of that and only resets the cells in
+ * place and places new mines. Games are pooled by board size, so any level or
+ * mine count of the same size can reuse them.
+ *
+ * The pool is safe to share between threads. A released game must not be used
+ * again by whoever released it.
+ *
+ * @author basel barham
+ */
+public class GamePool {
+
+	/**
+	 * most games kept, over all sizes.
+	 */
+	private final int maxPooled;
+
+	/**
+	 * idle games by board size (rows shifted left 32 | cols).
+	 */
+	private final Map<Long, Queue<MineSweeper>> idle = new ConcurrentHashMap<>();
+
+	/**
+	 * number of idle games.
+	 */
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * number of acquire() calls served from the pool.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * number of acquire() calls that built a new game.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * number of release() calls that kept the game.
+	 */
+	private final LongAdder releases = new LongAdder();
+
+	/**
+	 * number of release() calls dropped because the pool was full.
+	 */
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * constructor, create an empty pool.
+	 *
+	 * @param maxPooled most games kept, over all sizes
+	 */
+	public GamePool(int maxPooled) {
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * method that returns a new game of a pre-defined level.
+	 *
+	 * @param seed  seed
+	 * @param level level, not CUSTOM
+	 * @return the game
+	 */
+	public MineSweeper acquire(int seed, MineSweeper.Level level) {
+		return acquire(seed, level, false);
+	}
+
+	/**
+	 * method that returns a new game of a pre-defined level.
+	 *
+	 * @param seed           seed
+	 * @param level          level, not CUSTOM
+	 * @param safeFirstClick whether mines are placed on the first click
+	 * @return the game
+	 */
+	public MineSweeper acquire(int seed, MineSweeper.Level level, boolean safeFirstClick) {
+		if (level == MineSweeper.Level.CUSTOM)
+			throw new IllegalArgumentException("Customized games need more parameters!");
+		int[] size = MineSweeper.levelSize(level);
+		MineSweeper game = take(size[0], size[1]);
+		if (game == null) {
+			return new MineSweeper(seed, level, safeFirstClick);
+		}
+		game.reuse(seed, level, size[2], safeFirstClick);
+		return game;
+	}
+
+	/**
+	 * method that returns a new customized game.
+	 *
+	 * @param seed      seed
+	 * @param level     level, must be CUSTOM
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount
+	 * @return the game
+	 */
+	public MineSweeper acquire(int seed, MineSweeper.Level level, int rowCount, int colCount, int mineCount) {
+		return acquire(seed, level, rowCount, colCount, mineCount, false);
+	}
+
+	/**
+	 * method that returns a new customized game.
+	 *
+	 * @param seed           seed
+	 * @param level          level, must be CUSTOM
+	 * @param rowCount       rowCount
+	 * @param colCount       colCount
+	 * @param mineCount      mineCount
+	 * @param safeFirstClick whether mines are placed on the first click
+	 * @return the game
+	 */
+	public MineSweeper acquire(int seed, MineSweeper.Level level, int rowCount, int colCount, int mineCount,
+			boolean safeFirstClick) {
+		if (level != MineSweeper.Level.CUSTOM)
+			throw new IllegalArgumentException("Only customized games need more parameters!");
+		MineSweeper game = take(rowCount, colCount);
+		if (game == null) {
+			return new MineSweeper(seed, level, rowCount, colCount, mineCount, safeFirstClick);
+		}
+		game.reuse(seed, level, mineCount, safeFirstClick);
+		return game;
+	}
+
+	/**
+	 * method that gives a finished game back. it is dropped if the pool is
+	 * full. a game still logging to a GameRecorder is detached first.
+	 *
+	 * @param game game, not used by the caller afterwards
+	 */
+	public void release(MineSweeper game) {
+		game.detachRecorder();
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			dropped.increment();
+			return;
+		}
+		idle.computeIfAbsent(key(game.rowCount(), game.colCount()), k -> new ConcurrentLinkedQueue<>()).add(game);
+		releases.increment();
+	}
+
+	/**
+	 * method that takes an idle game of a size.
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 * @return the game, null if there is none
+	 */
+	private MineSweeper take(int rowCount, int colCount) {
+		Queue<MineSweeper> games = idle.get(key(rowCount, colCount));
+		MineSweeper game = games == null ? null : games.poll();
+		if (game == null) {
+			misses.increment();
+			return null;
+		}
+		pooled.decrementAndGet();
+		hits.increment();
+		return game;
+	}
+
+	/**
+	 * method that makes the key of a board size.
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 * @return key
+	 */
+	private static Long key(int rowCount, int colCount) {
+		return ((long) rowCount << 32) | colCount;
+	}
+
+	/**
+	 * method reports number of idle games in the pool.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return pooled.get();
+	}
+
+	/**
+	 * method reports the share of acquire() calls served from the pool.
+	 *
+	 * @return hit rate, 0 before the first acquire()
+	 */
+	public double hitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * method that returns the pool's counters, by name.
+	 *
+	 * @return metric names and values, in a stable order
+	 */
+	public Map<String, Long> snapshot() {
+		Map<String, Long> snap = new LinkedHashMap<>();
+		snap.put("pooled", (long) pooled.get());
+		snap.put("hits", hits.sum());
+		snap.put("misses", misses.sum());
+		snap.put("releases", releases.sum());
+		snap.put("dropped", dropped.sum());
+		return snap;
+	}
+
+	/**
+	 * This method is for testing code: a reused board plays exactly like a new
+	 * game of the same seed, whatever the game it came from left behind.
+	 *
+	 * @param args args
+	 */
+	public static void main(String[] args) {
+		GamePool pool = new GamePool(4);
+		boolean same = true;
+		for (int round = 0; round < 3; round++) {
+			MineSweeper used = round == 2 ? pool.acquire(90, MineSweeper.Level.HARD, true)
+					: pool.acquire(80 + round, MineSweeper.Level.CUSTOM, 16, 30, 60 + 40 * round);
+			MineSweeper fresh = round == 2 ? new MineSweeper(90, MineSweeper.Level.HARD, true)
+					: new MineSweeper(80 + round, MineSweeper.Level.CUSTOM, 16, 30, 60 + 40 * round);
+			same &= used.toString().equals(fresh.toString()) && !used.isOpeningIndexed();
+			for (int k = 0; k < 60; k++) {
+				int row = (k * 7) % 16;
+				int col = (k * 11) % 30;
+				if (k % 5 == 4) {
+					same &= used.flagAt(row, col) == fresh.flagAt(row, col);
+				} else {
+					same &= used.clickAt(row, col) == fresh.clickAt(row, col);
+				}
+			}
+			for (int row = 0; row < 16; row++) {
+				for (int col = 0; col < 30; col++) {
+					same &= used.hasMine(row, col) == fresh.hasMine(row, col)
+							&& used.getCount(row, col) == fresh.getCount(row, col);
+				}
+			}
+			same &= used.toString().equals(fresh.toString()) && used.mineLeft() == fresh.mineLeft();
+			// leave history and an opening index behind for the next holder
+			used.enableUndo();
+			used.enableOpeningIndex();
+			used.clickAt(15, 29);
+			pool.release(used);
+		}
+		Map<String, Long> counters = pool.snapshot();
+		if (same && counters.get("hits") == 2 && counters.get("misses") == 1 && pool.size() == 1) {
+			System.out.println("Yay 1");
+		}
+	}
+}
@@ -0,0 +1,265 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An append-only log of the moves of many games, for analytics and replays.
+ * Games are attached with MineSweeper.attachRecorder(); every clickAt(),
+ * flagAt(), unFlagAt(), undo() and redo() is then logged with a timestamp.
+ *
+ * Layout: a header of the magic "MSLG", a version byte and the start time
+ * (epoch milliseconds, 8 bytes), then one record per event:
+ * - varint (game id shifted left by two | kind), kind is START, MOVE or END;
+ * - varint microseconds since the previous record of the log;
+ * - for START the game settings as in GameSnapshot, for MOVE the move as in
+ * GameSnapshot, nothing for END.
+ * Records of all games are interleaved in one stream, so deltas stay small and
+ * most records take 3 or 4 bytes. A recorder appending to an existing log
+ * writes a header of its own; GameLogReader reads such a log as sessions
+ * one after the other.
+ *
+ * Records go into a buffer that is written to the channel in one call when it
+ * fills up, when flushInterval has passed since the last write, or on
+ * flush(): one write carries the events of many games. All methods are
+ * synchronized, so games on different threads can share a recorder. Write
+ * errors inside a move are thrown as UncheckedIOException.
+ *
+ * @author basel barham
+ */
+public class GameRecorder implements Closeable, Flushable {
+
+	/**
+	 * first bytes of a log, "MSLG".
+	 */
+	static final int MAGIC = 0x4D534C47;
+
+	/**
+	 * format version.
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * bytes of the header: magic, version and start time.
+	 */
+	static final int HEADER_SIZE = 4 + 1 + 8;
+
+	/**
+	 * kind of the record that starts a game.
+	 */
+	public static final int START = 0;
+
+	/**
+	 * kind of a move record.
+	 */
+	public static final int MOVE = 1;
+
+	/**
+	 * kind of the record that ends a game.
+	 */
+	public static final int END = 2;
+
+	/**
+	 * most bytes one record takes.
+	 */
+	static final int MAX_RECORD = 2 * VarInt.MAX_LONG_BYTES + GameSnapshot.HEADER_BYTES;
+
+	/**
+	 * channel the log is written to.
+	 */
+	private final WritableByteChannel channel;
+
+	/**
+	 * records not written yet.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * longest time records wait in the buffer, checked when a record is added.
+	 */
+	private final long flushInterval;
+
+	/**
+	 * System.nanoTime() at the start of the log.
+	 */
+	private final long startNanos;
+
+	/**
+	 * time of the last record, microseconds since the start.
+	 */
+	private long lastMicros;
+
+	/**
+	 * System.nanoTime() of the last write to the channel.
+	 */
+	private long lastWrite;
+
+	/**
+	 * next game id.
+	 */
+	private int nextGame;
+
+	/**
+	 * number of records logged.
+	 */
+	private long records;
+
+	/**
+	 * number of bytes written to the channel.
+	 */
+	private long bytesWritten;
+
+	/**
+	 * constructor, log to a channel with a 64 KB buffer flushed at least every
+	 * 100 ms while moves come in.
+	 *
+	 * @param channel channel, e.g. a FileChannel opened for append
+	 */
+	public GameRecorder(WritableByteChannel channel) {
+		this(channel, 1 << 16, 100_000_000L);
+	}
+
+	/**
+	 * constructor, log to a channel.
+	 *
+	 * @param channel       channel
+	 * @param bufferSize    bytes buffered between writes, at least 256
+	 * @param flushInterval longest time a record is buffered while others come in,
+	 *                      in nanoseconds
+	 */
+	public GameRecorder(WritableByteChannel channel, int bufferSize, long flushInterval) {
+		this.channel = channel;
+		this.flushInterval = flushInterval;
+		buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 256));
+		startNanos = System.nanoTime();
+		lastWrite = startNanos;
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.putLong(System.currentTimeMillis());
+	}
+
+	/**
+	 * method that logs the start of a game.
+	 *
+	 * @param settings settings of the game, moves are ignored
+	 * @return id of the game in the log
+	 */
+	synchronized int start(GameSnapshot settings) {
+		int game = nextGame++;
+		record(game, START);
+		settings.putHeader(buffer);
+		return game;
+	}
+
+	/**
+	 * method that logs one move.
+	 *
+	 * @param game  id from start()
+	 * @param type  move type (see GameSnapshot)
+	 * @param index row * colCount + col, ignored for UNDO and REDO
+	 */
+	synchronized void move(int game, int type, int index) {
+		record(game, MOVE);
+		VarInt.put(buffer, GameSnapshot.encode(type, index));
+	}
+
+	/**
+	 * method that logs the end of a game.
+	 *
+	 * @param game id from start()
+	 */
+	synchronized void end(int game) {
+		record(game, END);
+	}
+
+	/**
+	 * method that starts a record, making room and writing the buffer first if
+	 * it is full or has waited too long.
+	 *
+	 * @param game game
+	 * @param kind kind
+	 */
+	private void record(int game, int kind) {
+		long now = System.nanoTime();
+		try {
+			if (buffer.remaining() < MAX_RECORD || now - lastWrite >= flushInterval) {
+				write(now);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		long micros = (now - startNanos) / 1000;
+		VarInt.putLong(buffer, ((long) game << 2) | kind);
+		VarInt.putLong(buffer, micros - lastMicros);
+		lastMicros = micros;
+		records++;
+	}
+
+	/**
+	 * method that writes the whole buffer to the channel.
+	 *
+	 * @param now System.nanoTime()
+	 * @throws IOException if the channel fails
+	 */
+	private void write(long now) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			bytesWritten += channel.write(buffer);
+		}
+		buffer.clear();
+		lastWrite = now;
+	}
+
+	/**
+	 * method that writes buffered records to the channel.
+	 *
+	 * @throws IOException if the channel fails
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		write(System.nanoTime());
+	}
+
+	/**
+	 * method that flushes and closes the channel.
+	 *
+	 * @throws IOException if the channel fails
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * method reports number of records logged.
+	 *
+	 * @return records
+	 */
+	public synchronized long recordCount() {
+		return records;
+	}
+
+	/**
+	 * method reports number of games started.
+	 *
+	 * @return games
+	 */
+	public synchronized int gameCount() {
+		return nextGame;
+	}
+
+	/**
+	 * method reports number of bytes written to the channel so far.
+	 *
+	 * @return bytes
+	 */
+	public synchronized long bytesWritten() {
+		return bytesWritten;
+	}
+}
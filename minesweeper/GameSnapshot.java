@@ -0,0 +1,359 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact snapshot of a minesweeper game. A board is fully determined by its
+ * level, size, mine count and seed, so only those are stored, followed by an
+ * append-only log of the moves made so far.
+ *
+ * Layout of toBytes(): level ordinal (plus 16 if mines are placed on the first
+ * click), then rows/cols/mines for CUSTOM games
+ * (varints), the seed (4 bytes, big-endian), and one varint per move holding
+ * (row * colCount + col) shifted left by two bits with the move type below.
+ * Undo and redo share type bits 3 and use the index to tell them apart.
+ *
+ * @author basel barham
+ */
+public class GameSnapshot {
+
+	/**
+	 * move type of clickAt().
+	 */
+	public static final int CLICK = 0;
+
+	/**
+	 * move type of flagAt().
+	 */
+	public static final int FLAG = 1;
+
+	/**
+	 * move type of unFlagAt().
+	 */
+	public static final int UNFLAG = 2;
+
+	/**
+	 * move type of undo(), stored as type bits 3 with index 0.
+	 */
+	public static final int UNDO = 3;
+
+	/**
+	 * move type of redo(), stored as type bits 3 with index 1.
+	 */
+	public static final int REDO = 4;
+
+	/**
+	 * bit added to the level ordinal for a board with a safe first click.
+	 */
+	private static final int SAFE_FIRST_CLICK = 16;
+
+	/**
+	 * most bytes putHeader() writes.
+	 */
+	static final int HEADER_BYTES = 4 * VarInt.MAX_BYTES + 4;
+
+	/**
+	 * level of the game.
+	 */
+	private final MineSweeper.Level level;
+
+	/**
+	 * number of rows of the board.
+	 */
+	private final int rowCount;
+
+	/**
+	 * number of columns of the board.
+	 */
+	private final int colCount;
+
+	/**
+	 * number of mines in the board.
+	 */
+	private final int mineCount;
+
+	/**
+	 * seed the board was generated from.
+	 */
+	private final int seed;
+
+	/**
+	 * whether the mines are placed by the first click.
+	 */
+	private final boolean safeFirstClick;
+
+	/**
+	 * encoded moves, only the first length bytes are used.
+	 */
+	private byte[] moves;
+
+	/**
+	 * number of bytes used in moves.
+	 */
+	private int length;
+
+	/**
+	 * number of moves logged.
+	 */
+	private int moveCount;
+
+	/**
+	 * whether any undo or redo was logged.
+	 */
+	private boolean usesHistory;
+
+	/**
+	 * constructor, start an empty log for the given game settings.
+	 *
+	 * @param level     level
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount
+	 * @param seed      seed
+	 */
+	public GameSnapshot(MineSweeper.Level level, int rowCount, int colCount, int mineCount, int seed) {
+		this(level, rowCount, colCount, mineCount, seed, false);
+	}
+
+	/**
+	 * constructor, start an empty log for the given game settings.
+	 *
+	 * @param level          level
+	 * @param rowCount       rowCount
+	 * @param colCount       colCount
+	 * @param mineCount      mineCount
+	 * @param seed           seed
+	 * @param safeFirstClick whether the mines are placed by the first click
+	 */
+	public GameSnapshot(MineSweeper.Level level, int rowCount, int colCount, int mineCount, int seed,
+			boolean safeFirstClick) {
+		this.safeFirstClick = safeFirstClick;
+		this.level = level;
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		this.mineCount = mineCount;
+		this.seed = seed;
+		moves = new byte[16];
+	}
+
+	/**
+	 * method that appends one move to the log. amortized O(1)
+	 *
+	 * @param type move type (CLICK, FLAG, UNFLAG, UNDO or REDO)
+	 * @param row  row, ignored for UNDO and REDO
+	 * @param col  col, ignored for UNDO and REDO
+	 */
+	void append(int type, int row, int col) {
+		if (length + VarInt.MAX_BYTES > moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		if (type >= UNDO) {
+			usesHistory = true;
+		}
+		length = VarInt.put(moves, length, encode(type, row * colCount + col));
+		moveCount++;
+	}
+
+	/**
+	 * method that encodes one move as it is stored in the log.
+	 *
+	 * @param type  move type (CLICK, FLAG, UNFLAG, UNDO or REDO)
+	 * @param index row * colCount + col, ignored for UNDO and REDO
+	 * @return encoded move
+	 */
+	static int encode(int type, int index) {
+		if (type >= UNDO) {
+			return ((type - UNDO) << 2) | UNDO;
+		}
+		return (index << 2) | type;
+	}
+
+	/**
+	 * method reports the level of the game.
+	 *
+	 * @return level
+	 */
+	public MineSweeper.Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * method reports the seed of the game.
+	 *
+	 * @return seed
+	 */
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * method reports whether the mines are placed by the first click.
+	 *
+	 * @return safeFirstClick
+	 */
+	public boolean isSafeFirstClick() {
+		return safeFirstClick;
+	}
+
+	/**
+	 * method reports number of moves logged.
+	 *
+	 * @return moveCount
+	 */
+	public int moveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * method that encodes the snapshot.
+	 *
+	 * @return encoded bytes, typically a few dozen
+	 */
+	public byte[] toBytes() {
+		ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + length);
+		putHeader(out);
+		out.put(moves, 0, length);
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	/**
+	 * method that writes the game settings (everything but the moves) at the
+	 * buffer's position, at most HEADER_BYTES.
+	 *
+	 * @param out out
+	 */
+	void putHeader(ByteBuffer out) {
+		VarInt.put(out, level.ordinal() | (safeFirstClick ? SAFE_FIRST_CLICK : 0));
+		if (level == MineSweeper.Level.CUSTOM) {
+			VarInt.put(out, rowCount);
+			VarInt.put(out, colCount);
+			VarInt.put(out, mineCount);
+		}
+		out.putInt(seed);
+	}
+
+	/**
+	 * method that decodes a snapshot produced by toBytes().
+	 *
+	 * @param bytes bytes
+	 * @return the decoded snapshot
+	 */
+	public static GameSnapshot fromBytes(byte[] bytes) {
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		GameSnapshot snapshot = getHeader(buf);
+		int start = buf.position();
+		snapshot.length = bytes.length - start;
+		snapshot.moves = Arrays.copyOfRange(bytes, start, start + Math.max(snapshot.length, 16));
+
+		// count moves and reject anything that does not fit the board
+		int cellCount = snapshot.rowCount * snapshot.colCount;
+		while (buf.hasRemaining()) {
+			int move = VarInt.get(buf);
+			if ((move & 3) == UNDO) {
+				if ((move >>> 2) > REDO - UNDO) {
+					throw new IllegalArgumentException("Bad move in game log: " + move + "!");
+				}
+				snapshot.usesHistory = true;
+			} else if ((move >>> 2) >= cellCount) {
+				throw new IllegalArgumentException("Bad move in game log: " + move + "!");
+			}
+			snapshot.moveCount++;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * method that reads game settings written by putHeader() and returns an
+	 * empty log for them.
+	 *
+	 * @param buf buf
+	 * @return snapshot without moves
+	 */
+	static GameSnapshot getHeader(ByteBuffer buf) {
+		int ordinal = VarInt.get(buf);
+		boolean safeFirstClick = (ordinal & SAFE_FIRST_CLICK) != 0;
+		ordinal &= ~SAFE_FIRST_CLICK;
+		MineSweeper.Level[] levels = MineSweeper.Level.values();
+		if (ordinal >= levels.length) {
+			throw new IllegalArgumentException("Unknown level: " + ordinal + "!");
+		}
+		MineSweeper.Level level = levels[ordinal];
+
+		int rows;
+		int cols;
+		int mines;
+		if (level == MineSweeper.Level.CUSTOM) {
+			rows = VarInt.get(buf);
+			cols = VarInt.get(buf);
+			mines = VarInt.get(buf);
+			if (rows <= 0 || cols <= 0 || mines < 0 || (long) rows * cols <= mines) {
+				throw new IllegalArgumentException("Bad board size in game log!");
+			}
+		} else {
+			int[] dims = MineSweeper.levelSize(level);
+			rows = dims[0];
+			cols = dims[1];
+			mines = dims[2];
+		}
+		if (buf.remaining() < 4) {
+			throw new IllegalArgumentException("Truncated game log!");
+		}
+		int seed = buf.getInt();
+
+		return new GameSnapshot(level, rows, cols, mines, seed, safeFirstClick);
+	}
+
+	/**
+	 * method that rebuilds the game by regenerating the board from the seed and
+	 * replaying every move. moves in the log were valid when recorded, so they
+	 * are applied without the checks done by clickAt()/flagAt()/unFlagAt(). the
+	 * returned game keeps recording into a copy of this log.
+	 *
+	 * @return the restored game
+	 */
+	public MineSweeper restore() {
+		MineSweeper game = newGame();
+		if (usesHistory) {
+			game.enableUndo();
+		}
+
+		ByteBuffer buf = ByteBuffer.wrap(moves, 0, length);
+		while (buf.hasRemaining()) {
+			replay(game, VarInt.get(buf));
+		}
+
+		GameSnapshot copy = new GameSnapshot(level, rowCount, colCount, mineCount, seed, safeFirstClick);
+		copy.moves = Arrays.copyOf(moves, moves.length);
+		copy.length = length;
+		copy.moveCount = moveCount;
+		copy.usesHistory = usesHistory;
+		game.setRecording(copy);
+		return game;
+	}
+
+	/**
+	 * method that builds the game of these settings, before any move.
+	 *
+	 * @return a new game
+	 */
+	MineSweeper newGame() {
+		if (level == MineSweeper.Level.CUSTOM) {
+			return new MineSweeper(seed, level, rowCount, colCount, mineCount, safeFirstClick);
+		}
+		return new MineSweeper(seed, level, safeFirstClick);
+	}
+
+	/**
+	 * method that applies one encoded move to a game.
+	 *
+	 * @param game game
+	 * @param move move, as made by encode()
+	 */
+	static void replay(MineSweeper game, int move) {
+		int index = move >>> 2;
+		if ((move & 3) == UNDO) {
+			game.replay(UNDO + index, 0, 0);
+		} else {
+			game.replay(move & 3, index / game.colCount(), index % game.colCount());
+		}
+	}
+}
@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+
+/**
+ * Measures how fast boards are generated with each RandomSource: raw draws
+ * from one generator, mine layouts drawn by MineSweeper.drawMines() with a new
+ * generator per seed (what initBoard() does), whole games built by the
+ * constructor, and seeds scanned by a SeedScanner on every core. Each figure
+ * is the best of a few rounds, after a warm-up round.
+ *
+ * @author basel barham
+ */
+public class GenerationBenchmark {
+
+	/**
+	 * rounds measured per figure.
+	 */
+	private static final int ROUNDS = 5;
+
+	/**
+	 * value that keeps the JIT from dropping the measured work.
+	 */
+	private static long sink;
+
+	/**
+	 * method that measures nextInt(bound) calls on one generator.
+	 *
+	 * @param source source
+	 * @param draws  calls per round
+	 * @return calls per second
+	 */
+	static double draws(RandomSource source, int draws) {
+		RandomGenerator random = source.create(42);
+		return best(draws, () -> {
+			long sum = 0;
+			for (int i = 0; i < draws; i++) {
+				sum += random.nextInt(480);
+			}
+			sink += sum;
+		});
+	}
+
+	/**
+	 * method that measures mine layouts of a board size, one seed each.
+	 *
+	 * @param source source
+	 * @param size   {rows, cols, mines}
+	 * @param seeds  layouts per round
+	 * @return layouts per second
+	 */
+	static double layouts(RandomSource source, int[] size, int seeds) {
+		boolean[] mines = new boolean[size[0] * size[1]];
+		return best(seeds, () -> {
+			for (int seed = 0; seed < seeds; seed++) {
+				Arrays.fill(mines, false);
+				sink += MineSweeper.drawMines(seed, source, Topology.SQUARE, size[0], size[1], size[2], -1, -1, mines);
+			}
+		});
+	}
+
+	/**
+	 * method that measures games built by the constructor, grid and counts
+	 * included.
+	 *
+	 * @param source source
+	 * @param level  level
+	 * @param seeds  games per round
+	 * @return games per second
+	 */
+	static double games(RandomSource source, MineSweeper.Level level, int seeds) {
+		return best(seeds, () -> {
+			for (int seed = 0; seed < seeds; seed++) {
+				sink += new MineSweeper(seed, level, false, source).rowCount();
+			}
+		});
+	}
+
+	/**
+	 * method that measures a SeedScanner over a range of seeds.
+	 *
+	 * @param source source
+	 * @param level  level
+	 * @param seeds  seeds per round
+	 * @return seeds per second
+	 */
+	static double scan(RandomSource source, MineSweeper.Level level, int seeds) {
+		SeedScanner scanner = new SeedScanner(level);
+		scanner.setRandomSource(source);
+		return best(seeds, () -> {
+			try {
+				sink += scanner.scan(0, seeds, ForkJoinPool.commonPool()).boards();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * method that runs work a warm-up round and ROUNDS more, and keeps the
+	 * fastest.
+	 *
+	 * @param count items done by one round
+	 * @param work  work
+	 * @return items per second of the fastest round
+	 */
+	private static double best(long count, Runnable work) {
+		work.run();
+		long fastest = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			work.run();
+			fastest = Math.min(fastest, System.nanoTime() - start);
+		}
+		return count * 1e9 / fastest;
+	}
+
+	/**
+	 * This method prints a table of the figures for every built-in source.
+	 *
+	 * @param args [level], default HARD
+	 */
+	public static void main(String[] args) {
+		MineSweeper.Level level = args.length > 0 ? MineSweeper.Level.valueOf(args[0]) : MineSweeper.Level.HARD;
+		int[] size = MineSweeper.levelSize(level);
+		Map<String, RandomSource> sources = new LinkedHashMap<>();
+		sources.put("LEGACY", RandomSource.LEGACY);
+		sources.put("SPLITTABLE", RandomSource.SPLITTABLE);
+		sources.put("L64X128_MIX", RandomSource.L64X128_MIX);
+		sources.put("XOROSHIRO", RandomSource.XOROSHIRO);
+		System.out.printf("%s %dx%d, %d mines, %d threads%n", level, size[0], size[1], size[2],
+				ForkJoinPool.commonPool().getParallelism());
+		System.out.printf("%-12s %14s %14s %14s %14s%n", "source", "draws/s", "layouts/s", "games/s", "scan seeds/s");
+		sources.forEach((name, source) -> System.out.printf("%-12s %14.0f %14.0f %14.0f %14.0f%n", name,
+				draws(source, 10_000_000), layouts(source, size, 200_000), games(source, level, 20_000),
+				scan(source, level, 1 << 17)));
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+}
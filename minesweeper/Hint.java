@@ -0,0 +1,91 @@
+/**
+ * A suggested cell to open, from MineSweeper.hint(): either a cell that can
+ * not have a mine given the open cells, or the hidden cell least likely to
+ * have one, with an estimate of that chance.
+ *
+ * @author basel barham
+ */
+public final class Hint {
+
+	/**
+	 * row of the cell.
+	 */
+	private final int row;
+
+	/**
+	 * column of the cell.
+	 */
+	private final int col;
+
+	/**
+	 * chance that the cell has a mine, 0 if it is safe.
+	 */
+	private final double mineProbability;
+
+	/**
+	 * whether the open cells prove the cell has no mine.
+	 */
+	private final boolean safe;
+
+	/**
+	 * constructor, a hint for one cell.
+	 *
+	 * @param row             row
+	 * @param col             col
+	 * @param mineProbability chance of a mine, 0 if safe
+	 * @param safe            whether the cell is proven safe
+	 */
+	Hint(int row, int col, double mineProbability, boolean safe) {
+		this.row = row;
+		this.col = col;
+		this.mineProbability = mineProbability;
+		this.safe = safe;
+	}
+
+	/**
+	 * method reports the row of the cell.
+	 *
+	 * @return row
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * method reports the column of the cell.
+	 *
+	 * @return col
+	 */
+	public int getCol() {
+		return col;
+	}
+
+	/**
+	 * method reports the chance that the cell has a mine. exact (0) for a safe
+	 * cell, otherwise an estimate from the numbers around it and the mines left.
+	 *
+	 * @return probability, 0 to 1
+	 */
+	public double getMineProbability() {
+		return mineProbability;
+	}
+
+	/**
+	 * method reports whether the cell is proven to have no mine.
+	 *
+	 * @return true or false
+	 */
+	public boolean isSafe() {
+		return safe;
+	}
+
+	/**
+	 * method that returns the hint as text.
+	 *
+	 * @return e.g. "(3,4) safe" or "(0,0) 0.206"
+	 */
+	@Override
+	public String toString() {
+		return "(" + row + "," + col + ") " + (safe ? "safe" : String.format("%.3f", mineProbability));
+	}
+}
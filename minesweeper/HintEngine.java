@@ -0,0 +1,454 @@
+/**
+ * Finds hints for MineSweeper.hint() from the open numbers of a Frontier.
+ * Only what the player can see is used: open cells and their counts, and the
+ * total number of mines. Flags are not trusted.
+ *
+ * A hint first looks for a proof, with a work list over the frontier:
+ * - a number whose mines are all known makes its other hidden neighbors safe;
+ * - a number with as many hidden neighbors as missing mines makes them mines;
+ * - for two nearby numbers a and b, the mines only b sees minus the mines only
+ * a sees equal b's missing mines minus a's; if that is all of b's own cells,
+ * they are mines and a's own cells are safe, and the same the other way round.
+ * A number is looked at again only when a mine is found next to it, so a proof
+ * costs O(frontier). Without one, every hidden cell next to a number gets the
+ * highest missing/hidden ratio of the numbers around it, the other hidden
+ * cells share the mines left over, and the lowest is returned.
+ *
+ * @author basel barham
+ */
+class HintEngine {
+
+	/**
+	 * cells of the game with a sentinel border.
+	 */
+	private final Cell[] cells;
+
+	/**
+	 * row length of cells.
+	 */
+	private final int stride;
+
+	/**
+	 * flat offsets of the 8 neighbors.
+	 */
+	private final int[] nbr;
+
+	/**
+	 * flat offsets of the 24 other cells in the 5x5 square around a cell.
+	 */
+	private final int[] near;
+
+	/**
+	 * stamp of the hint that found a cell to be a mine.
+	 */
+	private final int[] mine;
+
+	/**
+	 * stamp of the last mark (hidden neighbors of a, or cells already listed).
+	 */
+	private final int[] mark;
+
+	/**
+	 * whether a number is in the work list.
+	 */
+	private final boolean[] queued;
+
+	/**
+	 * work list of numbers to look at, used as a stack.
+	 */
+	private final int[] work;
+
+	/**
+	 * estimated mine chance of each listed frontier cell.
+	 */
+	private final double[] risk;
+
+	/**
+	 * hidden cells next to a number, without known mines.
+	 */
+	private final int[] edge;
+
+	/**
+	 * size of the work list.
+	 */
+	private int top;
+
+	/**
+	 * stamp of the current hint for mine.
+	 */
+	private int hintStamp;
+
+	/**
+	 * stamp of the current mark.
+	 */
+	private int stamp;
+
+	/**
+	 * number of mines found by the current hint.
+	 */
+	private int minesFound;
+
+	/**
+	 * where the last search for a cell away from the frontier stopped.
+	 */
+	private int cursor;
+
+	/**
+	 * frontier of the last hint; a new one means a new board, and the search
+	 * starts over so the same game always gets the same hints.
+	 */
+	private Frontier last;
+
+	/**
+	 * constructor, set up for a padded board.
+	 *
+	 * @param cells  cells with a sentinel border
+	 * @param stride row length of cells
+	 * @param nbr    flat offsets of the 8 neighbors
+	 */
+	HintEngine(Cell[] cells, int stride, int[] nbr) {
+		this.cells = cells;
+		this.stride = stride;
+		this.nbr = nbr;
+		int size = cells.length;
+		mine = new int[size];
+		mark = new int[size];
+		queued = new boolean[size];
+		work = new int[size];
+		risk = new double[size];
+		edge = new int[size];
+		near = new int[24];
+		int j = 0;
+		for (int dr = -2; dr <= 2; dr++) {
+			for (int dc = -2; dc <= 2; dc++) {
+				if (dr != 0 || dc != 0) {
+					near[j++] = dr * stride + dc;
+				}
+			}
+		}
+	}
+
+	/**
+	 * method reports whether the engine fits a padded board.
+	 *
+	 * @param cells  cells
+	 * @param stride stride
+	 * @return true or false
+	 */
+	boolean fits(Cell[] cells, int stride) {
+		return this.cells == cells && this.stride == stride;
+	}
+
+	/**
+	 * method that finds a hint. O(frontier) unless no cell is proven safe and a
+	 * cell away from the frontier is the best guess; finding one then scans
+	 * from where the last search stopped.
+	 *
+	 * @param frontier    open numbers next to hidden cells
+	 * @param hiddenCount number of hidden cells, flagged or not
+	 * @param mineCount   number of mines on the board
+	 * @return the hint, null if no cell is hidden
+	 */
+	Hint hint(Frontier frontier, int hiddenCount, int mineCount) {
+		if (frontier != last) {
+			last = frontier;
+			cursor = 0;
+		}
+		hintStamp++;
+		minesFound = 0;
+		top = 0;
+		for (int i = 0; i < frontier.numberCount(); i++) {
+			int a = frontier.numberAt(i);
+			queued[a] = true;
+			work[top++] = a;
+		}
+		int safe = -1;
+		while (top > 0 && safe < 0) {
+			int a = work[--top];
+			queued[a] = false;
+			safe = deduce(frontier, a);
+		}
+		while (top > 0) {
+			queued[work[--top]] = false;
+		}
+		if (safe < 0 && minesFound == mineCount) {
+			// every mine is known, so any other hidden cell is safe
+			safe = frontier.numberCount() > 0 ? unknownAround(frontier.numberAt(0)) : -1;
+			if (safe < 0) {
+				safe = away(frontier);
+			}
+		}
+		if (safe >= 0) {
+			return hintAt(safe, 0, true);
+		}
+		return guess(frontier, hiddenCount, mineCount);
+	}
+
+	/**
+	 * method that applies the rules to one number, adding the numbers next to
+	 * any mine it finds to the work list.
+	 *
+	 * @param frontier frontier
+	 * @param a        padded index of an open number
+	 * @return padded index of a safe cell, or -1
+	 */
+	private int deduce(Frontier frontier, int a) {
+		stamp++;
+		int unknownA = 0;
+		int leftA = cells[a].getCount();
+		for (int k = 0; k < 8; k++) {
+			int n = a + nbr[k];
+			if (cells[n].visible()) {
+				continue;
+			}
+			if (mine[n] == hintStamp) {
+				leftA--;
+			} else {
+				mark[n] = stamp;
+				unknownA++;
+			}
+		}
+		if (unknownA == 0) {
+			return -1;
+		}
+		if (leftA == 0) {
+			return unknownAround(a);
+		}
+		if (leftA == unknownA) {
+			for (int k = 0; k < 8; k++) {
+				int n = a + nbr[k];
+				if (mark[n] == stamp) {
+					setMine(frontier, n);
+				}
+			}
+			return -1;
+		}
+		for (int j = 0; j < near.length; j++) {
+			int b = a + near[j];
+			if (!frontier.containsNumber(b)) {
+				continue;
+			}
+			int shared = 0;
+			int onlyB = 0;
+			int leftB = cells[b].getCount();
+			for (int k = 0; k < 8; k++) {
+				int n = b + nbr[k];
+				if (cells[n].visible()) {
+					continue;
+				}
+				if (mine[n] == hintStamp) {
+					leftB--;
+				} else if (mark[n] == stamp) {
+					shared++;
+				} else {
+					onlyB++;
+				}
+			}
+			int onlyA = unknownA - shared;
+			if (onlyA == 0 && onlyB == 0) {
+				continue;
+			}
+			// mines(only b) - mines(only a) = leftB - leftA: if that is all of only
+			// b, only a has none; if it is minus all of only a, only b has none
+			boolean minesInB = leftB - leftA == onlyB;
+			if (!minesInB && leftA - leftB != onlyA) {
+				continue;
+			}
+			for (int k = 0; k < 8; k++) {
+				int n = a + nbr[k];
+				if (mark[n] == stamp && !isNear(n, b)) {
+					if (minesInB) {
+						return n;
+					}
+					setMine(frontier, n);
+				}
+			}
+			if (!minesInB) {
+				// a is back on the work list, with its new mines
+				for (int k = 0; k < 8; k++) {
+					int n = b + nbr[k];
+					if (!cells[n].visible() && mine[n] != hintStamp && mark[n] != stamp) {
+						return n;
+					}
+				}
+				return -1;
+			}
+			// a's own cells are unchanged, so its other pairs still hold
+			for (int k = 0; k < 8; k++) {
+				int n = b + nbr[k];
+				if (!cells[n].visible() && mine[n] != hintStamp && mark[n] != stamp) {
+					setMine(frontier, n);
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * method that records a mine and puts the numbers next to it back on the
+	 * work list.
+	 *
+	 * @param frontier frontier
+	 * @param n        padded index of a hidden cell
+	 */
+	private void setMine(Frontier frontier, int n) {
+		mine[n] = hintStamp;
+		minesFound++;
+		for (int k = 0; k < 8; k++) {
+			int b = n + nbr[k];
+			if (!queued[b] && frontier.containsNumber(b)) {
+				queued[b] = true;
+				work[top++] = b;
+			}
+		}
+	}
+
+	/**
+	 * method reports whether two padded indexes are neighbors.
+	 *
+	 * @param p p
+	 * @param q q
+	 * @return true or false
+	 */
+	private boolean isNear(int p, int q) {
+		return Math.abs(p / stride - q / stride) <= 1 && Math.abs(p % stride - q % stride) <= 1;
+	}
+
+	/**
+	 * method that picks a hidden neighbor of a that is not a known mine,
+	 * preferring one without a flag.
+	 *
+	 * @param a padded index
+	 * @return padded index, or -1
+	 */
+	private int unknownAround(int a) {
+		int found = -1;
+		for (int k = 0; k < 8; k++) {
+			int n = a + nbr[k];
+			if (!cells[n].visible() && mine[n] != hintStamp) {
+				if (!cells[n].isFlagged()) {
+					return n;
+				}
+				found = n;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * method that estimates the mine chance of the hidden cells and returns the
+	 * lowest.
+	 *
+	 * @param frontier    frontier
+	 * @param hiddenCount number of hidden cells
+	 * @param mineCount   number of mines
+	 * @return the hint, null if no cell is hidden
+	 */
+	private Hint guess(Frontier frontier, int hiddenCount, int mineCount) {
+		stamp++;
+		int edgeCount = 0;
+		for (int i = 0; i < frontier.numberCount(); i++) {
+			int a = frontier.numberAt(i);
+			int unknown = 0;
+			int left = cells[a].getCount();
+			for (int k = 0; k < 8; k++) {
+				int n = a + nbr[k];
+				if (!cells[n].visible()) {
+					if (mine[n] == hintStamp) {
+						left--;
+					} else {
+						unknown++;
+					}
+				}
+			}
+			double ratio = (double) left / unknown;
+			for (int k = 0; k < 8; k++) {
+				int n = a + nbr[k];
+				if (cells[n].visible() || mine[n] == hintStamp) {
+					continue;
+				}
+				if (mark[n] != stamp) {
+					mark[n] = stamp;
+					risk[n] = ratio;
+					edge[edgeCount++] = n;
+				} else if (ratio > risk[n]) {
+					risk[n] = ratio;
+				}
+			}
+		}
+
+		int best = -1;
+		double expected = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			int n = edge[i];
+			expected += risk[n];
+			if (best < 0 || better(n, risk[n], best, risk[best])) {
+				best = n;
+			}
+		}
+		int awayCount = hiddenCount - edgeCount - minesFound;
+		if (awayCount > 0) {
+			double awayRisk = Math.min(1, Math.max(0, (mineCount - minesFound - expected) / awayCount));
+			if (best < 0 || awayRisk < risk[best] || cells[best].isFlagged()) {
+				int away = away(frontier);
+				if (away >= 0 && (best < 0 || better(away, awayRisk, best, risk[best]))) {
+					return hintAt(away, awayRisk, false);
+				}
+			}
+		}
+		return best < 0 ? null : hintAt(best, risk[best], false);
+	}
+
+	/**
+	 * method reports whether a cell is a better guess than another: lower
+	 * chance, then no flag.
+	 *
+	 * @param n     padded index
+	 * @param riskN chance of n
+	 * @param m     padded index
+	 * @param riskM chance of m
+	 * @return true or false
+	 */
+	private boolean better(int n, double riskN, int m, double riskM) {
+		boolean flagN = cells[n].isFlagged();
+		boolean flagM = cells[m].isFlagged();
+		return flagN != flagM ? flagM : riskN < riskM;
+	}
+
+	/**
+	 * method that finds a hidden cell with no open number around it, preferring
+	 * one without a flag. starts where the last search stopped.
+	 *
+	 * @param frontier frontier
+	 * @return padded index, or -1
+	 */
+	private int away(Frontier frontier) {
+		int found = -1;
+		for (int i = 0; i < cells.length; i++) {
+			int p = cursor;
+			cursor = cursor + 1 == cells.length ? 0 : cursor + 1;
+			if (cells[p].visible() || frontier.isEdge(p)) {
+				continue;
+			}
+			if (!cells[p].isFlagged()) {
+				return p;
+			}
+			if (found < 0) {
+				found = p;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * method that makes the hint for a padded index.
+	 *
+	 * @param p           padded index
+	 * @param probability chance of a mine
+	 * @param safe        whether it is proven safe
+	 * @return the hint
+	 */
+	private Hint hintAt(int p, double probability, boolean safe) {
+		return new Hint(p / stride - 1, p % stride - 1, probability, safe);
+	}
+}
@@ -0,0 +1,258 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.IntStream;
+
+/**
+ * A lock-free histogram of non-negative long values (latencies in nanoseconds,
+ * cell counts...). Buckets are log-linear like HdrHistogram: values below 16 are
+ * exact and every power of two above is split into 16 buckets, so a reported
+ * percentile is within about 6% of the real value. Memory is fixed (960
+ * counters) no matter how many values are recorded.
+ *
+ * Recording a value is one increment of its bucket. The count is not kept
+ * apart, since it is the sum of the buckets, and the max is a
+ * LongAccumulator, which only writes when a value is a new max.
+ *
+ * @author basel barham
+ */
+public class LatencyHistogram {
+
+	/**
+	 * log2 of the number of buckets per power of two.
+	 */
+	private static final int SUB_BITS = 4;
+
+	/**
+	 * number of buckets per power of two.
+	 */
+	private static final int SUB = 1 << SUB_BITS;
+
+	/**
+	 * number of buckets, enough for any positive long.
+	 */
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+	/**
+	 * count of values per bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * largest value recorded.
+	 */
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	/**
+	 * method that records one value. negative values count as 0.
+	 *
+	 * @param value value
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucket(value));
+		max.accumulate(value);
+	}
+
+	/**
+	 * method reports number of values recorded. O(buckets)
+	 *
+	 * @return count
+	 */
+	public long count() {
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			n += counts.get(i);
+		}
+		return n;
+	}
+
+	/**
+	 * method reports the largest value recorded.
+	 *
+	 * @return max, 0 if empty
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * method that reports the value below which a fraction of recorded values
+	 * fall, rounded up to the top of its bucket.
+	 *
+	 * @param fraction fraction, e.g. 0.99
+	 * @return the percentile, 0 if empty
+	 */
+	public long percentile(double fraction) {
+		// one read of the buckets, so the rank and the walk agree while others
+		// record
+		long[] snapshot = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * method that adds every value recorded in another histogram.
+	 *
+	 * @param other other, not changed
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long n = other.counts.get(i);
+			if (n != 0) {
+				counts.addAndGet(i, n);
+			}
+		}
+		max.accumulate(other.max.get());
+	}
+
+	/**
+	 * method that writes the histogram: the number of used buckets, each as
+	 * (index, count), then the max.
+	 *
+	 * @param out out
+	 * @throws IOException if writing fails
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		int used = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			used += counts.get(i) != 0 ? 1 : 0;
+		}
+		out.writeInt(used);
+		for (int i = 0; i < BUCKETS; i++) {
+			long n = counts.get(i);
+			if (n != 0) {
+				out.writeShort(i);
+				out.writeLong(n);
+			}
+		}
+		out.writeLong(max.get());
+	}
+
+	/**
+	 * method that replaces the histogram with one written by writeTo().
+	 *
+	 * @param in in
+	 * @throws IOException if reading fails
+	 */
+	void readFrom(DataInput in) throws IOException {
+		reset();
+		int used = in.readInt();
+		for (int k = 0; k < used; k++) {
+			int i = in.readUnsignedShort();
+			if (i >= BUCKETS) {
+				throw new IOException("Bad histogram bucket: " + i + "!");
+			}
+			counts.addAndGet(i, in.readLong());
+		}
+		max.accumulate(in.readLong());
+	}
+
+	/**
+	 * method that clears all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		max.reset();
+	}
+
+	/**
+	 * method that reports the bucket of a value.
+	 *
+	 * @param value value, not negative
+	 * @return bucket index
+	 */
+	private static int bucket(long value) {
+		if (value < SUB) {
+			return (int) value;
+		}
+		int msb = 63 - Long.numberOfLeadingZeros(value);
+		int mantissa = (int) (value >>> (msb - SUB_BITS)) & (SUB - 1);
+		return (msb - SUB_BITS + 1) * SUB + mantissa;
+	}
+
+	/**
+	 * method that reports the largest value of a bucket.
+	 *
+	 * @param bucket bucket index
+	 * @return largest value
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB) {
+			return bucket;
+		}
+		int shift = bucket / SUB - 1;
+		long low = (long) (SUB + bucket % SUB) << shift;
+		return low + (1L << shift) - 1;
+	}
+
+	/**
+	 * This method is for testing code: percentiles of values recorded from many
+	 * threads are the exact ones rounded up to the top of their bucket, and
+	 * adding two histograms gives the percentiles of all their values.
+	 *
+	 * @param args args
+	 */
+	public static void main(String[] args) {
+		long[] values = new long[100_000];
+		SplittableRandom random = new SplittableRandom(3);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i < 1000 ? i % SUB : random.nextLong(1L << random.nextInt(4, 40));
+		}
+		LatencyHistogram histogram = new LatencyHistogram();
+		IntStream.range(0, values.length).parallel().forEach(i -> histogram.record(values[i]));
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		boolean same = histogram.count() == values.length && histogram.max() == sorted[sorted.length - 1]
+				&& new LatencyHistogram().percentile(0.5) == 0 && histogram.percentile(1.0) == histogram.max();
+		for (double fraction : new double[] { 0.001, 0.005, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999, 0.9999 }) {
+			long exact = sorted[(int) Math.ceil(fraction * sorted.length) - 1];
+			long reported = histogram.percentile(fraction);
+			// within the bucket of the exact value, which is exact below SUB
+			same &= reported >= exact && reported <= exact + exact / SUB && (exact >= SUB || reported == exact);
+		}
+
+		// two halves added together give the same percentiles
+		LatencyHistogram low = new LatencyHistogram();
+		LatencyHistogram high = new LatencyHistogram();
+		for (int i = 0; i < values.length; i++) {
+			(i % 2 == 0 ? low : high).record(values[i]);
+		}
+		low.add(high);
+		boolean added = low.count() == histogram.count() && low.max() == histogram.max();
+		for (int k = 1; k <= 1000; k++) {
+			added &= low.percentile(k / 1000.0) == histogram.percentile(k / 1000.0);
+		}
+
+		histogram.reset();
+		if (same && histogram.count() == 0 && histogram.percentile(0.99) == 0) {
+			System.out.println("Yay 1");
+		}
+		if (added) {
+			System.out.println("Yay 2");
+		}
+	}
+}
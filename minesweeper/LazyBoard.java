@@ -0,0 +1,736 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * An effectively unbounded minesweeper board that is generated on demand. The
+ * plane is split into 32x32 chunks; the mines of a chunk are derived from a hash
+ * of (seed, chunk row, chunk col), with the same number of mines in every chunk
+ * so the target density holds everywhere. Neighbor counts of a chunk are only
+ * computed when a click or query first touches it.
+ *
+ * Materialized chunks (mines and counts) live in an LRU cache of bounded size
+ * and can always be rebuilt from the seed. The only state kept per chunk beyond
+ * the cache is which cells are open or flagged, 256 bytes per chunk the player
+ * has actually changed.
+ *
+ * Below a density of about 0.095 the zero regions no longer end: a zero cell
+ * has no mine among 9 cells, which happens more often than the 0.41 needed
+ * for them to join up across the whole plane. So one click opens at most
+ * floodBudget cells of its own region; the open zero cells whose neighbors are
+ * still hidden are kept, and expand() opens more of the regions when it is
+ * needed. The board ends at the int extremes: cells there have fewer
+ * neighbors, and counts and floods do not wrap to the opposite edge.
+ *
+ * @author basel barham
+ */
+public class LazyBoard {
+
+	/**
+	 * log2 of the chunk side.
+	 */
+	private static final int CHUNK_BITS = 5;
+
+	/**
+	 * number of rows/cols of a chunk.
+	 */
+	private static final int CHUNK = 1 << CHUNK_BITS;
+
+	/**
+	 * number of cells of a chunk.
+	 */
+	private static final int CHUNK_CELLS = CHUNK * CHUNK;
+
+	/**
+	 * number of longs in one bit plane of a chunk.
+	 */
+	private static final int PLANE_WORDS = CHUNK_CELLS / 64;
+
+	/**
+	 * smallest cache allowed, so a flood fill never thrashes its own chunks.
+	 */
+	private static final int MIN_CACHE = 16;
+
+	/**
+	 * default most cells opened by one click, see setFloodBudget().
+	 */
+	public static final long DEFAULT_FLOOD_BUDGET = 1 << 20;
+
+	/**
+	 * lowest chunk row or col.
+	 */
+	private static final int MIN_CHUNK = Integer.MIN_VALUE >> CHUNK_BITS;
+
+	/**
+	 * highest chunk row or col.
+	 */
+	private static final int MAX_CHUNK = Integer.MAX_VALUE >> CHUNK_BITS;
+
+	/**
+	 * A materialized chunk: its mines and the neighbor count of every cell.
+	 */
+	private static final class Chunk {
+
+		/**
+		 * one bit per cell, set if the cell has a mine.
+		 */
+		final long[] mines;
+
+		/**
+		 * neighbor count of every cell, -1 for mines.
+		 */
+		final byte[] counts = new byte[CHUNK_CELLS];
+
+		/**
+		 * constructor.
+		 *
+		 * @param mines mines
+		 */
+		Chunk(long[] mines) {
+			this.mines = mines;
+		}
+	}
+
+	/**
+	 * seed of the board.
+	 */
+	private final long seed;
+
+	/**
+	 * number of mines in each chunk.
+	 */
+	private final int minesPerChunk;
+
+	/**
+	 * materialized chunks, least recently used first.
+	 */
+	private final LinkedHashMap<Long, Chunk> cache;
+
+	/**
+	 * open (first PLANE_WORDS longs) and flagged (last PLANE_WORDS longs) bits of
+	 * every chunk the player has changed.
+	 */
+	private final HashMap<Long, long[]> state = new HashMap<>();
+
+	/**
+	 * number of chunks materialized so far, including rebuilds after eviction.
+	 */
+	private long materialized;
+
+	/**
+	 * number of cells opened.
+	 */
+	private long clickedCount;
+
+	/**
+	 * number of cells flagged.
+	 */
+	private long flaggedCount;
+
+	/**
+	 * most cells opened by one click.
+	 */
+	private long floodBudget = DEFAULT_FLOOD_BUDGET;
+
+	/**
+	 * open zero-count cells whose neighbors are still to be opened, as row and
+	 * col pairs; what a flood left when it ran out of budget.
+	 */
+	private int[] pending = new int[64];
+
+	/**
+	 * number of ints in pending.
+	 */
+	private int pendingTop;
+
+	/**
+	 * game status.
+	 */
+	private MineSweeper.Status status = MineSweeper.Status.INIT;
+
+	/**
+	 * constructor.
+	 *
+	 * @param seed      seed
+	 * @param density   fraction of cells with a mine, strictly between 0 and 1
+	 * @param maxChunks max number of materialized chunks kept in memory
+	 */
+	public LazyBoard(long seed, double density, int maxChunks) {
+		if (!(density > 0 && density < 1)) {
+			throw new IllegalArgumentException("Density must be between 0 and 1!");
+		}
+		this.seed = seed;
+		this.minesPerChunk = Math.max(1, Math.min(CHUNK_CELLS - 1, (int) Math.round(density * CHUNK_CELLS)));
+		final int limit = Math.max(MIN_CACHE, maxChunks);
+		this.cache = new LinkedHashMap<Long, Chunk>(limit * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				return size() > limit;
+			}
+		};
+	}
+
+	/**
+	 * method reports whether a mine has exploded.
+	 *
+	 * @return true or false
+	 */
+	public boolean isExploded() {
+		return status == MineSweeper.Status.EXPLODED;
+	}
+
+	/**
+	 * report current game status.
+	 *
+	 * @return status
+	 */
+	public String getStatus() {
+		return MineSweeper.Status_STRINGS[status.ordinal()];
+	}
+
+	/**
+	 * method reports number of cells opened.
+	 *
+	 * @return clickedCount
+	 */
+	public long clickedCount() {
+		return clickedCount;
+	}
+
+	/**
+	 * method reports number of cells flagged.
+	 *
+	 * @return flaggedCount
+	 */
+	public long flaggedCount() {
+		return flaggedCount;
+	}
+
+	/**
+	 * method reports number of chunks currently materialized.
+	 *
+	 * @return cache size
+	 */
+	public int cachedChunks() {
+		return cache.size();
+	}
+
+	/**
+	 * method reports number of chunks materialized so far.
+	 *
+	 * @return materialized
+	 */
+	public long materializedChunks() {
+		return materialized;
+	}
+
+	/**
+	 * method reports number of chunks with open or flagged cells.
+	 *
+	 * @return number of chunks
+	 */
+	public int touchedChunks() {
+		return state.size();
+	}
+
+	/**
+	 * set the most cells one click opens. a bigger zero region is left partly
+	 * open, see expand().
+	 *
+	 * @param floodBudget floodBudget, at least 1
+	 */
+	public void setFloodBudget(long floodBudget) {
+		if (floodBudget < 1) {
+			throw new IllegalArgumentException("Flood budget must be positive!");
+		}
+		this.floodBudget = floodBudget;
+	}
+
+	/**
+	 * method reports whether a zero region was left partly open.
+	 *
+	 * @return true if expand() has cells to open
+	 */
+	public boolean hasPendingFlood() {
+		return pendingTop > 0;
+	}
+
+	/**
+	 * method to report if cell has mine. does not materialize the chunk.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean hasMine(int row, int col) {
+		long key = key(row >> CHUNK_BITS, col >> CHUNK_BITS);
+		Chunk chunk = cache.get(key);
+		long[] mines = chunk != null ? chunk.mines : genMines(row >> CHUNK_BITS, col >> CHUNK_BITS);
+		return bit(mines, local(row, col));
+	}
+
+	/**
+	 * method that returns the count of cell at (row,col), materializing its chunk
+	 * if needed.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return -1 for a mine, number of mines around otherwise
+	 */
+	public int getCount(int row, int col) {
+		return chunk(row >> CHUNK_BITS, col >> CHUNK_BITS).counts[local(row, col)];
+	}
+
+	/**
+	 * method to report if cell isn't hidden.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean isVisible(int row, int col) {
+		long[] bits = state.get(key(row >> CHUNK_BITS, col >> CHUNK_BITS));
+		return bits != null && bit(bits, local(row, col));
+	}
+
+	/**
+	 * method to report if cell flagged.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean isFlagged(int row, int col) {
+		long[] bits = state.get(key(row >> CHUNK_BITS, col >> CHUNK_BITS));
+		return bits != null && bit(bits, CHUNK_CELLS + local(row, col));
+	}
+
+	/**
+	 * method to flag a hidden cell.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return false if the cell is open, true otherwise
+	 */
+	public boolean flagAt(int row, int col) {
+		if (isVisible(row, col)) {
+			return false;
+		}
+		long[] bits = touch(row >> CHUNK_BITS, col >> CHUNK_BITS);
+		int flag = CHUNK_CELLS + local(row, col);
+		if (!bit(bits, flag)) {
+			set(bits, flag);
+			flaggedCount++;
+		}
+		return true;
+	}
+
+	/**
+	 * method to un-flag a flagged cell.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true if the cell went from flagged to unflagged
+	 */
+	public boolean unFlagAt(int row, int col) {
+		long[] bits = state.get(key(row >> CHUNK_BITS, col >> CHUNK_BITS));
+		int flag = CHUNK_CELLS + local(row, col);
+		if (bits == null || !bit(bits, flag)) {
+			return false;
+		}
+		bits[flag >>> 6] &= ~(1L << flag);
+		flaggedCount--;
+		return true;
+	}
+
+	/**
+	 * method to open cell located at (row,col). a zero-count cell also opens its
+	 * zero region and that region's border, across chunk edges, up to
+	 * floodBudget cells in all. regions earlier clicks left partly open are not
+	 * opened further, see expand().
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return -2 if flagged or already open, -1 for a mine, the count otherwise
+	 */
+	public int clickAt(int row, int col) {
+		if (isFlagged(row, col) || isVisible(row, col)) {
+			return -2;
+		}
+		status = MineSweeper.Status.INGAME;
+		int count = getCount(row, col);
+		if (count == -1) {
+			// show the mine, it does not count as a cleared cell
+			set(touch(row >> CHUNK_BITS, col >> CHUNK_BITS), local(row, col));
+			status = MineSweeper.Status.EXPLODED;
+			return -1;
+		}
+		open(row, col);
+		if (count == 0) {
+			flood(row, col);
+		}
+		return count;
+	}
+
+	/**
+	 * method that opens the zero region around (row,col), which is open already,
+	 * up to floodBudget cells.
+	 *
+	 * @param row row
+	 * @param col col
+	 */
+	private void flood(int row, int col) {
+		// the cells pending below this click are other clicks' regions
+		int floor = pendingTop;
+		push(row, col);
+		expand(floodBudget - 1, floor);
+	}
+
+	/**
+	 * method that opens more of the zero regions clicks left partly open, with an
+	 * explicit stack instead of recursion. the latest click's region goes
+	 * first. O(budget)
+	 *
+	 * @param budget most cells to open
+	 * @return number of cells opened, less than budget once nothing is pending
+	 */
+	public long expand(long budget) {
+		return expand(budget, 0);
+	}
+
+	/**
+	 * method that opens cells from pending until it is down to floor ints.
+	 *
+	 * @param budget most cells to open
+	 * @param floor  pending entries to leave alone
+	 * @return number of cells opened
+	 */
+	private long expand(long budget, int floor) {
+		long opened = 0;
+		while (pendingTop > floor) {
+			int c = pending[--pendingTop];
+			int r = pending[--pendingTop];
+			// the board ends at the int extremes
+			int dr1 = r == Integer.MAX_VALUE ? 0 : 1;
+			int dc0 = c == Integer.MIN_VALUE ? 0 : -1;
+			int dc1 = c == Integer.MAX_VALUE ? 0 : 1;
+			for (int dr = r == Integer.MIN_VALUE ? 0 : -1; dr <= dr1; dr++) {
+				for (int dc = dc0; dc <= dc1; dc++) {
+					int nr = r + dr;
+					int nc = c + dc;
+					if (isVisible(nr, nc) || isFlagged(nr, nc)) {
+						continue;
+					}
+					if (opened == budget) {
+						// the rest of this cell's neighbors are for the next expand()
+						push(r, c);
+						return opened;
+					}
+					int count = getCount(nr, nc);
+					open(nr, nc);
+					opened++;
+					if (count == 0) {
+						push(nr, nc);
+					}
+				}
+			}
+		}
+		return opened;
+	}
+
+	/**
+	 * method that adds an open zero-count cell to pending.
+	 *
+	 * @param row row
+	 * @param col col
+	 */
+	private void push(int row, int col) {
+		if (pendingTop + 2 > pending.length) {
+			pending = Arrays.copyOf(pending, pending.length * 2);
+		}
+		pending[pendingTop++] = row;
+		pending[pendingTop++] = col;
+	}
+
+	/**
+	 * method that marks a hidden cell open.
+	 *
+	 * @param row row
+	 * @param col col
+	 */
+	private void open(int row, int col) {
+		set(touch(row >> CHUNK_BITS, col >> CHUNK_BITS), local(row, col));
+		clickedCount++;
+	}
+
+	/**
+	 * method that returns the state bits of a chunk, creating them if needed.
+	 *
+	 * @param cr chunk row
+	 * @param cc chunk col
+	 * @return state bits
+	 */
+	private long[] touch(int cr, int cc) {
+		return state.computeIfAbsent(key(cr, cc), k -> new long[2 * PLANE_WORDS]);
+	}
+
+	/**
+	 * method that returns a materialized chunk, building it if it is not cached.
+	 *
+	 * @param cr chunk row
+	 * @param cc chunk col
+	 * @return the chunk
+	 */
+	private Chunk chunk(int cr, int cc) {
+		Long key = key(cr, cc);
+		Chunk chunk = cache.get(key);
+		if (chunk != null) {
+			return chunk;
+		}
+
+		// mines of the chunk and its 8 neighbors on a padded (CHUNK+2)^2 grid
+		int side = CHUNK + 2;
+		byte[] padded = new byte[side * side];
+		long[] own = null;
+		for (int dr = -1; dr <= 1; dr++) {
+			for (int dc = -1; dc <= 1; dc++) {
+				if (cr + dr < MIN_CHUNK || cr + dr > MAX_CHUNK || cc + dc < MIN_CHUNK || cc + dc > MAX_CHUNK) {
+					// past the int extremes, no cells and no mines
+					continue;
+				}
+				Chunk cached = cache.get(key(cr + dr, cc + dc));
+				long[] mines = cached != null ? cached.mines : genMines(cr + dr, cc + dc);
+				if (dr == 0 && dc == 0) {
+					own = mines;
+				}
+				int r0 = dr < 0 ? CHUNK - 1 : 0;
+				int r1 = dr > 0 ? 0 : CHUNK - 1;
+				int c0 = dc < 0 ? CHUNK - 1 : 0;
+				int c1 = dc > 0 ? 0 : CHUNK - 1;
+				for (int r = r0; r <= r1; r++) {
+					for (int c = c0; c <= c1; c++) {
+						if (bit(mines, (r << CHUNK_BITS) | c)) {
+							padded[(r + 1 + dr * CHUNK) * side + (c + 1 + dc * CHUNK)] = 1;
+						}
+					}
+				}
+			}
+		}
+
+		chunk = new Chunk(own);
+		for (int r = 0; r < CHUNK; r++) {
+			for (int c = 0; c < CHUNK; c++) {
+				int p = (r + 1) * side + (c + 1);
+				if (padded[p] != 0) {
+					chunk.counts[(r << CHUNK_BITS) | c] = -1;
+					continue;
+				}
+				chunk.counts[(r << CHUNK_BITS) | c] = (byte) (padded[p - side - 1] + padded[p - side]
+						+ padded[p - side + 1] + padded[p - 1] + padded[p + 1] + padded[p + side - 1]
+						+ padded[p + side] + padded[p + side + 1]);
+			}
+		}
+		cache.put(key, chunk);
+		materialized++;
+		return chunk;
+	}
+
+	/**
+	 * method that derives the mines of a chunk from the seed and its position.
+	 * every chunk gets exactly minesPerChunk mines.
+	 *
+	 * @param cr chunk row
+	 * @param cc chunk col
+	 * @return one bit per cell
+	 */
+	private long[] genMines(int cr, int cc) {
+		long h = seed ^ (cr * 0x9E3779B97F4A7C15L) ^ (cc * 0xC2B2AE3D27D4EB4FL);
+		SplittableRandom random = new SplittableRandom(h);
+		long[] mines = new long[PLANE_WORDS];
+		int placed = 0;
+		while (placed < minesPerChunk) {
+			int i = random.nextInt(CHUNK_CELLS);
+			if (!bit(mines, i)) {
+				set(mines, i);
+				placed++;
+			}
+		}
+		return mines;
+	}
+
+	/**
+	 * method that packs chunk coordinates into a map key.
+	 *
+	 * @param cr chunk row
+	 * @param cc chunk col
+	 * @return key
+	 */
+	private static long key(int cr, int cc) {
+		return ((long) cr << 32) | (cc & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * method that reports the index of a cell inside its chunk.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return index, 0 to CHUNK_CELLS - 1
+	 */
+	private static int local(int row, int col) {
+		return ((row & (CHUNK - 1)) << CHUNK_BITS) | (col & (CHUNK - 1));
+	}
+
+	/**
+	 * method that tests one bit.
+	 *
+	 * @param bits bits
+	 * @param i    i
+	 * @return true if set
+	 */
+	private static boolean bit(long[] bits, int i) {
+		return (bits[i >>> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 * method that sets one bit.
+	 *
+	 * @param bits bits
+	 * @param i    i
+	 */
+	private static void set(long[] bits, int i) {
+		bits[i >>> 6] |= 1L << i;
+	}
+
+	/**
+	 * This method is for testing code: below about 0.095 a zero region never
+	 * ends, so a click stops at its flood budget and expand() opens more of the
+	 * region. at a normal density the region ends, and opened in steps it is
+	 * the region a separate count finds, zero cells and their borders. a click
+	 * does not spend its budget on regions older clicks left open, and floods
+	 * and counts stop at the int extremes.
+	 *
+	 * @param args args
+	 */
+	public static void main(String[] args) {
+		LazyBoard sparse = new LazyBoard(21, 0.02, 64);
+		sparse.setFloodBudget(10_000);
+		int zeroCol = 0;
+		while (sparse.getCount(0, zeroCol) != 0) {
+			zeroCol++;
+		}
+		if (sparse.clickAt(0, zeroCol) == 0 && sparse.clickedCount() == 10_000 && sparse.hasPendingFlood()
+				&& sparse.expand(5_000) == 5_000 && sparse.clickedCount() == 15_000) {
+			System.out.println("Yay 1");
+		}
+
+		LazyBoard steps = new LazyBoard(21, 0.15, 64);
+		LazyBoard whole = new LazyBoard(21, 0.15, 64);
+		steps.setFloodBudget(50);
+		zeroCol = 0;
+		while (whole.getCount(0, zeroCol) != 0 || whole.getCount(1, zeroCol) != 0) {
+			zeroCol++;
+		}
+		steps.clickAt(0, zeroCol);
+		while (steps.expand(50) == 50) {
+		}
+		// a window around the click, big enough to hold the region
+		int side = 512;
+		boolean[] region = new boolean[side * side];
+		int[] todo = new int[side * side];
+		int todoTop = 0;
+		todo[todoTop++] = (side / 2) * side + side / 2;
+		region[todo[0]] = true;
+		int regionSize = 0;
+		boolean same = true;
+		while (todoTop > 0 && same) {
+			int p = todo[--todoTop];
+			regionSize++;
+			int row = p / side - side / 2;
+			int col = p % side - side / 2 + zeroCol;
+			same &= steps.isVisible(row, col) && p / side > 0 && p / side < side - 1 && p % side > 0
+					&& p % side < side - 1;
+			if (same && whole.getCount(row, col) == 0) {
+				for (int dr = -1; dr <= 1; dr++) {
+					for (int dc = -1; dc <= 1; dc++) {
+						int n = p + dr * side + dc;
+						if (!region[n]) {
+							region[n] = true;
+							todo[todoTop++] = n;
+						}
+					}
+				}
+			}
+		}
+		whole.clickAt(0, zeroCol);
+		if (same && regionSize == whole.clickedCount() && regionSize == steps.clickedCount()
+				&& !steps.hasPendingFlood() && regionSize > 1) {
+			System.out.println("Yay 2");
+		}
+
+		// a big region left pending, then a small one far away: the second click
+		// opens its own region only
+		LazyBoard scoped = new LazyBoard(21, 0.15, 64);
+		scoped.setFloodBudget(50);
+		int bigCol = regionSize > 50 ? zeroCol : -1;
+		int smallCol = 0;
+		long smallSize = 0;
+		while (smallSize < 2 || smallSize >= 50) {
+			smallCol++;
+			if (whole.getCount(1_000_000, smallCol) == 0) {
+				LazyBoard count = new LazyBoard(21, 0.15, 64);
+				count.clickAt(1_000_000, smallCol);
+				smallSize = count.clickedCount();
+			}
+		}
+		scoped.clickAt(0, bigCol);
+		boolean scopedSame = scoped.clickedCount() == 50 && scoped.hasPendingFlood();
+		scoped.clickAt(1_000_000, smallCol);
+		scopedSame &= scoped.clickedCount() == 50 + smallSize && scoped.hasPendingFlood();
+		while (scoped.expand(50) == 50) {
+		}
+		if (bigCol >= 0 && scopedSame && scoped.clickedCount() == regionSize + smallSize) {
+			System.out.println("Yay 3");
+		}
+
+		// at the corner of the int plane counts only see cells on the board, and
+		// a flood that never ends stays near the corner
+		LazyBoard corner = new LazyBoard(4, 0.02, 64);
+		corner.setFloodBudget(10_000);
+		same = true;
+		for (int i = 0; i < 3; i++) {
+			int row = Integer.MAX_VALUE - i;
+			int col = Integer.MIN_VALUE + i;
+			int count = 0;
+			for (int dr = -1; dr <= 1; dr++) {
+				for (int dc = -1; dc <= 1; dc++) {
+					long r = (long) row + dr;
+					long c = (long) col + dc;
+					if ((dr != 0 || dc != 0) && r == (int) r && c == (int) c) {
+						count += corner.hasMine((int) r, (int) c) ? 1 : 0;
+					}
+				}
+			}
+			same &= corner.getCount(row, col) == (corner.hasMine(row, col) ? -1 : count);
+		}
+		int start = 0;
+		while (corner.getCount(Integer.MAX_VALUE - start, Integer.MAX_VALUE - start) != 0) {
+			start++;
+		}
+		corner.clickAt(Integer.MAX_VALUE - start, Integer.MAX_VALUE - start);
+		// the other three corners, where a wrapped flood would land
+		for (int r = 0; r < 200; r++) {
+			for (int c = 0; c < 200; c++) {
+				same &= !corner.isVisible(Integer.MIN_VALUE + r, Integer.MIN_VALUE + c)
+						&& !corner.isVisible(Integer.MIN_VALUE + r, Integer.MAX_VALUE - c)
+						&& !corner.isVisible(Integer.MAX_VALUE - r, Integer.MIN_VALUE + c);
+			}
+		}
+		if (same && corner.clickedCount() == 10_000) {
+			System.out.println("Yay 4");
+		}
+	}
+}
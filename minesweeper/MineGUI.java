@@ -51,6 +51,11 @@ public class MineGUI extends Application{
 	 */  
 	private MineSweeper game;
 	
+	/**
+	 * Button of the cell last suggested by a hint, null if none is shown.
+	 */  
+	private ToggleButton hintButton;
+	
 	
 	/**
 	 * The level of current minesweeper game.
@@ -128,6 +133,7 @@ public class MineGUI extends Application{
 				final int colV = col;
 				button.setOnMousePressed(
 					mouseEvent -> {
+						clearHint();
 						//left click: click/open
 						if (mouseEvent.isPrimaryButtonDown()){
 							if (game.isFlagged(rowV, colV)){
@@ -292,7 +298,12 @@ public class MineGUI extends Application{
 		
 		newGame.getItems().addAll(repeat, separator, tiny, easy, middle, hard, custom); 
 		
-		menuBar.getMenus().addAll(newGame);
+		Menu help = new Menu("Help");
+		MenuItem hint = new MenuItem("Hint");
+		hint.setOnAction(e -> showHint());
+		help.getItems().addAll(hint);
+		
+		menuBar.getMenus().addAll(newGame, help);
 			
 	}
 	
@@ -365,6 +376,7 @@ public class MineGUI extends Application{
 	 * @param col col index of cell clicked
 	 */   
 	private void updateButtons(int row, int col){
+		long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
 		
 		for (int i=0; i<game.rowCount(); i++){
 			for (int j=0; j<game.colCount();j++){
@@ -382,8 +394,38 @@ public class MineGUI extends Application{
 			}
 		}
 		
+		if (GameMetrics.ENABLED)
+			GameMetrics.recordGuiUpdate(System.nanoTime() - start);
+	}
+	
+	
+	/**
+	 *  The method to highlight the cell suggested by the game: green if it is
+	 *  safe, yellow if it is only the best guess.
+	 */
+	private void showHint(){
+		clearHint();
+		Hint hint = game.hint();
+		if (hint == null)
+			return;
+		int pos = hint.getCol() + hint.getRow() * game.colCount();
+		hintButton = (ToggleButton) mineGrid.getChildren().get(pos);
+		if (hint.isSafe())
+			hintButton.setStyle("-fx-background-color: palegreen");
+		else
+			hintButton.setStyle("-fx-background-color: khaki");
+		statusLabel.setText("HINT: " + hint);
 	}
 	
+	/**
+	 *  The method to remove the highlight of the last hint.
+	 */
+	private void clearHint(){
+		if (hintButton != null){
+			hintButton.setStyle("");
+			hintButton = null;
+		}
+	}
 	
 	/**
 	 *  The method to update game status and mine count.
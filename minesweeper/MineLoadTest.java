@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test for MineServer. Opens many sessions from one thread over a
+ * Selector; every session plays EASY games by clicking random cells, sending
+ * the next command as soon as the reply to the previous one arrives, and
+ * starts a new game when one ends. Prints replies per second, overall and per
+ * server loop. protocolChecks() plays a game over the protocol first, and
+ * abuseChecks() checks how the server handles abuse.
+ *
+ * @author basel barham
+ */
+public class MineLoadTest {
+
+	/**
+	 * One client connection.
+	 */
+	private static final class Client {
+
+		/**
+		 * bytes read, in write mode.
+		 */
+		private final ByteBuffer in = ByteBuffer.allocate(1 << 16);
+
+		/**
+		 * command being sent, in read mode.
+		 */
+		private ByteBuffer out = ByteBuffer.allocate(0);
+	}
+
+	/**
+	 * random cells to click.
+	 */
+	private final Random random = new Random(310);
+
+	/**
+	 * number of replies read.
+	 */
+	private long replies;
+
+	/**
+	 * method that runs sessions against a server for a while.
+	 *
+	 * @param address  server address
+	 * @param sessions number of sessions
+	 * @param seconds  how long to run
+	 * @return replies read
+	 * @throws IOException if a connection fails
+	 */
+	public long run(InetSocketAddress address, int sessions, double seconds) throws IOException {
+		try (Selector selector = Selector.open()) {
+			for (int i = 0; i < sessions; i++) {
+				SocketChannel channel = SocketChannel.open(address);
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				Client client = new Client();
+				channel.register(selector, SelectionKey.OP_READ, client);
+				send(channel, client, "NEW EASY");
+			}
+			long end = System.nanoTime() + (long) (seconds * 1e9);
+			while (System.nanoTime() < end) {
+				selector.select(100);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					SocketChannel channel = (SocketChannel) key.channel();
+					Client client = (Client) key.attachment();
+					if (key.isWritable()) {
+						channel.write(client.out);
+					}
+					if (key.isReadable() && channel.read(client.in) < 0) {
+						throw new IOException("Server closed a session!");
+					}
+					String next = reply(client);
+					if (next != null) {
+						send(channel, client, next);
+					}
+					key.interestOps(client.out.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+							: SelectionKey.OP_READ);
+				}
+			}
+			for (SelectionKey key : selector.keys()) {
+				key.channel().close();
+			}
+		}
+		return replies;
+	}
+
+	/**
+	 * method that takes a complete reply from a client's input, if there is
+	 * one, and picks the next command.
+	 *
+	 * @param client client
+	 * @return next command, null if no full reply was read yet
+	 */
+	private String reply(Client client) {
+		ByteBuffer in = client.in;
+		int newline = -1;
+		for (int i = 0; i < in.position(); i++) {
+			if (in.get(i) == '\n') {
+				newline = i;
+				break;
+			}
+		}
+		if (newline < 0) {
+			return null;
+		}
+		byte[] line = new byte[newline];
+		in.get(0, line);
+		in.flip();
+		in.position(newline + 1);
+		in.compact();
+		replies++;
+
+		String text = new String(line, StandardCharsets.US_ASCII);
+		if (text.startsWith("E") || text.startsWith("D EXPLODED") || text.startsWith("D SOLVED")) {
+			return "NEW EASY";
+		}
+		return "C " + random.nextInt(9) + " " + random.nextInt(9);
+	}
+
+	/**
+	 * method that sends a command, leaving what does not fit for later.
+	 *
+	 * @param channel channel
+	 * @param client  client
+	 * @param command command
+	 * @throws IOException if the write fails
+	 */
+	private static void send(SocketChannel channel, Client client, String command) throws IOException {
+		client.out = ByteBuffer.wrap((command + "\n").getBytes(StandardCharsets.US_ASCII));
+		channel.write(client.out);
+	}
+
+	/**
+	 * method that plays a seeded game over the protocol, on a server with one
+	 * loop, and checks every reply against the same moves on a local game:
+	 * clicks, flags, unflags, undo, redo, a board dump, errors and Q.
+	 *
+	 * @return true if every check passes
+	 * @throws IOException if the server or a connection fails
+	 */
+	private static boolean protocolChecks() throws IOException {
+		try (MineServer server = new MineServer(new InetSocketAddress("127.0.0.1", 0), 1)) {
+			server.start();
+			return play(new InetSocketAddress("127.0.0.1", server.port()));
+		}
+	}
+
+	/**
+	 * method that plays the game of protocolChecks().
+	 *
+	 * @param address address of the server
+	 * @return true if every reply matches
+	 * @throws IOException if the connection fails
+	 */
+	private static boolean play(InetSocketAddress address) throws IOException {
+		try (Socket client = new Socket(address.getAddress(), address.getPort())) {
+			client.setSoTimeout(5000);
+			MineSweeper local = new MineSweeper(5, MineSweeper.Level.EASY);
+			local.enableUndo();
+			int zero = 0;
+			while (local.getCount(zero / 9, zero % 9) != 0) {
+				zero++;
+			}
+			boolean ok = ask(client, "NEW EASY 5").equals("OK 9 9 10");
+			local.clickAt(zero / 9, zero % 9);
+			int opened = 0;
+			for (int i = 0; i < 81; i++) {
+				opened += local.isVisible(i / 9, i % 9) ? 1 : 0;
+			}
+			ok &= opened > 1 && matches(ask(client, "C " + zero / 9 + " " + zero % 9), local, opened);
+			int hidden = 0;
+			while (local.isVisible(hidden / 9, hidden % 9)) {
+				hidden++;
+			}
+			String at = " " + hidden / 9 + " " + hidden % 9;
+			local.flagAt(hidden / 9, hidden % 9);
+			ok &= matches(ask(client, "F" + at), local, 1);
+			local.unFlagAt(hidden / 9, hidden % 9);
+			ok &= matches(ask(client, "U" + at), local, 1);
+			ok &= matches(ask(client, "U" + at), local, 0);
+			local.undo();
+			ok &= matches(ask(client, "Z"), local, 1);
+			local.redo();
+			ok &= matches(ask(client, "Y"), local, 1);
+			ok &= matches(ask(client, "B"), local, 81);
+			ok &= matches(ask(client, "C 9 0"), local, 0) && ask(client, "NEW NONE").startsWith("E ")
+					&& ask(client, "what").equals("E Unknown command!") && ask(client, "Q").equals("BYE");
+			return ok;
+		}
+	}
+
+	/**
+	 * method that checks the server against clients that abuse it, on a server
+	 * with one loop so a stuck loop shows: a board too big to build is refused
+	 * even when rows * cols overflows an int, and a client that sends B
+	 * commands without reading the replies is no longer read from once replies
+	 * pile up, while the loop goes on serving others.
+	 *
+	 * @return true if every check passes
+	 * @throws IOException if the server or a connection fails
+	 */
+	private static boolean abuseChecks() throws IOException {
+		try (MineServer server = new MineServer(new InetSocketAddress("127.0.0.1", 0), 1)) {
+			server.start();
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.port());
+			boolean ok;
+			try (Socket client = new Socket(address.getAddress(), address.getPort())) {
+				client.setSoTimeout(5000);
+				ok = ask(client, "NEW CUSTOM 65537 65537 10").equals("E Bad board size!")
+						&& ask(client, "NEW CUSTOM 2 2147483647 1").equals("E Bad board size!")
+						&& ask(client, "NEW CUSTOM 1024 1025 10").equals("E Bad board size!")
+						&& ask(client, "NEW CUSTOM 1024 1024 10 1").equals("OK 1024 1024 10");
+			}
+			try (SocketChannel flood = SocketChannel.open(address)) {
+				flood.configureBlocking(false);
+				byte[] commands = ("NEW HARD 1\n" + "B\n".repeat(1 << 12)).getBytes(StandardCharsets.US_ASCII);
+				ByteBuffer out = ByteBuffer.wrap(commands);
+				// write until the server stops taking commands for a while
+				long written = 0;
+				long idleSince = System.nanoTime();
+				while (System.nanoTime() - idleSince < 200_000_000L && written < 1L << 28) {
+					int n = flood.write(out);
+					if (n > 0) {
+						written += n;
+						idleSince = System.nanoTime();
+					} else {
+						LockSupport.parkNanos(1_000_000);
+					}
+					if (!out.hasRemaining()) {
+						out.position(commands.length - 2 * (1 << 12));
+					}
+				}
+				ok &= written < 1L << 28;
+				// the replies sent so far are intact, and the loop still serves others
+				flood.configureBlocking(true);
+				ByteBuffer in = ByteBuffer.allocate(64);
+				while (in.hasRemaining() && flood.read(in) > 0) {
+				}
+				ok &= new String(in.array(), StandardCharsets.US_ASCII).startsWith("OK 16 30 99\nD INIT 99 480 ");
+				try (Socket client = new Socket(address.getAddress(), address.getPort())) {
+					client.setSoTimeout(5000);
+					ok &= ask(client, "NEW EASY 1").equals("OK 9 9 10");
+				}
+			}
+			return ok;
+		}
+	}
+
+	/**
+	 * method that checks a D reply against a game: status, mines left, number
+	 * of cells and the value of each listed cell.
+	 *
+	 * @param reply reply
+	 * @param game  game
+	 * @param cells number of cells expected
+	 * @return true if it matches
+	 */
+	private static boolean matches(String reply, MineSweeper game, int cells) {
+		String[] words = reply.split(" ");
+		if (words.length != 4 + 3 * cells || !words[0].equals("D") || !words[1].equals(game.getStatus())
+				|| Integer.parseInt(words[2]) != game.mineLeft() || Integer.parseInt(words[3]) != cells) {
+			return false;
+		}
+		for (int i = 4; i < words.length; i += 3) {
+			int row = Integer.parseInt(words[i]);
+			int col = Integer.parseInt(words[i + 1]);
+			String value = game.isFlagged(row, col) ? "F"
+					: !game.isVisible(row, col) ? "?"
+							: game.hasMine(row, col) ? "X" : String.valueOf(game.getCount(row, col));
+			if (!words[i + 2].equals(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * method that sends a command and waits for its reply line.
+	 *
+	 * @param socket  socket
+	 * @param command command
+	 * @return reply, without the newline
+	 * @throws IOException if the connection fails or times out
+	 */
+	private static String ask(Socket socket, String command) throws IOException {
+		socket.getOutputStream().write((command + "\n").getBytes(StandardCharsets.US_ASCII));
+		InputStream in = socket.getInputStream();
+		StringBuilder reply = new StringBuilder();
+		for (int b = in.read(); b != '\n'; b = in.read()) {
+			if (b < 0) {
+				throw new IOException("Server closed the connection!");
+			}
+			reply.append((char) b);
+		}
+		return reply.toString();
+	}
+
+	/**
+	 * This method checks the protocol and abuse handling, then starts a server
+	 * on a free port and loads it.
+	 *
+	 * @param args [sessions [seconds [loops]]], default 1000 sessions, 5 seconds
+	 *             and one loop per core
+	 * @throws IOException if the server or a connection fails
+	 */
+	public static void main(String[] args) throws IOException {
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+		int loops = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		if (protocolChecks()) {
+			System.out.println("Yay 1");
+		}
+		if (abuseChecks()) {
+			System.out.println("Yay 2");
+		}
+		try (MineServer server = new MineServer(new InetSocketAddress("127.0.0.1", 0), loops)) {
+			server.start();
+			long replies = new MineLoadTest().run(new InetSocketAddress("127.0.0.1", server.port()), sessions,
+					seconds);
+			System.out.printf("%d sessions, %d loops: %.0f replies/s, %.0f per loop%n", sessions, loops,
+					replies / seconds, replies / seconds / loops);
+			System.out.printf("pool: %s, hit rate %.3f%n", server.pool().snapshot(), server.pool().hitRate());
+		}
+	}
+}
@@ -0,0 +1,656 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts minesweeper games for network clients. Each connection is one session
+ * with its own MineSweeper. Sessions are spread over a few event loops, each a
+ * thread with a non-blocking Selector, so thousands of idle or slow clients
+ * cost a buffer each and no thread.
+ *
+ * The protocol is ASCII, one command per line, one reply line per command:
+ * - NEW level [seed] or NEW CUSTOM rows cols mines [seed]: OK rows cols mines
+ * - C row col (click), F row col (flag), U row col (unflag), Z (undo), Y (redo):
+ * D status minesLeft n row col value ... listing only the n cells the command
+ * changed, taken from the game's undo history
+ * - B: the whole board as one D line
+ * - H: H row col p, a hint; p is 0 for a cell proven safe, otherwise the
+ * estimated mine chance, and H - when the game is over
+ * - Q: closes the connection
+ * Cell values are 0-8, F (flagged), ? (hidden) and X (open mine). Errors are
+ * replied as E message.
+ *
+ * Finished games go back to a GamePool shared by all loops, so a busy server
+ * reuses boards instead of allocating one per NEW.
+ *
+ * A client that sends commands but does not read the replies is paused: once
+ * MAX_PENDING bytes of replies wait to be sent, its commands are left unread
+ * until they are, so a session holds at most MAX_PENDING bytes plus one reply
+ * (a B reply of a MAX_CELLS board is about 12 MB).
+ *
+ * @author basel barham
+ */
+public class MineServer implements Closeable {
+
+	/**
+	 * longest command line accepted.
+	 */
+	private static final int MAX_LINE = 256;
+
+	/**
+	 * most cells of a CUSTOM board.
+	 */
+	static final int MAX_CELLS = 1 << 20;
+
+	/**
+	 * reply bytes waiting to be sent before a session stops running commands.
+	 */
+	static final int MAX_PENDING = 1 << 16;
+
+	/**
+	 * output buffer size a session shrinks back to after a big reply.
+	 */
+	private static final int OUT_SIZE = 1024;
+
+	/**
+	 * listening socket.
+	 */
+	private final ServerSocketChannel server;
+
+	/**
+	 * event loops the sessions are spread over.
+	 */
+	private final Loop[] loops;
+
+	/**
+	 * boards of finished games, shared by the loops.
+	 */
+	private final GamePool pool = new GamePool(4096);
+
+	/**
+	 * thread accepting connections.
+	 */
+	private Thread acceptor;
+
+	/**
+	 * number of connections accepted, to pick the next loop.
+	 */
+	private int accepted;
+
+	/**
+	 * constructor, bind the server. nothing is served until start().
+	 *
+	 * @param address   address, port 0 for any free port
+	 * @param loopCount number of event loops, usually the number of cores
+	 * @throws IOException if binding fails
+	 */
+	public MineServer(InetSocketAddress address, int loopCount) throws IOException {
+		server = ServerSocketChannel.open();
+		server.bind(address, 1024);
+		loops = new Loop[loopCount];
+		for (int i = 0; i < loopCount; i++) {
+			loops[i] = new Loop(Selector.open(), pool);
+		}
+	}
+
+	/**
+	 * method reports the port the server listens on.
+	 *
+	 * @return port
+	 */
+	public int port() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * method reports number of open sessions.
+	 *
+	 * @return sessions
+	 */
+	public int sessionCount() {
+		int count = 0;
+		for (Loop loop : loops) {
+			count += loop.sessions.get();
+		}
+		return count;
+	}
+
+	/**
+	 * method returns the pool finished games go back to, for its metrics.
+	 *
+	 * @return pool
+	 */
+	public GamePool pool() {
+		return pool;
+	}
+
+	/**
+	 * method that starts the event loops and the acceptor thread.
+	 */
+	public void start() {
+		for (int i = 0; i < loops.length; i++) {
+			Thread thread = new Thread(loops[i], "mine-loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		acceptor = new Thread(this::accept, "mine-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * method that accepts connections and hands them to the loops in turn.
+	 */
+	private void accept() {
+		while (server.isOpen()) {
+			try {
+				SocketChannel channel = server.accept();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				loops[accepted++ % loops.length].add(channel);
+			} catch (ClosedChannelException ex) {
+				return;
+			} catch (IOException ex) {
+				System.err.println("MineServer: accept failed: " + ex);
+			}
+		}
+	}
+
+	/**
+	 * method that stops accepting and closes every session.
+	 *
+	 * @throws IOException if closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		server.close();
+		for (Loop loop : loops) {
+			loop.selector.close();
+		}
+	}
+
+	/**
+	 * One event loop: a selector and the sessions registered with it.
+	 */
+	private static final class Loop implements Runnable {
+
+		/**
+		 * selector of the sessions.
+		 */
+		private final Selector selector;
+
+		/**
+		 * connections accepted but not registered yet.
+		 */
+		private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * number of open sessions.
+		 */
+		private final AtomicInteger sessions = new AtomicInteger();
+
+		/**
+		 * pool of the server.
+		 */
+		private final GamePool pool;
+
+		/**
+		 * constructor.
+		 *
+		 * @param selector selector
+		 * @param pool     pool
+		 */
+		Loop(Selector selector, GamePool pool) {
+			this.selector = selector;
+			this.pool = pool;
+		}
+
+		/**
+		 * method that queues a new connection for this loop.
+		 *
+		 * @param channel channel
+		 */
+		void add(SocketChannel channel) {
+			pending.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			while (selector.isOpen()) {
+				try {
+					selector.select();
+					SocketChannel channel;
+					while ((channel = pending.poll()) != null) {
+						channel.register(selector, SelectionKey.OP_READ, new Session(pool));
+						sessions.incrementAndGet();
+					}
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						serve(key);
+					}
+				} catch (IOException | RuntimeException ex) {
+					if (selector.isOpen()) {
+						System.err.println("MineServer: loop failed: " + ex);
+					}
+				}
+			}
+		}
+
+		/**
+		 * method that reads and writes one ready session, closing it on error or
+		 * end of stream. a session with too much output pending is not read from
+		 * until it is written, see Session.stalled.
+		 *
+		 * @param key key
+		 */
+		private void serve(SelectionKey key) {
+			Session session = (Session) key.attachment();
+			SocketChannel channel = (SocketChannel) key.channel();
+			try {
+				if (key.isReadable() && !session.closing && channel.read(session.in) < 0) {
+					session.closing = true;
+				}
+				boolean pendingOut;
+				do {
+					if (!session.closing) {
+						session.closing = !session.handle();
+					}
+					session.out.flip();
+					channel.write(session.out);
+					pendingOut = session.out.hasRemaining();
+					session.out.compact();
+				} while (!pendingOut && session.stalled && !session.closing);
+				if (!pendingOut && session.out.capacity() > OUT_SIZE) {
+					session.out = ByteBuffer.allocate(OUT_SIZE);
+				}
+				if (session.closing && !pendingOut) {
+					close(key);
+				} else {
+					int ops = session.closing || session.stalled ? 0 : SelectionKey.OP_READ;
+					key.interestOps(pendingOut ? ops | SelectionKey.OP_WRITE : ops);
+				}
+			} catch (IOException | RuntimeException ex) {
+				close(key);
+			}
+		}
+
+		/**
+		 * method that closes a session.
+		 *
+		 * @param key key
+		 */
+		private void close(SelectionKey key) {
+			key.cancel();
+			try {
+				key.channel().close();
+			} catch (IOException ex) {
+				// closing anyway
+			}
+			sessions.decrementAndGet();
+			Session session = (Session) key.attachment();
+			if (session.game != null) {
+				pool.release(session.game);
+				session.game = null;
+			}
+		}
+	}
+
+	/**
+	 * One connection: its buffers and game.
+	 */
+	private static final class Session {
+
+		/**
+		 * bytes read, in write mode.
+		 */
+		private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+
+		/**
+		 * bytes to send, in write mode.
+		 */
+		private ByteBuffer out = ByteBuffer.allocate(OUT_SIZE);
+
+		/**
+		 * reply being built.
+		 */
+		private final StringBuilder reply = new StringBuilder();
+
+		/**
+		 * game of the session, null before NEW.
+		 */
+		private MineSweeper game;
+
+		/**
+		 * whether the session closes once its output is sent.
+		 */
+		private boolean closing;
+
+		/**
+		 * whether handle() stopped with commands left in the input buffer, because
+		 * MAX_PENDING bytes of output wait to be sent.
+		 */
+		private boolean stalled;
+
+		/**
+		 * pool games come from and go back to.
+		 */
+		private final GamePool pool;
+
+		/**
+		 * constructor.
+		 *
+		 * @param pool pool
+		 */
+		Session(GamePool pool) {
+			this.pool = pool;
+		}
+
+		/**
+		 * method that runs the complete lines in the input buffer, stopping early
+		 * (stalled) once MAX_PENDING bytes of output are pending.
+		 *
+		 * @return false if the session should close once its output is sent
+		 */
+		boolean handle() {
+			in.flip();
+			int lineStart = 0;
+			stalled = false;
+			for (int i = in.position(); i < in.limit(); i++) {
+				if (in.get(i) != '\n') {
+					continue;
+				}
+				if (out.position() >= MAX_PENDING) {
+					stalled = true;
+					break;
+				}
+				int end = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+				byte[] line = new byte[end - lineStart];
+				in.get(lineStart, line);
+				lineStart = i + 1;
+				reply.setLength(0);
+				boolean keep = command(new String(line, StandardCharsets.US_ASCII).trim());
+				send();
+				if (!keep) {
+					return false;
+				}
+			}
+			in.position(lineStart);
+			in.compact();
+			if (!stalled && !in.hasRemaining()) {
+				reply.setLength(0);
+				reply.append("E Line too long!");
+				send();
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * method that runs one command and builds its reply.
+		 *
+		 * @param line line
+		 * @return false for Q
+		 */
+		private boolean command(String line) {
+			String[] words = line.split(" +");
+			try {
+				switch (words[0]) {
+					case "NEW":
+						newGame(words);
+						break;
+					case "C":
+					case "F":
+					case "U":
+						move(words);
+						break;
+					case "Z":
+						undoRedo(true);
+						break;
+					case "Y":
+						undoRedo(false);
+						break;
+					case "B":
+						board();
+						break;
+					case "H":
+						hint();
+						break;
+					case "Q":
+						reply.append("BYE");
+						return false;
+					default:
+						reply.append("E Unknown command!");
+				}
+			} catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException ex) {
+				reply.setLength(0);
+				reply.append("E ").append(ex.getMessage());
+			}
+			return true;
+		}
+
+		/**
+		 * method that starts a game: NEW level [seed] or NEW CUSTOM rows cols mines
+		 * [seed].
+		 *
+		 * @param words words
+		 */
+		private void newGame(String[] words) {
+			MineSweeper.Level level = MineSweeper.Level.valueOf(words[1]);
+			MineSweeper old = game;
+			if (level == MineSweeper.Level.CUSTOM) {
+				int rows = Integer.parseInt(words[2]);
+				int cols = Integer.parseInt(words[3]);
+				int mines = Integer.parseInt(words[4]);
+				// bound each side first, so rows * cols can't overflow
+				if (rows <= 0 || cols <= 0 || rows > MAX_CELLS || cols > MAX_CELLS
+						|| (long) rows * cols > MAX_CELLS || mines < 0 || mines >= rows * cols) {
+					throw new IllegalArgumentException("Bad board size!");
+				}
+				game = pool.acquire(seed(words, 5), level, rows, cols, mines);
+			} else {
+				game = pool.acquire(seed(words, 2), level);
+			}
+			if (old != null) {
+				pool.release(old);
+			}
+			game.enableUndo();
+			reply.append("OK ").append(game.rowCount()).append(' ').append(game.colCount()).append(' ')
+					.append(game.mineCount());
+		}
+
+		/**
+		 * method that reads an optional seed.
+		 *
+		 * @param words words
+		 * @param at    index of the seed
+		 * @return the seed, random if absent
+		 */
+		private static int seed(String[] words, int at) {
+			return words.length > at ? Integer.parseInt(words[at]) : ThreadLocalRandom.current().nextInt();
+		}
+
+		/**
+		 * method that makes a click, flag or unflag and replies with the cells it
+		 * changed.
+		 *
+		 * @param words words
+		 */
+		private void move(String[] words) {
+			MineSweeper game = game();
+			int row = Integer.parseInt(words[1]);
+			int col = Integer.parseInt(words[2]);
+			GameHistory history = game.enableUndo();
+			int before = history.position();
+			if (words[0].equals("C")) {
+				game.clickAt(row, col);
+			} else if (words[0].equals("F")) {
+				game.flagAt(row, col);
+			} else {
+				game.unFlagAt(row, col);
+			}
+			delta(history.position() > before ? before : -1);
+		}
+
+		/**
+		 * method that undoes or redoes a move and replies with the cells it
+		 * changed.
+		 *
+		 * @param undo true for undo, false for redo
+		 */
+		private void undoRedo(boolean undo) {
+			MineSweeper game = game();
+			GameHistory history = game.enableUndo();
+			if (undo) {
+				delta(game.undo() ? history.position() : -1);
+			} else {
+				delta(game.redo() ? history.position() - 1 : -1);
+			}
+		}
+
+		/**
+		 * method that replies with the current value of the cells a move touched.
+		 *
+		 * @param move position of the move in the history, -1 for none
+		 */
+		private void delta(int move) {
+			MineSweeper game = game();
+			GameHistory history = game.enableUndo();
+			header(game);
+			if (move < 0) {
+				reply.append(" 0");
+				return;
+			}
+			if (history.type(move) != GameSnapshot.CLICK) {
+				reply.append(" 1");
+				cell(game, history.target(move));
+				return;
+			}
+			int start = history.openedStart(move);
+			int end = history.openedEnd(move);
+			reply.append(' ').append(end - start);
+			for (int slot = start; slot < end; slot++) {
+				cell(game, history.openedAt(slot));
+			}
+		}
+
+		/**
+		 * method that replies with a hint.
+		 */
+		private void hint() {
+			Hint hint = game().hint();
+			if (hint == null) {
+				reply.append("H -");
+				return;
+			}
+			reply.append("H ").append(hint.getRow()).append(' ').append(hint.getCol()).append(' ')
+					.append(hint.isSafe() ? "0" : String.format(Locale.ROOT, "%.3f", hint.getMineProbability()));
+		}
+
+		/**
+		 * method that replies with every cell.
+		 */
+		private void board() {
+			MineSweeper game = game();
+			header(game);
+			int cells = game.rowCount() * game.colCount();
+			reply.append(' ').append(cells);
+			for (int i = 0; i < cells; i++) {
+				cell(game, i);
+			}
+		}
+
+		/**
+		 * method that starts a D reply.
+		 *
+		 * @param game game
+		 */
+		private void header(MineSweeper game) {
+			reply.append("D ").append(game.getStatus()).append(' ').append(game.mineLeft());
+		}
+
+		/**
+		 * method that appends " row col value" for a cell.
+		 *
+		 * @param game  game
+		 * @param index row * colCount + col
+		 */
+		private void cell(MineSweeper game, int index) {
+			int row = index / game.colCount();
+			int col = index % game.colCount();
+			char value;
+			if (game.isFlagged(row, col)) {
+				value = 'F';
+			} else if (!game.isVisible(row, col)) {
+				value = '?';
+			} else if (game.hasMine(row, col)) {
+				value = 'X';
+			} else {
+				value = (char) ('0' + game.getCount(row, col));
+			}
+			reply.append(' ').append(row).append(' ').append(col).append(' ').append(value);
+		}
+
+		/**
+		 * method reports the game, failing before NEW.
+		 *
+		 * @return game
+		 */
+		private MineSweeper game() {
+			if (game == null) {
+				throw new IllegalStateException("No game, send NEW first!");
+			}
+			return game;
+		}
+
+		/**
+		 * method that appends the reply and a newline to the output buffer,
+		 * growing it for big deltas.
+		 */
+		private void send() {
+			int need = reply.length() + 1;
+			if (out.remaining() < need) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + need));
+				out.flip();
+				bigger.put(out);
+				out = bigger;
+			}
+			for (int i = 0; i < reply.length(); i++) {
+				out.put((byte) reply.charAt(i));
+			}
+			out.put((byte) '\n');
+		}
+	}
+
+	/**
+	 * This method runs a server until the process is killed.
+	 *
+	 * @param args [port [loops]], default 7310 and one loop per core
+	 * @throws IOException          if binding fails
+	 * @throws InterruptedException if interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7310;
+		int loops = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		try (MineServer server = new MineServer(new InetSocketAddress(port), loops)) {
+			server.start();
+			System.out.println("MineServer on port " + server.port() + " with " + loops + " loops");
+			server.acceptor.join();
+		}
+	}
+}
@@ -1,4 +1,9 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * The implementation of a Minesweeper game.
@@ -72,11 +77,63 @@ public class MineSweeper {
 	 */
 	private static int MINES_HARD = 99;
 
+	/**
+	 * neighbor row offsets, in the same order as NBR_COLS.
+	 */
+	private static final int[] NBR_ROWS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+	/**
+	 * neighbor column offsets, in the same order as NBR_ROWS.
+	 */
+	private static final int[] NBR_COLS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+
+	/**
+	 * cell used for the border of the padded layout: open, no mine, never
+	 * changed, so neighbor loops need no bounds checks.
+	 */
+	private static final Cell SENTINEL = new Cell();
+
+	static {
+		SENTINEL.setVisible();
+	}
+
 	/**
 	 * The 2d board of cells.
 	 */
 	private DynGrid310<Cell> board;
 
+	/**
+	 * the cells of board in a flat array with a one-cell sentinel border; cell
+	 * (row,col) is at (row + 1) * stride + col + 1.
+	 */
+	private Cell[] cells;
+
+	/**
+	 * row length of cells, colCount + 2.
+	 */
+	private int stride;
+
+	/**
+	 * flat offsets of the 8 neighbors in cells.
+	 */
+	private int[] nbr;
+
+	/**
+	 * how the cells touch.
+	 */
+	private Topology topology = Topology.SQUARE;
+
+	/**
+	 * neighbor table of topology over padded indexes (see Topology.table()),
+	 * null for SQUARE, which uses the nbr offsets.
+	 */
+	private int[] adj;
+
+	/**
+	 * reusable stack of padded indexes for flood fills.
+	 */
+	private int[] stack;
+
 	/**
 	 * Number of rows of the board.
 	 */
@@ -102,6 +159,80 @@ public class MineSweeper {
 	 */
 	private int flaggedCount;
 
+	/**
+	 * level of the game.
+	 */
+	private Level level;
+
+	/**
+	 * seed the board was generated from, only meaningful if seeded is true.
+	 */
+	private int seed;
+
+	/**
+	 * whether the board came from initBoard(seed) rather than setBoard().
+	 */
+	private boolean seeded;
+
+	/**
+	 * source of the random numbers the mines were placed with.
+	 */
+	private RandomSource random = RandomSource.LEGACY;
+
+	/**
+	 * whether mines are still to be placed by the first click (see
+	 * initBoardDeferred()).
+	 */
+	private boolean deferred;
+
+	/**
+	 * whether an opening index is kept (see enableOpeningIndex()).
+	 */
+	private boolean indexOpenings;
+
+	/**
+	 * precomputed openings of the board, null unless indexOpenings and the mines
+	 * are placed.
+	 */
+	private OpeningIndex openings;
+
+	/**
+	 * frontier of the board, null until frontier() or hint() is first called;
+	 * then kept up to date by every move.
+	 */
+	private Frontier frontier;
+
+	/**
+	 * hint search state, kept between hint() calls.
+	 */
+	private HintEngine hints;
+
+	/**
+	 * log of moves for compact snapshots, null unless recording.
+	 */
+	private GameSnapshot recording;
+
+	/**
+	 * shared log the moves also go to, null unless attached.
+	 */
+	private GameRecorder recorder;
+
+	/**
+	 * id of this game in recorder.
+	 */
+	private int recorderGame;
+
+	/**
+	 * undo/redo history, null unless enableUndo() was called.
+	 */
+	private GameHistory history;
+
+	/**
+	 * largest flood fill stack of the current click, only tracked when
+	 * GameMetrics.ENABLED.
+	 */
+	private int maxDepth;
+
 	/**
 	 * Game possible status.
 	 */
@@ -130,39 +261,60 @@ public class MineSweeper {
 	 * @param level level
 	 */
 	public MineSweeper(int seed, Level level) {
+		this(seed, level, false);
+	}
+
+	/**
+	 * constructor, initialize game based on a provided seed for random numbers and
+	 * the specified level. with safeFirstClick, mines are placed on the first
+	 * click, away from the clicked cell and its neighbors.
+	 * 
+	 * @param seed           seed
+	 * @param level          level
+	 * @param safeFirstClick safeFirstClick
+	 */
+	public MineSweeper(int seed, Level level, boolean safeFirstClick) {
+		this(seed, level, safeFirstClick, RandomSource.LEGACY);
+	}
+
+	/**
+	 * constructor, initialize game like MineSweeper(seed, level, safeFirstClick),
+	 * drawing the mines from a random source. LEGACY gives the same board as the
+	 * other constructors.
+	 * 
+	 * @param seed           seed
+	 * @param level          level
+	 * @param safeFirstClick safeFirstClick
+	 * @param source         source
+	 */
+	public MineSweeper(int seed, Level level, boolean safeFirstClick, RandomSource source) {
+		this(seed, level, safeFirstClick, source, Topology.SQUARE);
+	}
+
+	/**
+	 * constructor, initialize game like MineSweeper(seed, level, safeFirstClick,
+	 * source) on a board whose cells touch the way topology says. only SQUARE
+	 * boards have a frontier, hints, an opening index or recordings.
+	 * 
+	 * @param seed           seed
+	 * @param level          level
+	 * @param safeFirstClick safeFirstClick
+	 * @param source         source
+	 * @param topology       topology
+	 */
+	public MineSweeper(int seed, Level level, boolean safeFirstClick, RandomSource source, Topology topology) {
 
 		// if level is customized, need more details (number of rows/columns/mines)
 		if (level == Level.CUSTOM)
 			throw new IllegalArgumentException("Customized games need more parameters!");
 
 		// set number of rows, columns, mines based on the pre-defined levels
-		switch (level) {
-            case TINY:
-                rowCount = ROWS_TINY;
-                colCount = COLS_TINY;
-                mineTotalCount = MINES_TINY;
-                break;
-            case EASY:
-                rowCount = ROWS_EASY;
-                colCount = COLS_EASY;
-                mineTotalCount = MINES_EASY;
-                break;
-            case MEDIUM:
-                rowCount = ROWS_MEDIUM;
-                colCount = COLS_MEDIUM;
-                mineTotalCount = MINES_MEDIUM;
-                break;
-            case HARD:
-                rowCount = ROWS_HARD;
-                colCount = COLS_HARD;
-                mineTotalCount = MINES_HARD;
-                break;
-            default:
-                // should not be able to reach here!
-                rowCount = ROWS_TINY;
-                colCount = COLS_TINY;
-                mineTotalCount = MINES_TINY;
-		}
+		int[] size = levelSize(level);
+		rowCount = size[0];
+		colCount = size[1];
+		mineTotalCount = size[2];
+		this.level = level;
+		this.topology = topology;
 
 		// create an empty board of the needed size
 		
@@ -170,7 +322,11 @@ public class MineSweeper {
 
 		// place mines, and initialize cells
 		
-		initBoard(seed);
+		if (safeFirstClick) {
+			initBoardDeferred(seed, source);
+		} else {
+			initBoard(seed, source);
+		}
 	}
 
 	/**
@@ -183,6 +339,23 @@ public class MineSweeper {
 	 * @param mineCount mineCount
 	 */
 	public MineSweeper(int seed, Level level, int rowCount, int colCount, int mineCount) {
+		this(seed, level, rowCount, colCount, mineCount, false);
+	}
+
+	/**
+	 * constructor: should only be used for customized games. with
+	 * safeFirstClick, mines are placed on the first click, away from the clicked
+	 * cell and its neighbors.
+	 * 
+	 * @param seed           seed
+	 * @param level          level
+	 * @param rowCount       rowCount
+	 * @param colCount       colCount
+	 * @param mineCount      mineCount
+	 * @param safeFirstClick safeFirstClick
+	 */
+	public MineSweeper(int seed, Level level, int rowCount, int colCount, int mineCount,
+			boolean safeFirstClick) {
 
 		if (level != Level.CUSTOM)
 			throw new IllegalArgumentException("Only customized games need more parameters!");
@@ -192,12 +365,202 @@ public class MineSweeper {
 		this.rowCount = rowCount;
 		this.colCount = colCount;
 		this.mineTotalCount = mineCount;
+		this.level = level;
 
 		// create an empty board of the needed size: you implement this method
 		board = genEmptyBoard(rowCount, colCount);
 
 		// place mines, and initialize cells: you implement part of this method
-		initBoard(seed);
+		if (safeFirstClick) {
+			initBoardDeferred(seed);
+		} else {
+			initBoard(seed);
+		}
+	}
+
+	/**
+	 * method reports the board size of a pre-defined level.
+	 * 
+	 * @param level level, not CUSTOM
+	 * @return {rows, cols, mines}
+	 */
+	public static int[] levelSize(Level level) {
+		int[] size = new int[3];
+		switch (level) {
+            case TINY:
+                size[0] = ROWS_TINY;
+                size[1] = COLS_TINY;
+                size[2] = MINES_TINY;
+                break;
+            case EASY:
+                size[0] = ROWS_EASY;
+                size[1] = COLS_EASY;
+                size[2] = MINES_EASY;
+                break;
+            case MEDIUM:
+                size[0] = ROWS_MEDIUM;
+                size[1] = COLS_MEDIUM;
+                size[2] = MINES_MEDIUM;
+                break;
+            case HARD:
+                size[0] = ROWS_HARD;
+                size[1] = COLS_HARD;
+                size[2] = MINES_HARD;
+                break;
+            default:
+                // should not be able to reach here!
+                size[0] = ROWS_TINY;
+                size[1] = COLS_TINY;
+                size[2] = MINES_TINY;
+		}
+		return size;
+	}
+
+	/**
+	 * method that (re)builds the padded flat view of board and the neighbor
+	 * offsets for its width, or the neighbor table of another topology.
+	 * O(rowCount x colCount)
+	 */
+	private void buildCells() {
+		stride = colCount + 2;
+		cells = new Cell[(rowCount + 2) * stride];
+		Arrays.fill(cells, SENTINEL);
+		for (int row = 0; row < rowCount; row++) {
+			for (int col = 0; col < colCount; col++) {
+				cells[(row + 1) * stride + col + 1] = board.get(row, col);
+			}
+		}
+		nbr = new int[NBR_ROWS.length];
+		for (int k = 0; k < nbr.length; k++) {
+			nbr[k] = NBR_ROWS[k] * stride + NBR_COLS[k];
+		}
+		adj = topology == Topology.SQUARE ? null : topology.table(rowCount, colCount);
+	}
+
+	/**
+	 * method reports whether cells is the padded view of the current board.
+	 * 
+	 * @return true or false
+	 */
+	private boolean hasCells() {
+		return cells != null && stride == colCount + 2 && cells.length == (rowCount + 2) * stride;
+	}
+
+	/**
+	 * method that starts a new game on this game's board, resetting the cells
+	 * in place instead of allocating a new grid, for GamePool. the board size
+	 * stays the same; anything else may change. options turned on by the last
+	 * holder, such as the opening index, are turned off. O(rowCount x colCount)
+	 * 
+	 * @param seed           seed
+	 * @param level          level
+	 * @param mineCount      mineCount
+	 * @param safeFirstClick safeFirstClick
+	 */
+	void reuse(int seed, Level level, int mineCount, boolean safeFirstClick) {
+		topology = Topology.SQUARE;
+		adj = null;
+		indexOpenings = false;
+		openings = null;
+		for (int row = 0; row < rowCount; row++) {
+			int p = (row + 1) * stride + 1;
+			for (int col = 0; col < colCount; col++, p++) {
+				cells[p].reset();
+			}
+		}
+		this.level = level;
+		mineTotalCount = mineCount;
+		if (safeFirstClick) {
+			initBoardDeferred(seed);
+		} else {
+			initBoard(seed);
+		}
+	}
+
+	/**
+	 * method that counts mines around a padded index, for one cell. loops over
+	 * many cells go through setCounts() instead.
+	 * 
+	 * @param p padded index of a cell
+	 * @return number of neighbors with a mine
+	 */
+	private int nbrMines(int p) {
+		return adj == null ? squareMines(p) : tableMines(adj, p);
+	}
+
+	/**
+	 * method that counts mines around a padded index of a SQUARE board.
+	 * branch-free over the 8 neighbor offsets; the sentinel border has no mines.
+	 * 
+	 * @param p padded index of a cell
+	 * @return number of neighbors with a mine
+	 */
+	private int squareMines(int p) {
+		int count = 0;
+		for (int k = 0; k < 8; k++) {
+			count += cells[p + nbr[k]].hasMine() ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * method that counts mines around a padded index through a neighbor table.
+	 * branch-free over the row of the table; padding entries point at the
+	 * sentinel border, which has no mines.
+	 * 
+	 * @param table neighbor table
+	 * @param p     padded index of a cell
+	 * @return number of neighbors with a mine
+	 */
+	private int tableMines(int[] table, int p) {
+		int count = 0;
+		int base = p * Topology.MAX_NEIGHBORS;
+		for (int k = 0; k < Topology.MAX_NEIGHBORS; k++) {
+			count += cells[table[base + k]].hasMine() ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * method that sets the count of every cell in a rectangle. the neighbor
+	 * lookup is chosen once for the rectangle, so each loop is specialized to
+	 * its topology.
+	 * 
+	 * @param row0 first row
+	 * @param row1 last row
+	 * @param col0 first col
+	 * @param col1 last col
+	 */
+	private void setCounts(int row0, int row1, int col0, int col1) {
+		if (adj == null) {
+			for (int row = row0; row <= row1; row++) {
+				int p = (row + 1) * stride + col0 + 1;
+				for (int col = col0; col <= col1; col++, p++) {
+					Cell cell = cells[p];
+					cell.setCount(cell.hasMine() ? -1 : squareMines(p));
+				}
+			}
+		} else {
+			int[] table = adj;
+			for (int row = row0; row <= row1; row++) {
+				int p = (row + 1) * stride + col0 + 1;
+				for (int col = col0; col <= col1; col++, p++) {
+					Cell cell = cells[p];
+					cell.setCount(cell.hasMine() ? -1 : tableMines(table, p));
+				}
+			}
+		}
+	}
+
+	/**
+	 * method that checks (row,col) is on the board without going through board.
+	 * 
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	private boolean isValid(int row, int col) {
+		return row >= 0 && row < rowCount && col >= 0 && col < colCount;
 	}
 
 	/**
@@ -207,44 +570,333 @@ public class MineSweeper {
 	 * @param seed seed
 	 */
 	public void initBoard(int seed) {
+		initBoard(seed, RandomSource.LEGACY);
+	}
 
-		// use seed to initialize a random number sequence
-		Random random = new Random(seed);
-
-		// randomly place mines on board
-		int mineNum = 0;
-		for (; mineNum < mineTotalCount;) {
+	/**
+	 * method to initialize the game like initBoard(seed), drawing the mines from
+	 * another random source. only LEGACY boards can be recorded, since a
+	 * snapshot rebuilds the board from the seed alone.
+	 * 
+	 * @param seed   seed
+	 * @param source source
+	 */
+	public void initBoard(int seed, RandomSource source) {
+		// flat padded view of the board for the loops below, kept when a pooled
+		// game is reused
+		if (!hasCells()) {
+			buildCells();
+		}
+		random = source;
+		placeMines(seed, -1, -1);
+		initGame(seed);
+		deferred = false;
+	}
 
-			// generate next (row, col)
-			int row = random.nextInt(rowCount);
-			int col = random.nextInt(colCount);
+	/**
+	 * method to initialize the game like initBoard(), but leave the board empty
+	 * until the first click. the first click then places the mines from seed,
+	 * keeping them off the clicked cell and its neighbors, so the same seed and
+	 * first click always give the same board. cell counts are not set until
+	 * then (see minesPlaced()); undoing the first click leaves the mines in place.
+	 * 
+	 * @param seed seed
+	 */
+	public void initBoardDeferred(int seed) {
+		initBoardDeferred(seed, RandomSource.LEGACY);
+	}
 
-			// cell already has a mine: try again
-			if (hasMine(row, col)) {
-				continue;
-			}
+	/**
+	 * method to initialize the game like initBoardDeferred(seed), drawing the
+	 * mines from another random source on the first click.
+	 * 
+	 * @param seed   seed
+	 * @param source source
+	 */
+	public void initBoardDeferred(int seed, RandomSource source) {
+		if (!hasCells()) {
+			buildCells();
+		}
+		random = source;
+		initGame(seed);
+		deferred = true;
+		openings = null;
+	}
 
-			// place mine
-			board.get(row, col).setMine();
-			mineNum++;
+	/**
+	 * method that turns on the opening index: every zero-count region and the
+	 * numbers around it are grouped when the mines are placed, and a click on a
+	 * zero cell opens its region from that list without searching neighbors.
+	 * this board is indexed now, or on the first click if it is deferred.
+	 * O(rowCount x colCount) time, and about 4 bytes per cell plus 4 per
+	 * listed cell of memory.
+	 * 
+	 * @return the index, null until the mines are placed
+	 */
+	public OpeningIndex enableOpeningIndex() {
+		requireSquare();
+		indexOpenings = true;
+		if (openings == null && !deferred) {
+			openings = new OpeningIndex(cells, stride, nbr);
 		}
+		return openings;
+	}
 
-		// calculate nbr counts for each cell
-		for (int row = 0; row < rowCount; row++) {
-			for (int col = 0; col < colCount; col++) {
+	/**
+	 * method reports whether enableOpeningIndex() was called for this game.
+	 * 
+	 * @return true or false
+	 */
+	boolean isOpeningIndexed() {
+		return indexOpenings;
+	}
 
-				// TODO: you implement countNbrMines()
-				int count = countNbrMines(row, col);
-				board.get(row, col).setCount(count);
+	/**
+	 * method reports whether the mines are on the board. only false for a
+	 * deferred board before its first click.
+	 * 
+	 * @return true or false
+	 */
+	public boolean minesPlaced() {
+		return !deferred;
+	}
+
+	/**
+	 * method that returns the frontier: the hidden cells next to an open number.
+	 * the first call finds it in O(rowCount x colCount); after that every
+	 * click, flag, unflag, undo and redo keeps it up to date in O(cells
+	 * changed), until a new board is started.
+	 * 
+	 * @return the frontier of the current board
+	 */
+	public Frontier frontier() {
+		requireSquare();
+		if (frontier == null) {
+			frontier = new Frontier(cells, stride, nbr);
+		}
+		return frontier;
+	}
+
+	/**
+	 * method that suggests the next cell to open: one the open cells prove has
+	 * no mine, or else the hidden cell least likely to have one (see
+	 * HintEngine). flags are not trusted. works from frontier(), so a hint
+	 * costs O(frontier) after the first call.
+	 * 
+	 * @return the hint, null if the game is over
+	 */
+	public Hint hint() {
+		requireSquare();
+		if (status == Status.EXPLODED || status == Status.SOLVED) {
+			return null;
+		}
+		long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+		Hint hint;
+		if (deferred) {
+			// the first click is safe anywhere
+			hint = new Hint(rowCount / 2, colCount / 2, 0, true);
+		} else {
+			frontier();
+			if (hints == null || !hints.fits(cells, stride)) {
+				hints = new HintEngine(cells, stride, nbr);
 			}
+			hint = hints.hint(frontier, rowCount * colCount - clickedCount, mineTotalCount);
+		}
+		if (GameMetrics.ENABLED) {
+			GameMetrics.recordHint(System.nanoTime() - start);
 		}
+		return hint;
+	}
+
+	/**
+	 * method that checks the board is SQUARE, for the features that only know
+	 * the 8 neighbor offsets.
+	 */
+	private void requireSquare() {
+		if (topology != Topology.SQUARE)
+			throw new IllegalStateException("Only square boards support this!");
+	}
 
+	/**
+	 * method reports how the cells of the board touch.
+	 * 
+	 * @return topology
+	 */
+	public Topology topology() {
+		return topology;
+	}
+
+	/**
+	 * method that resets the game settings after a new board is generated.
+	 * 
+	 * @param seed seed
+	 */
+	private void initGame(int seed) {
 		// initialize other game settings
 		status = Status.INIT;
 
 		flaggedCount = 0;
 		clickedCount = 0;
 
+		this.seed = seed;
+		seeded = true;
+		recording = null;
+		detachRecorder();
+		history = null;
+		frontier = null;
+	}
+
+	/**
+	 * method that places the mines from seed and sets every cell's count.
+	 * 
+	 * @param seed    seed
+	 * @param safeRow row of the first click, or -1
+	 * @param safeCol col of the first click, or -1
+	 */
+	private void placeMines(int seed, int safeRow, int safeCol) {
+		long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+		BoardGenerationEvent event = new BoardGenerationEvent();
+		event.begin();
+
+		// randomly place mines on board
+		boolean[] mines = new boolean[rowCount * colCount];
+		int retries = drawMines(seed, random, topology, rowCount, colCount, mineTotalCount, safeRow, safeCol, mines);
+		for (int row = 0, index = 0; row < rowCount; row++) {
+			int p = (row + 1) * stride + 1;
+			for (int col = 0; col < colCount; col++, p++, index++) {
+				if (mines[index]) {
+					cells[p].setMine();
+				}
+			}
+		}
+
+		// calculate nbr counts for each cell
+		setCounts(0, rowCount - 1, 0, colCount - 1);
+		openings = indexOpenings ? new OpeningIndex(cells, stride, nbr) : null;
+
+		if (GameMetrics.ENABLED) {
+			GameMetrics.recordInit(System.nanoTime() - start, retries);
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.rows = rowCount;
+			event.cols = colCount;
+			event.mines = mineTotalCount;
+			event.seed = seed;
+			event.retries = retries;
+			event.commit();
+		}
+	}
+
+	/**
+	 * method that draws the mine layout of a seed without building any cells,
+	 * the same layout initBoard() or a deferred first click would place. with
+	 * safeRow >= 0, no mine is placed on (safeRow,safeCol) or its neighbors,
+	 * unless the board is too full for that; those cells are never drawn, so
+	 * this costs the same number of draws as a plain board.
+	 * 
+	 * @param seed      seed
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount
+	 * @param safeRow   row of the first click, or -1
+	 * @param safeCol   col of the first click, or -1
+	 * @param mines     all false, rowCount * colCount long; set true where a mine
+	 *                  goes (row * colCount + col)
+	 * @return number of draws that hit a mine already
+	 */
+	static int drawMines(int seed, int rowCount, int colCount, int mineCount, int safeRow, int safeCol,
+			boolean[] mines) {
+		return drawMines(seed, RandomSource.LEGACY, Topology.SQUARE, rowCount, colCount, mineCount, safeRow, safeCol,
+				mines);
+	}
+
+	/**
+	 * method that draws the mine layout of a seed like drawMines() above, from
+	 * a random source, keeping the first click's neighbors in a topology free.
+	 * 
+	 * @param seed      seed
+	 * @param source    source
+	 * @param topology  topology
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount
+	 * @param safeRow   row of the first click, or -1
+	 * @param safeCol   col of the first click, or -1
+	 * @param mines     all false, rowCount * colCount long; set true where a mine
+	 *                  goes
+	 * @return number of draws that hit a mine already
+	 */
+	static int drawMines(int seed, RandomSource source, Topology topology, int rowCount, int colCount,
+			int mineCount, int safeRow, int safeCol, boolean[] mines) {
+		// flat indexes kept free of mines, in increasing order
+		int[] excluded = safeRow < 0 ? null
+				: safeArea(topology, rowCount, colCount, mineCount, safeRow, safeCol);
+		int free = excluded == null ? 0 : rowCount * colCount - excluded.length;
+
+		// use seed to initialize a random number sequence
+		RandomGenerator random = source.create(seed);
+
+		int mineNum = 0;
+		int retries = 0;
+		for (; mineNum < mineCount;) {
+
+			// generate next (row, col)
+			int index;
+			if (excluded == null) {
+				int row = random.nextInt(rowCount);
+				int col = random.nextInt(colCount);
+				index = row * colCount + col;
+			} else {
+				// draw among the free cells and skip over the excluded ones
+				index = random.nextInt(free);
+				for (int e : excluded) {
+					if (e <= index) {
+						index++;
+					}
+				}
+			}
+
+			// cell already has a mine: try again
+			if (mines[index]) {
+				retries++;
+				continue;
+			}
+
+			// place mine
+			mines[index] = true;
+			mineNum++;
+		}
+		return retries;
+	}
+
+	/**
+	 * method that lists the cells to keep free of mines for a first click at
+	 * (row,col): the cell and its neighbors, or only the cell if the rest of the
+	 * board can not hold all the mines, or nothing if even that does not fit.
+	 * 
+	 * @param topology  topology
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount
+	 * @param row       row
+	 * @param col       col
+	 * @return flat indexes (row * colCount + col), in increasing order
+	 */
+	private static int[] safeArea(Topology topology, int rowCount, int colCount, int mineCount, int row,
+			int col) {
+		int[] area = new int[Topology.MAX_NEIGHBORS + 1];
+		int size = topology.neighbors(rowCount, colCount, row, col, area) + 1;
+		area[size - 1] = row * colCount + col;
+		Arrays.sort(area, 0, size);
+		int cellCount = rowCount * colCount;
+		if (mineCount <= cellCount - size) {
+			return Arrays.copyOf(area, size);
+		}
+		if (mineCount <= cellCount - 1) {
+			return new int[] { row * colCount + col };
+		}
+		return new int[0];
 	}
 
 	/**
@@ -265,6 +917,15 @@ public class MineSweeper {
 		return colCount;
 	}
 
+	/**
+	 * method reports number of mines.
+	 * 
+	 * @return mineTotalCount
+	 */
+	public int mineCount() {
+		return mineTotalCount;
+	}
+
 	/**
 	 * method reports whether board is solved.
 	 * 
@@ -284,47 +945,51 @@ public class MineSweeper {
 	}
 
 	/**
-	 * method displays board, use this for debugging.
+	 * method displays board, use this for debugging. for big boards, write to
+	 * a stream with BoardWriter.writeBoard() instead.
 	 * 
 	 * @return sb
 	 */
 	public String boardToString() {
-		StringBuilder sb = new StringBuilder();
-
-		// header of column indexes
-		sb.append("- |");
-		for (int j = 0; j < board.getNumCol(); j++) {
-			sb.append(j + "|");
-		}
-		sb.append("\n");
-
-		for (int i = 0; i < board.getNumRow(); i++) {
-			sb.append(i + " |");
-			for (int j = 0; j < board.getNumCol(); j++) {
-				sb.append(board.get(i, j).toString());
-				sb.append("|");
-			}
-			sb.append("\n");
+		StringBuilder sb = new StringBuilder(textSize());
+		try {
+			BoardWriter.writeBoard(this, sb);
+		} catch (IOException ex) {
+			// a StringBuilder does not throw
+			throw new UncheckedIOException(ex);
 		}
-		return sb.toString().trim();
+		return sb.toString();
 
 	}
 
 	/**
-	 * method displays the game status and board, use this for debugging.
+	 * method displays the game status and board, use this for debugging. for
+	 * big boards, write to a stream with BoardWriter.writeGame() instead.
 	 * 
 	 * @return sb
 	 */
 	@Override
 	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append("Board Size: " + rowCount() + " x " + colCount() + "\n");
-		sb.append("Total mines: " + mineTotalCount + "\n");
-		sb.append("Remaining mines: " + mineLeft() + "\n");
-		sb.append("Game status: " + getStatus() + "\n");
+		StringBuilder sb = new StringBuilder(textSize() + 96);
+		try {
+			BoardWriter.writeGame(this, sb);
+		} catch (IOException ex) {
+			// a StringBuilder does not throw
+			throw new UncheckedIOException(ex);
+		}
+		return sb.toString();
+	}
 
-		sb.append(boardToString());
-		return sb.toString().trim();
+	/**
+	 * method that estimates the length of boardToString(), so the builder is
+	 * sized once.
+	 * 
+	 * @return estimated number of chars
+	 */
+	private int textSize() {
+		long digits = String.valueOf(Math.max(rowCount, colCount)).length() + 1;
+		long size = (colCount + 1) * (digits + 2L) + rowCount * (digits + 3L + 2L * colCount);
+		return (int) Math.min(size, Integer.MAX_VALUE - 8);
 	}
 
 
@@ -340,11 +1005,11 @@ public class MineSweeper {
 	public boolean isFlagged(int row, int col) {
 
 		// return false for invalid cell indexes
-		if (!board.isValidCell(row, col)) {
+		if (!isValid(row, col)) {
 			return false;
 		}
 
-		Cell cell = board.get(row, col);
+		Cell cell = cells[(row + 1) * stride + col + 1];
 		return (cell.isFlagged());
 	}
 
@@ -359,14 +1024,46 @@ public class MineSweeper {
 	public boolean isVisible(int row, int col) {
 
 		// return false for invalid cell indexes
-		if (!board.isValidCell(row, col)) {
+		if (!isValid(row, col)) {
 			return false;
 		}
 
-		Cell cell = board.get(row, col);
+		Cell cell = cells[(row + 1) * stride + col + 1];
 		return (cell.visible());
 	}
 
+	/**
+	 * method that writes the open and flagged cells as bitplanes, bit
+	 * row * colCount + col, for BoardPlanes. every word is written whole, so the
+	 * planes need no clearing first. O(rowCount x colCount)
+	 *
+	 * @param visible open cells, (rowCount x colCount + 63) / 64 long
+	 * @param flagged flagged cells, same length
+	 */
+	void capture(long[] visible, long[] flagged) {
+		long open = 0;
+		long flag = 0;
+		int index = 0;
+		for (int row = 0; row < rowCount; row++) {
+			int p = (row + 1) * stride + 1;
+			for (int col = 0; col < colCount; col++, p++, index++) {
+				Cell cell = cells[p];
+				open |= (cell.visible() ? 1L : 0L) << index;
+				flag |= (cell.isFlagged() ? 1L : 0L) << index;
+				if ((index & 63) == 63) {
+					visible[index >>> 6] = open;
+					flagged[index >>> 6] = flag;
+					open = 0;
+					flag = 0;
+				}
+			}
+		}
+		if ((index & 63) != 0) {
+			visible[index >>> 6] = open;
+			flagged[index >>> 6] = flag;
+		}
+	}
+
 	/**
 	 * method to report if cell has mine. return true if cell at (row,col) has a
 	 * mine, regardless whether it has been flagged or not; false otherwise
@@ -378,11 +1075,11 @@ public class MineSweeper {
 	public boolean hasMine(int row, int col) {
 
 		// return false for invalid cell indexes
-		if (!board.isValidCell(row, col)) {
+		if (!isValid(row, col)) {
 			return false;
 		}
 
-		Cell cell = board.get(row, col);
+		Cell cell = cells[(row + 1) * stride + col + 1];
 		return (cell.hasMine());
 	}
 
@@ -396,11 +1093,11 @@ public class MineSweeper {
 	public int getCount(int row, int col) {
 
 		// return -2 for invalid cell indexes
-		if (!board.isValidCell(row, col)) {
+		if (!isValid(row, col)) {
 			return -2;
 		}
 
-		Cell cell = board.get(row, col);
+		Cell cell = cells[(row + 1) * stride + col + 1];
 		return (cell.getCount());
 	}
 
@@ -426,7 +1123,9 @@ public class MineSweeper {
 
 
 	/**
-	 * method that returns the game board.
+	 * method that returns the game board. cells may be inspected or changed in
+	 * place, but rows/columns must not be added, removed or replaced; use
+	 * setBoard() for a different board.
 	 * 
 	 * @return board
 	 */
@@ -447,6 +1146,7 @@ public class MineSweeper {
 		// set size
 		rowCount = board.getNumRow();
 		colCount = board.getNumCol();
+		buildCells();
 
 		// set other features
 		status = Status.INIT;
@@ -454,8 +1154,274 @@ public class MineSweeper {
 		flaggedCount = 0;
 		clickedCount = 0;
 		mineTotalCount = mineCount;
+
+		// a board set from outside can not be rebuilt from a seed
+		level = Level.CUSTOM;
+		seeded = false;
+		deferred = false;
+		openings = indexOpenings ? new OpeningIndex(cells, stride, nbr) : null;
+		recording = null;
+		detachRecorder();
+		history = null;
+		frontier = null;
+	}
+
+
+	/**
+	 * method that starts logging moves so the game can be saved as a compact
+	 * snapshot (see GameSnapshot). must be called before the first move.
+	 * 
+	 * @return the log, which grows as moves are made
+	 */
+	public GameSnapshot startRecording() {
+		if (!seeded) {
+			throw new IllegalStateException("Board was not generated from a seed!");
+		}
+		if (random != RandomSource.LEGACY) {
+			throw new IllegalStateException("Only boards of RandomSource.LEGACY can be recorded!");
+		}
+		requireSquare();
+		if (recording == null) {
+			if (status != Status.INIT || clickedCount != 0 || flaggedCount != 0) {
+				throw new IllegalStateException("Recording must start before the first move!");
+			}
+			recording = new GameSnapshot(level, rowCount, colCount, mineTotalCount, seed, deferred);
+		}
+		return recording;
+	}
+
+	/**
+	 * method that logs this game's moves, with timestamps, to a recorder shared
+	 * by many games. must be called before the first move. the game is detached
+	 * by detachRecorder() or when a new board is set.
+	 * 
+	 * @param recorder recorder
+	 * @return id of the game in the log
+	 */
+	public int attachRecorder(GameRecorder recorder) {
+		if (!seeded) {
+			throw new IllegalStateException("Board was not generated from a seed!");
+		}
+		if (random != RandomSource.LEGACY) {
+			throw new IllegalStateException("Only boards of RandomSource.LEGACY can be recorded!");
+		}
+		requireSquare();
+		if (status != Status.INIT || clickedCount != 0 || flaggedCount != 0) {
+			throw new IllegalStateException("Recording must start before the first move!");
+		}
+		detachRecorder();
+		recorderGame = recorder.start(new GameSnapshot(level, rowCount, colCount, mineTotalCount, seed, deferred));
+		this.recorder = recorder;
+		return recorderGame;
+	}
+
+	/**
+	 * method that logs the end of this game to its recorder and stops logging.
+	 */
+	public void detachRecorder() {
+		if (recorder != null) {
+			recorder.end(recorderGame);
+			recorder = null;
+		}
+	}
+
+	/**
+	 * method that adds a move to the snapshot log and the recorder, if any.
+	 * 
+	 * @param type move type (see GameSnapshot)
+	 * @param row  row, ignored for UNDO and REDO
+	 * @param col  col, ignored for UNDO and REDO
+	 */
+	private void logMove(int type, int row, int col) {
+		if (recording != null) {
+			recording.append(type, row, col);
+		}
+		if (recorder != null) {
+			recorder.move(recorderGame, type, row * colCount + col);
+		}
+	}
+
+	/**
+	 * method that returns the move log.
+	 * 
+	 * @return recording, null if startRecording() was not called
+	 */
+	public GameSnapshot getRecording() {
+		return recording;
+	}
+
+	/**
+	 * set move log, used when a game is restored from a snapshot.
+	 * 
+	 * @param recording recording
+	 */
+	void setRecording(GameSnapshot recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * method that applies a logged move without the checks of the public
+	 * methods. the move must have been valid when it was logged.
+	 * 
+	 * @param type move type (see GameSnapshot)
+	 * @param row  row
+	 * @param col  col
+	 */
+	void replay(int type, int row, int col) {
+		switch (type) {
+			case GameSnapshot.CLICK:
+				click(row, col);
+				break;
+			case GameSnapshot.UNDO:
+				undo();
+				break;
+			case GameSnapshot.REDO:
+				redo();
+				break;
+			default:
+				toggleFlag(cells[(row + 1) * stride + col + 1], row, col);
+		}
+	}
+
+	/**
+	 * method that turns on undo/redo. moves made before this call can not be
+	 * undone.
+	 * 
+	 * @return the history
+	 */
+	public GameHistory enableUndo() {
+		if (history == null) {
+			history = new GameHistory();
+		}
+		return history;
+	}
+
+	/**
+	 * method that takes back the last move. O(number of cells the move changed)
+	 * 
+	 * @return true if a move was undone, false if there was nothing to undo
+	 */
+	public boolean undo() {
+		if (history == null || !history.canUndo()) {
+			return false;
+		}
+		int move = history.undo();
+		int type = history.type(move);
+		if (type == GameSnapshot.CLICK) {
+			for (int slot = history.openedEnd(move) - 1; slot >= history.openedStart(move); slot--) {
+				int p = padded(history.openedAt(slot));
+				cells[p].setInvisible();
+				if (!cells[p].hasMine()) {
+					clickedCount--;
+				}
+				if (frontier != null) {
+					frontier.hidden(p);
+				}
+			}
+		} else if (type == GameSnapshot.FLAG) {
+			cellAt(history.target(move)).unFlagged();
+			flaggedCount--;
+			flagChanged(history.target(move));
+		} else {
+			cellAt(history.target(move)).setFlagged();
+			flaggedCount++;
+			flagChanged(history.target(move));
+		}
+		status = history.before(move);
+
+		logMove(GameSnapshot.UNDO, 0, 0);
+		return true;
+	}
+
+	/**
+	 * method that re-applies the last undone move. O(number of cells the move
+	 * changed)
+	 * 
+	 * @return true if a move was redone, false if there was nothing to redo
+	 */
+	public boolean redo() {
+		if (history == null || !history.canRedo()) {
+			return false;
+		}
+		int move = history.redo();
+		int type = history.type(move);
+		if (type == GameSnapshot.CLICK) {
+			for (int slot = history.openedStart(move); slot < history.openedEnd(move); slot++) {
+				int p = padded(history.openedAt(slot));
+				cells[p].setVisible();
+				if (!cells[p].hasMine()) {
+					clickedCount++;
+				}
+				if (frontier != null) {
+					frontier.opened(p);
+				}
+			}
+		} else if (type == GameSnapshot.FLAG) {
+			cellAt(history.target(move)).setFlagged();
+			flaggedCount++;
+			flagChanged(history.target(move));
+		} else {
+			cellAt(history.target(move)).unFlagged();
+			flaggedCount--;
+			flagChanged(history.target(move));
+		}
+		status = history.after(move);
+
+		logMove(GameSnapshot.REDO, 0, 0);
+		return true;
+	}
+
+	/**
+	 * method that reports the current position in the history, which can be
+	 * passed to rollback() later. handy for solvers trying out moves.
+	 * 
+	 * @return history position
+	 */
+	public int mark() {
+		return enableUndo().position();
 	}
 
+	/**
+	 * method that undoes moves until the history is back at mark.
+	 * 
+	 * @param mark a value returned by mark()
+	 */
+	public void rollback(int mark) {
+		while (history != null && history.position() > mark && undo()) {
+			// undo() does the work
+		}
+	}
+
+	/**
+	 * method that returns the cell at a flat index (row * colCount + col).
+	 * 
+	 * @param index index
+	 * @return the cell
+	 */
+	private Cell cellAt(int index) {
+		return cells[padded(index)];
+	}
+
+	/**
+	 * method that tells the frontier, if there is one, about a flag change.
+	 * 
+	 * @param index flat index (row * colCount + col)
+	 */
+	private void flagChanged(int index) {
+		if (frontier != null) {
+			frontier.flagged(padded(index));
+		}
+	}
+
+	/**
+	 * method that turns a flat index (row * colCount + col) into a padded one.
+	 * 
+	 * @param index index
+	 * @return padded index
+	 */
+	private int padded(int index) {
+		return (index / colCount + 1) * stride + index % colCount + 1;
+	}
 
 	/**
 	 * method to create and return a grid with rowNum x colNum individual cells in
@@ -496,74 +1462,131 @@ public class MineSweeper {
 	 * @return -1, -1, or countMine
 	 */
 	public int countNbrMines(int row, int col) {
+		if (!GameMetrics.ENABLED) {
+			return countMines(row, col);
+		}
+		long start = System.nanoTime();
+		int count = countMines(row, col);
+		GameMetrics.recordCount(System.nanoTime() - start);
+		return count;
+	}
+
+	/**
+	 * method that does the work of countNbrMines().
+	 * 
+	 * @param row row
+	 * @param col col
+	 * @return -2, -1, or countMine
+	 */
+	private int countMines(int row, int col) {
 
 		// return -2 for invalid row / col indexes
-		if (board.isValidCell(row, col) == false) {
+		if (!isValid(row, col)) {
 			return -2;
 		}
 		// return -1 if cell at (row, col) has a mine underneath it
-		if (hasMine(row, col) == true) {
+		int p = (row + 1) * stride + col + 1;
+		if (cells[p].hasMine()) {
 			return -1;
 		}
-		int countMine = 0;
-		if (board.isValidCell(row - 1, col - 1) && hasMine(row - 1, col - 1)) {
-			countMine++;
-		}
-		if (board.isValidCell(row - 1, col) && hasMine(row - 1, col)) {
-			countMine++;
-		}
-		if (board.isValidCell(row - 1, col + 1) && hasMine(row - 1, col + 1)) {
-			countMine++;
-		}
-		if (board.isValidCell(row, col - 1) && hasMine(row, col - 1)) {
-			countMine++;
+		return nbrMines(p);
+	}
+
+	// ******************************************************
+	// ******* Methods to support game operations *******
+	// ******************************************************
+
+	/**
+	 * method to open cell located at (row,col).
+	 * 
+	 * 
+	 * @param row row
+	 * @param col col
+	 * @return -2, -1, clickedAt.getCount()
+	 */
+	public int clickAt(int row, int col) {
+
+		// for an invalid cell location, no change and return -2
+		if (!isValid(row, col)) {
+			return -2;
 		}
-		if (hasMine(row, col + 1) && board.isValidCell(row, col + 1)) {
-			countMine++;
+
+		if (!GameMetrics.ENABLED) {
+			return click(row, col);
 		}
-		if (board.isValidCell(row + 1, col - 1) && hasMine(row + 1, col - 1)) {
-			countMine++;
+		long start = System.nanoTime();
+		int before = clickedCount;
+		maxDepth = 0;
+		int result = click(row, col);
+		GameMetrics.recordClick(System.nanoTime() - start, clickedCount - before, maxDepth);
+		return result;
+	}
+
+	/**
+	 * method that makes a click on a valid cell, logging it if needed.
+	 * 
+	 * @param row row
+	 * @param col col
+	 * @return -2, -1, or the count of the cell
+	 */
+	private int click(int row, int col) {
+		logMove(GameSnapshot.CLICK, row, col);
+		FloodFillEvent event = new FloodFillEvent();
+		event.begin();
+		int before = clickedCount;
+
+		if (history != null) {
+			history.begin(GameSnapshot.CLICK, row * colCount + col, status);
 		}
-		if (board.isValidCell(row + 1, col + 1) && hasMine(row + 1, col + 1)) {
-			countMine++;
+		int result = open(row, col);
+		if (history != null) {
+			history.end(status);
 		}
-		if (board.isValidCell(row + 1, col) && hasMine(row + 1, col)) {
-			countMine++;
+
+		event.end();
+		if (result == 0 && event.shouldCommit()) {
+			event.row = row;
+			event.col = col;
+			event.cellsRevealed = clickedCount - before;
+			event.commit();
 		}
-		return countMine;
+		return result;
 	}
 
-	// ******************************************************
-	// ******* Methods to support game operations *******
-	// ******************************************************
-
 	/**
-	 * method to open cell located at (row,col).
-	 * 
+	 * method that opens a valid cell located at (row,col), flooding into the
+	 * neighbors of zero-count cells.
 	 * 
 	 * @param row row
 	 * @param col col
 	 * @return -2, -1, clickedAt.getCount()
 	 */
-	public int clickAt(int row, int col) {
-
-		// for an invalid cell location, no change and return -2
-		if (board.isValidCell(row, col) == false) {
-			return -2;
-		}
+	private int open(int row, int col) {
 
-		Cell clickedAt = board.get(row, col);
+		int p = (row + 1) * stride + col + 1;
+		Cell clickedAt = cells[p];
 		status = Status.INGAME;
 		// for a valid cell location, no change if cell is already flagged or exposed,
 		// return -2
 		if (clickedAt.isFlagged() || clickedAt.visible()) {
 			return -2;
 		}
+		// a deferred board gets its mines now, around this cell
+		if (deferred) {
+			placeMines(seed, row, col);
+			deferred = false;
+		}
 		// if cell has a mine, open it would explode the mine, update game status
 		// accordingly and return -1
 		if (clickedAt.hasMine()) {
 			status = Status.EXPLODED;
 			clickedAt.setVisible();
+			if (frontier != null) {
+				frontier.opened(p);
+			}
+			if (history != null) {
+				history.opened(row * colCount + col);
+			}
 			return -1;
 		}
 
@@ -572,44 +1595,139 @@ public class MineSweeper {
 		// also open all zero-count cells that are connected to this cell,
 		// as well as all cells that are orthogonally or diagonally adjacent
 		// to those zero-count cells.
-		// - HINT: recursion can really help! Consider define private helper methods.
-		// - update game status as needed
-		// - update other game features as needed
+		reveal(p);
+		if (clickedAt.getCount() == 0 && !openIndexed(p)) {
+			flood(p);
+		}
 
-		clickedAt.setVisible();
-		clickedCount++;
+		if (clickedCount == (rowCount * colCount) - mineTotalCount) {
+			status = Status.SOLVED;
+		}
+		return clickedAt.getCount();
+	}
 
-		if (clickedAt.getCount() == 0) {
+	/**
+	 * method that opens everything reachable from an open zero-count cell. uses
+	 * an explicit stack, so region size is not limited by the call stack; the
+	 * sentinel border is open, so it stops the fill without bounds checks. the
+	 * neighbor lookup is chosen once per fill: SQUARE adds its offsets, the
+	 * other topologies read their table.
+	 * 
+	 * @param start padded index of an open zero-count cell
+	 */
+	private void flood(int start) {
+		if (stack == null) {
+			stack = new int[64];
+		}
+		stack[0] = start;
+		if (adj == null) {
+			floodSquare();
+		} else {
+			floodTable(adj);
+		}
+	}
 
-			if (board.isValidCell(row - 1, col - 1) && !board.get(row - 1, col - 1).visible()) {
-				clickAt(row - 1, col - 1);
-			}
-			if (board.isValidCell(row - 1, col) && !board.get(row - 1, col).visible()) {
-				clickAt(row - 1, col);
+	/**
+	 * method that runs the fill of flood() on a SQUARE board.
+	 */
+	private void floodSquare() {
+		int top = 1;
+		while (top > 0) {
+			int p = stack[--top];
+			for (int k = 0; k < 8; k++) {
+				top = visit(p + nbr[k], top);
 			}
-			if (board.isValidCell(row - 1, col + 1) && !board.get(row - 1, col + 1).visible()) {
-				clickAt(row - 1, col + 1);
+			if (GameMetrics.ENABLED && top > maxDepth) {
+				maxDepth = top;
 			}
-			if (board.isValidCell(row, col - 1) && !board.get(row, col - 1).visible()) {
-				clickAt(row, col - 1);
+		}
+	}
+
+	/**
+	 * method that runs the fill of flood() through a neighbor table.
+	 * 
+	 * @param table neighbor table
+	 */
+	private void floodTable(int[] table) {
+		int top = 1;
+		while (top > 0) {
+			int p = stack[--top];
+			int base = p * Topology.MAX_NEIGHBORS;
+			for (int k = 0; k < Topology.MAX_NEIGHBORS; k++) {
+				top = visit(table[base + k], top);
 			}
-			if (board.isValidCell(row, col + 1) && !board.get(row, col + 1).visible()) {
-				clickAt(row, col + 1);
+			if (GameMetrics.ENABLED && top > maxDepth) {
+				maxDepth = top;
 			}
-			if (board.isValidCell(row + 1, col - 1) && !board.get(row + 1, col - 1).visible()) {
-				clickAt(row + 1, col - 1);
+		}
+	}
+
+	/**
+	 * method that opens a neighbor during a flood fill, and pushes it if it is a
+	 * zero-count cell.
+	 * 
+	 * @param n   padded index of the neighbor
+	 * @param top size of the stack
+	 * @return new size of the stack
+	 */
+	private int visit(int n, int top) {
+		Cell cell = cells[n];
+		if (cell.visible() || cell.isFlagged()) {
+			return top;
+		}
+		reveal(n);
+		if (cell.getCount() == 0) {
+			if (top == stack.length) {
+				stack = Arrays.copyOf(stack, top * 2);
 			}
-			if (board.isValidCell(row + 1, col + 1) && !board.get(row + 1, col + 1).visible()) {
-				clickAt(row + 1, col + 1);
+			stack[top++] = n;
+		}
+		return top;
+	}
+
+	/**
+	 * method that opens the rest of a zero cell's region from the opening index.
+	 * a flag anywhere in the region can cut it short, so then the flood fill is
+	 * left to do it.
+	 * 
+	 * @param start padded index of a zero-count cell just opened
+	 * @return true if the region was opened, false if there is no index or a
+	 *         flag is in the way
+	 */
+	private boolean openIndexed(int start) {
+		if (openings == null) {
+			return false;
+		}
+		int opening = openings.openingOf(start);
+		int end = openings.end(opening);
+		for (int slot = openings.start(opening); slot < end; slot++) {
+			if (cells[openings.cellAt(slot)].isFlagged()) {
+				return false;
 			}
-			if (board.isValidCell(row + 1, col) && !board.get(row + 1, col).visible()) {
-				clickAt(row + 1, col);
+		}
+		for (int slot = openings.start(opening); slot < end; slot++) {
+			int p = openings.cellAt(slot);
+			if (!cells[p].visible()) {
+				reveal(p);
 			}
 		}
-		if (clickedCount == (rowCount * colCount) - mineTotalCount) {
-			status = Status.SOLVED;
+		return true;
+	}
+
+	/**
+	 * method that opens one hidden cell without a mine.
+	 * 
+	 * @param p padded index
+	 */
+	private void reveal(int p) {
+		cells[p].setVisible();
+		clickedCount++;
+		if (frontier != null) {
+			frontier.opened(p);
+		}
+		if (history != null) {
+			history.opened((p / stride - 1) * colCount + p % stride - 1);
 		}
-		return clickedAt.getCount();
 	}
 
 	/**
@@ -623,15 +1741,18 @@ public class MineSweeper {
 	public boolean flagAt(int row, int col) {
 
 		// return false for an invalid cell location or cell already open
-		if (board.isValidCell(row, col) == false || board.get(row, col).visible()) {
+		if (!isValid(row, col)) {
+			return false;
+		}
+		Cell cell = cells[(row + 1) * stride + col + 1];
+		if (cell.visible()) {
 			return false;
 		}
 
 		// otherwise, flag the cell as needed and update relevant game features
 		// update game status as needed
-		if (!board.get(row, col).isFlagged()) {
-			board.get(row, col).setFlagged();
-			flaggedCount++;
+		if (!cell.isFlagged()) {
+			toggleFlag(cell, row, col);
 		}
 		return true;
 	}
@@ -648,18 +1769,441 @@ public class MineSweeper {
 
 		// return false for an invalid cell location or no change if cell is not flagged
 		// before
-		if (board.isValidCell(row, col) == false || board.get(row, col).visible()) {
+		if (!isValid(row, col)) {
+			return false;
+		}
+		Cell cell = cells[(row + 1) * stride + col + 1];
+		if (cell.visible()) {
 			return false;
 		}
 		// otherwise, unflag the cell and update relevant game features
-		if (board.get(row, col).isFlagged()) {
-			board.get(row, col).unFlagged();
-			flaggedCount--;
+		if (cell.isFlagged()) {
+			toggleFlag(cell, row, col);
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * method that flips the flag of a hidden cell and updates the flag count,
+	 * logging the move if needed.
+	 * 
+	 * @param cell cell at (row,col)
+	 * @param row  row
+	 * @param col  col
+	 */
+	private void toggleFlag(Cell cell, int row, int col) {
+		int type;
+		if (cell.isFlagged()) {
+			cell.unFlagged();
+			flaggedCount--;
+			type = GameSnapshot.UNFLAG;
+		} else {
+			cell.setFlagged();
+			flaggedCount++;
+			type = GameSnapshot.FLAG;
+		}
+		flagMoved(type, row, col);
+		if (GameMetrics.ENABLED) {
+			GameMetrics.recordFlagChange();
+		}
+	}
+
+	/**
+	 * method that logs a flag or unflag of (row,col) as a move and tells the
+	 * frontier.
+	 * 
+	 * @param type GameSnapshot.FLAG or UNFLAG
+	 * @param row  row
+	 * @param col  col
+	 */
+	private void flagMoved(int type, int row, int col) {
+		logMove(type, row, col);
+		flagChanged(row * colCount + col);
+		if (history != null) {
+			history.begin(type, row * colCount + col, status);
+			history.end(status);
+		}
+	}
+
+	/**
+	 * method to flag many cells at once, as if flagAt() was called on each;
+	 * invalid and open cells are skipped. flaggedCount is updated once. for
+	 * undo and recordings every changed cell is still its own move.
+	 * O(indexes.length)
+	 * 
+	 * @param indexes flat indexes (row * colCount + col)
+	 * @return number of cells that went from unflagged to flagged
+	 */
+	public int flagAll(int[] indexes) {
+		return setFlags(indexes, true);
+	}
+
+	/**
+	 * method to un-flag many cells at once, as if unFlagAt() was called on
+	 * each. O(indexes.length)
+	 * 
+	 * @param indexes flat indexes (row * colCount + col)
+	 * @return number of cells that went from flagged to unflagged
+	 */
+	public int unFlagAll(int[] indexes) {
+		return setFlags(indexes, false);
+	}
+
+	/**
+	 * method to flag every hidden cell of a rectangle, cut to the board.
+	 * O(rectangle)
+	 * 
+	 * @param row0 first row
+	 * @param col0 first col
+	 * @param row1 last row
+	 * @param col1 last col
+	 * @return number of cells that went from unflagged to flagged
+	 */
+	public int flagRegion(int row0, int col0, int row1, int col1) {
+		return setFlags(row0, col0, row1, col1, true);
+	}
+
+	/**
+	 * method to un-flag every flagged cell of a rectangle, cut to the board.
+	 * O(rectangle)
+	 * 
+	 * @param row0 first row
+	 * @param col0 first col
+	 * @param row1 last row
+	 * @param col1 last col
+	 * @return number of cells that went from flagged to unflagged
+	 */
+	public int unFlagRegion(int row0, int col0, int row1, int col1) {
+		return setFlags(row0, col0, row1, col1, false);
+	}
+
+	/**
+	 * method that does the work of flagAll() and unFlagAll().
+	 * 
+	 * @param indexes flat indexes
+	 * @param flag    true to flag, false to un-flag
+	 * @return number of cells changed
+	 */
+	private int setFlags(int[] indexes, boolean flag) {
+		int cellCount = rowCount * colCount;
+		boolean logged = logsFlags();
+		int changed = 0;
+		for (int index : indexes) {
+			if (index < 0 || index >= cellCount) {
+				continue;
+			}
+			int row = index / colCount;
+			int col = index - row * colCount;
+			if (setFlag(cells[(row + 1) * stride + col + 1], flag)) {
+				changed++;
+				if (logged) {
+					flagMoved(flag ? GameSnapshot.FLAG : GameSnapshot.UNFLAG, row, col);
+				}
+			}
+		}
+		return flagsChanged(changed, flag);
+	}
+
+	/**
+	 * method that does the work of flagRegion() and unFlagRegion().
+	 * 
+	 * @param row0 first row
+	 * @param col0 first col
+	 * @param row1 last row
+	 * @param col1 last col
+	 * @param flag true to flag, false to un-flag
+	 * @return number of cells changed
+	 */
+	private int setFlags(int row0, int col0, int row1, int col1, boolean flag) {
+		boolean logged = logsFlags();
+		int changed = 0;
+		for (int row = Math.max(row0, 0); row <= Math.min(row1, rowCount - 1); row++) {
+			int col = Math.max(col0, 0);
+			int p = (row + 1) * stride + col + 1;
+			for (; col <= Math.min(col1, colCount - 1); col++, p++) {
+				if (setFlag(cells[p], flag)) {
+					changed++;
+					if (logged) {
+						flagMoved(flag ? GameSnapshot.FLAG : GameSnapshot.UNFLAG, row, col);
+					}
+				}
+			}
+		}
+		return flagsChanged(changed, flag);
+	}
+
+	/**
+	 * method that flags or un-flags one hidden cell, without counting it.
+	 * 
+	 * @param cell cell
+	 * @param flag true to flag, false to un-flag
+	 * @return true if the cell changed
+	 */
+	private static boolean setFlag(Cell cell, boolean flag) {
+		if (cell.visible() || cell.isFlagged() == flag) {
+			return false;
+		}
+		if (flag) {
+			cell.setFlagged();
+		} else {
+			cell.unFlagged();
+		}
+		return true;
+	}
+
+	/**
+	 * method reports whether a flag change has to be logged cell by cell: for
+	 * a recording, a recorder, the undo history or the frontier.
+	 * 
+	 * @return true or false
+	 */
+	private boolean logsFlags() {
+		return recording != null || recorder != null || history != null || frontier != null;
+	}
+
+	/**
+	 * method that adds the cells changed by a batch to flaggedCount.
+	 * 
+	 * @param changed number of cells changed
+	 * @param flag    true if they were flagged, false if un-flagged
+	 * @return changed
+	 */
+	private int flagsChanged(int changed, boolean flag) {
+		flaggedCount += flag ? changed : -changed;
+		if (GameMetrics.ENABLED && changed > 0) {
+			GameMetrics.recordFlagChanges(changed);
+		}
+		return changed;
+	}
+
+	/**
+	 * method to insert a hidden row at index row during play, with mineCount
+	 * mines placed in it by random. counts are only recomputed on the new row
+	 * and the rows either side, and a zero cell that is open on that seam
+	 * opens its new neighbors, like a click would. the board becomes CUSTOM:
+	 * it can no longer be rebuilt from its seed, and moves made before can not
+	 * be undone. O(colCount) plus a copy of the cell references.
+	 * 
+	 * @param row       0 to rowCount
+	 * @param mineCount 0 to colCount
+	 * @param random    random
+	 */
+	public void insertRow(int row, int mineCount, RandomGenerator random) {
+		checkResize();
+		if (row < 0 || row > rowCount || mineCount < 0 || mineCount > colCount)
+			throw new IllegalArgumentException("Bad row or mine count!");
+		DynArr310<Cell> line = newLine(colCount, mineCount, random);
+		board.addRow(row, line);
+
+		// shift the rows below down by one padded row
+		Cell[] grown = new Cell[cells.length + stride];
+		int at = (row + 1) * stride;
+		System.arraycopy(cells, 0, grown, 0, at);
+		System.arraycopy(cells, at, grown, at + stride, cells.length - at);
+		grown[at] = SENTINEL;
+		grown[at + stride - 1] = SENTINEL;
+		for (int col = 0; col < colCount; col++) {
+			grown[at + col + 1] = line.get(col);
+		}
+		cells = grown;
+		rowCount++;
+		mineTotalCount += mineCount;
+		resized(row - 1, row + 1, 0, colCount - 1);
+	}
+
+	/**
+	 * method to remove the row at index row during play, with its mines, flags
+	 * and open cells. counts are only recomputed on the rows either side, which
+	 * may open more cells (see insertRow()). O(colCount) plus a copy of the cell
+	 * references.
+	 * 
+	 * @param row 0 to rowCount - 1, and another row must be left
+	 */
+	public void removeRow(int row) {
+		checkResize();
+		if (row < 0 || row >= rowCount || rowCount == 1)
+			throw new IllegalArgumentException("Bad row!");
+		int at = (row + 1) * stride;
+		for (int col = 0; col < colCount; col++) {
+			dropped(cells[at + col + 1]);
+		}
+		board.removeRow(row);
+
+		Cell[] shrunk = new Cell[cells.length - stride];
+		System.arraycopy(cells, 0, shrunk, 0, at);
+		System.arraycopy(cells, at + stride, shrunk, at, shrunk.length - at);
+		cells = shrunk;
+		rowCount--;
+		resized(row - 1, row, 0, colCount - 1);
+	}
+
+	/**
+	 * method to insert a hidden column at index col during play, with mineCount
+	 * mines placed in it by random (see insertRow()). O(rowCount) plus a copy
+	 * of the cell references.
+	 * 
+	 * @param col       0 to colCount
+	 * @param mineCount 0 to rowCount
+	 * @param random    random
+	 */
+	public void insertCol(int col, int mineCount, RandomGenerator random) {
+		checkResize();
+		if (col < 0 || col > colCount || mineCount < 0 || mineCount > rowCount)
+			throw new IllegalArgumentException("Bad column or mine count!");
+		DynArr310<Cell> line = newLine(rowCount, mineCount, random);
+		board.addCol(col, line);
+
+		// every padded row gets one slot longer, at col + 1
+		int wider = stride + 1;
+		Cell[] grown = new Cell[(rowCount + 2) * wider];
+		for (int r = 0; r < rowCount + 2; r++) {
+			System.arraycopy(cells, r * stride, grown, r * wider, col + 1);
+			System.arraycopy(cells, r * stride + col + 1, grown, r * wider + col + 2, stride - col - 1);
+			grown[r * wider + col + 1] = r == 0 || r == rowCount + 1 ? SENTINEL : line.get(r - 1);
+		}
+		restride(grown, colCount + 1);
+		mineTotalCount += mineCount;
+		resized(0, rowCount - 1, col - 1, col + 1);
+	}
+
+	/**
+	 * method to remove the column at index col during play (see removeRow()).
+	 * O(rowCount) plus a copy of the cell references.
+	 * 
+	 * @param col 0 to colCount - 1, and another column must be left
+	 */
+	public void removeCol(int col) {
+		checkResize();
+		if (col < 0 || col >= colCount || colCount == 1)
+			throw new IllegalArgumentException("Bad column!");
+		for (int row = 0; row < rowCount; row++) {
+			dropped(cells[(row + 1) * stride + col + 1]);
+		}
+		board.removeCol(col);
+
+		int narrower = stride - 1;
+		Cell[] shrunk = new Cell[(rowCount + 2) * narrower];
+		for (int r = 0; r < rowCount + 2; r++) {
+			System.arraycopy(cells, r * stride, shrunk, r * narrower, col + 1);
+			System.arraycopy(cells, r * stride + col + 2, shrunk, r * narrower + col + 1, stride - col - 2);
+		}
+		restride(shrunk, colCount - 1);
+		resized(0, rowCount - 1, col - 1, col);
+	}
+
+	/**
+	 * method that checks the board can be resized now: mines placed, square,
+	 * and no recording that would replay on the old size.
+	 */
+	private void checkResize() {
+		requireSquare();
+		if (deferred)
+			throw new IllegalStateException("Mines are not placed yet!");
+		if (recording != null || recorder != null)
+			throw new IllegalStateException("Recorded games can not be resized!");
+	}
+
+	/**
+	 * method that makes the hidden cells of a new row or column, with mines in
+	 * mineCount of them picked by a partial shuffle.
+	 * 
+	 * @param length    number of cells
+	 * @param mineCount mineCount
+	 * @param random    random
+	 * @return the cells
+	 */
+	private static DynArr310<Cell> newLine(int length, int mineCount, RandomGenerator random) {
+		DynArr310<Cell> line = new DynArr310<>(length);
+		int[] order = new int[length];
+		for (int i = 0; i < length; i++) {
+			line.add(new Cell());
+			order[i] = i;
+		}
+		for (int i = 0; i < mineCount; i++) {
+			int j = i + random.nextInt(length - i);
+			int pick = order[j];
+			order[j] = order[i];
+			line.get(pick).setMine();
+		}
+		return line;
+	}
+
+	/**
+	 * method that takes a cell off the counters before it is removed.
+	 * 
+	 * @param cell cell
+	 */
+	private void dropped(Cell cell) {
+		if (cell.hasMine()) {
+			mineTotalCount--;
+		} else if (cell.visible()) {
+			clickedCount--;
+		}
+		if (cell.isFlagged()) {
+			flaggedCount--;
+		}
+	}
+
+	/**
+	 * method that switches to a padded array of another width.
+	 * 
+	 * @param newCells padded cells
+	 * @param newCols  new colCount
+	 */
+	private void restride(Cell[] newCells, int newCols) {
+		cells = newCells;
+		colCount = newCols;
+		stride = colCount + 2;
+		for (int k = 0; k < nbr.length; k++) {
+			nbr[k] = NBR_ROWS[k] * stride + NBR_COLS[k];
+		}
+	}
+
+	/**
+	 * method that finishes a resize: recounts the seam rectangle (cut to the
+	 * board), opens around open zero cells on it, and brings the status and
+	 * the per-board state up to date.
+	 * 
+	 * @param row0 first seam row
+	 * @param row1 last seam row
+	 * @param col0 first seam col
+	 * @param col1 last seam col
+	 */
+	private void resized(int row0, int row1, int col0, int col1) {
+		row0 = Math.max(row0, 0);
+		row1 = Math.min(row1, rowCount - 1);
+		col0 = Math.max(col0, 0);
+		col1 = Math.min(col1, colCount - 1);
+
+		// flat indexes moved, so the old history and frontier are no use; the
+		// new history starts after the seam is opened
+		GameHistory old = history;
+		history = null;
+		frontier = null;
+		level = Level.CUSTOM;
+		seeded = false;
+
+		setCounts(row0, row1, col0, col1);
+		if (status != Status.EXPLODED) {
+			for (int row = row0; row <= row1; row++) {
+				int p = (row + 1) * stride + col0 + 1;
+				for (int col = col0; col <= col1; col++, p++) {
+					if (cells[p].visible() && cells[p].getCount() == 0) {
+						flood(p);
+					}
+				}
+			}
+			if (status != Status.INIT) {
+				status = clickedCount == rowCount * colCount - mineTotalCount ? Status.SOLVED : Status.INGAME;
+			}
+		}
+		openings = indexOpenings ? new OpeningIndex(cells, stride, nbr) : null;
+		if (old != null) {
+			history = new GameHistory();
+		}
+	}
+
 	// ******************************************************
 	// ******* BELOW THIS LINE IS TESTING CODE *******
 	// ******* Edit it as much as you'd like! *******
@@ -794,6 +2338,266 @@ public class MineSweeper {
 		// 2 | | |1|?|F|
 		// 3 | | |2|3|3|
 		// 4 | | |1|?|1|
+
+		// compact snapshot: record a game, encode it, restore it from the bytes
+		random = new Random(10);
+		game = new MineSweeper(random.nextInt(), Level.TINY);
+		game.startRecording();
+		game.clickAt(3, 3);
+		game.flagAt(2, 3);
+		game.flagAt(2, 4);
+		game.unFlagAt(2, 3);
+		game.clickAt(0, 0);
+		byte[] saved = game.getRecording().toBytes();
+		MineSweeper restored = GameSnapshot.fromBytes(saved).restore();
+		if (saved.length < 16 && restored.toString().equals(game.toString())
+				&& restored.getRecording().moveCount() == 5) {
+			System.out.println("Yay 8");
+		}
+
+		// undo/redo: take back the big opening click, then bring it back
+		random = new Random(10);
+		game = new MineSweeper(random.nextInt(), Level.TINY);
+		game.enableUndo();
+		game.clickAt(3, 3);
+		int mark = game.mark();
+		String before = game.toString();
+		game.flagAt(2, 4);
+		game.clickAt(0, 0);
+		String after = game.toString();
+		if (game.undo() && game.isFlagged(2, 4) && !game.isVisible(0, 0) && game.redo()
+				&& game.toString().equals(after)) {
+			game.rollback(mark);
+			if (game.toString().equals(before) && game.redo() && game.isFlagged(2, 4)) {
+				System.out.println("Yay 9");
+			}
+		}
+
+		// safe first click: no mine around the first click, same board for the
+		// same seed and click, and a snapshot restores it
+		boolean safe = true;
+		for (int s = 0; s < 200; s++) {
+			game = new MineSweeper(s, Level.TINY, true);
+			game.startRecording();
+			safe &= !game.minesPlaced() && game.clickAt(2, 2) == 0 && game.minesPlaced()
+					&& GameSnapshot.fromBytes(game.getRecording().toBytes()).restore().toString()
+							.equals(game.toString());
+		}
+		if (safe && game.isVisible(1, 1) && !game.isExploded()) {
+			System.out.println("Yay 10");
+		}
+
+		// board analysis of the Table 2 board: one opening, three isolated numbers
+		random = new Random(10);
+		game = new MineSweeper(random.nextInt(), Level.TINY);
+		BoardAnalyzer analyzer = new BoardAnalyzer(game);
+		if (analyzer.openings() == 1 && analyzer.isolatedNumbers() == 3 && analyzer.threeBV() == 4
+				&& analyzer.largestOpening() == 13) {
+			System.out.println("Yay 11");
+		}
+
+		// hints: a cell called safe never has a mine, also after undo, and
+		// following the hints wins some games
+		safe = true;
+		int wins = 0;
+		for (int s = 0; s < 100; s++) {
+			game = new MineSweeper(s, Level.EASY, true);
+			game.enableUndo();
+			for (Hint hint = game.hint(); hint != null; hint = game.hint()) {
+				safe &= !hint.isSafe() || !game.hasMine(hint.getRow(), hint.getCol());
+				game.clickAt(hint.getRow(), hint.getCol());
+				if (game.isExploded() && game.undo()) {
+					safe &= game.hint() != null && !game.hint().isSafe();
+					game.redo();
+				}
+			}
+			wins += game.isSolved() ? 1 : 0;
+		}
+		if (safe && wins > 50) {
+			System.out.println("Yay 12");
+		}
+
+		// frontier: after the big opening click of the Table 2 board, the hidden
+		// cells next to an open number, kept the same as a scan through undo
+		random = new Random(10);
+		game = new MineSweeper(random.nextInt(), Level.TINY);
+		game.enableUndo();
+		Frontier frontier = game.frontier();
+		game.clickAt(3, 3);
+		boolean same = frontier.size() > 0;
+		for (int step = 0; step < 2; step++) {
+			int size = 0;
+			for (int row = 0; row < game.rowCount(); row++) {
+				for (int col = 0; col < game.colCount(); col++) {
+					boolean edge = false;
+					for (int k = 0; k < 8; k++) {
+						int r = row + NBR_ROWS[k];
+						int c = col + NBR_COLS[k];
+						edge |= game.isValid(r, c) && game.isVisible(r, c) && !game.isVisible(row, col);
+					}
+					size += edge ? 1 : 0;
+					same &= edge == frontier.contains(row, col);
+				}
+			}
+			same &= size == frontier.size();
+			game.undo();
+		}
+		if (same && frontier.size() == 0 && frontier.dirtyCount() > 0) {
+			System.out.println("Yay 13");
+		}
+
+		// random sources: LEGACY keeps the boards of old seeds, another source
+		// gives its own board for a seed every time, and can not be recorded
+		boolean[] legacy = new boolean[16 * 30];
+		boolean[] split = new boolean[16 * 30];
+		same = true;
+		boolean differs = false;
+		for (int s = 0; s < 20; s++) {
+			game = new MineSweeper(s, Level.HARD);
+			MineSweeper other = new MineSweeper(s, Level.HARD, false, RandomSource.LEGACY);
+			MineSweeper first = new MineSweeper(s, Level.HARD, false, RandomSource.SPLITTABLE);
+			MineSweeper second = new MineSweeper(s, Level.HARD, false, RandomSource.SPLITTABLE);
+			Arrays.fill(legacy, false);
+			Arrays.fill(split, false);
+			drawMines(s, 16, 30, 99, -1, -1, legacy);
+			drawMines(s, RandomSource.SPLITTABLE, Topology.SQUARE, 16, 30, 99, -1, -1, split);
+			for (int row = 0; row < 16; row++) {
+				for (int col = 0; col < 30; col++) {
+					same &= game.hasMine(row, col) == other.hasMine(row, col)
+							&& game.hasMine(row, col) == legacy[row * 30 + col]
+							&& first.hasMine(row, col) == second.hasMine(row, col)
+							&& first.hasMine(row, col) == split[row * 30 + col];
+					differs |= game.hasMine(row, col) != first.hasMine(row, col);
+				}
+			}
+		}
+		try {
+			game = new MineSweeper(1, Level.EASY, false, RandomSource.XOROSHIRO);
+			game.startRecording();
+			same = false;
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		if (same && differs) {
+			System.out.println("Yay 14");
+		}
+
+		// topologies: counts agree with the neighbor lists, a safe first click
+		// opens a region, no open zero cell has a hidden neighbor, and only
+		// square boards can be analyzed
+		int[] near = new int[Topology.MAX_NEIGHBORS];
+		same = true;
+		for (Topology topology : Topology.values()) {
+			for (int s = 0; s < 20; s++) {
+				game = new MineSweeper(s, Level.MEDIUM, true, RandomSource.LEGACY, topology);
+				game.clickAt(8, 8);
+				same &= game.topology() == topology && game.getCount(8, 8) == 0;
+				for (int row = 0; row < game.rowCount(); row++) {
+					for (int col = 0; col < game.colCount(); col++) {
+						int size = topology.neighbors(game.rowCount(), game.colCount(), row, col, near);
+						int mines = 0;
+						boolean hiddenNear = false;
+						for (int k = 0; k < size; k++) {
+							int r = near[k] / game.colCount();
+							int c = near[k] % game.colCount();
+							mines += game.hasMine(r, c) ? 1 : 0;
+							hiddenNear |= !game.isVisible(r, c);
+						}
+						same &= game.hasMine(row, col) ? game.countNbrMines(row, col) == -1
+								: game.countNbrMines(row, col) == mines;
+						same &= !game.isVisible(row, col) || game.getCount(row, col) != 0 || !hiddenNear;
+						same &= topology == Topology.TORUS ? size == 8 : size <= (topology == Topology.HEX ? 6 : 8);
+					}
+				}
+			}
+			try {
+				new BoardAnalyzer(game);
+				same &= topology == Topology.SQUARE;
+			} catch (IllegalStateException e) {
+				same &= topology != Topology.SQUARE;
+			}
+		}
+		if (same) {
+			System.out.println("Yay 15");
+		}
+
+		// bulk flags: invalid, open and repeated cells are skipped, and every
+		// changed cell can be undone
+		random = new Random(10);
+		game = new MineSweeper(random.nextInt(), Level.TINY);
+		game.clickAt(3, 3);
+		int flagged = game.flagAll(new int[] { 0, 0, 5, -1, 1000, 3 * 5 + 3 });
+		int region = game.flagRegion(-2, 3, 1, 20);
+		game.enableUndo();
+		int unflagged = game.unFlagRegion(0, 0, 4, 4);
+		boolean undone = game.undo() && game.undo();
+		int again = game.unFlagAll(new int[] { 0, 5, 6, 7, 8, 9 });
+		if (flagged == 2 && region == 4 && unflagged == 6 && undone && again == 2
+				&& game.mineLeft() == game.mineCount()) {
+			System.out.println("Yay 16");
+		}
+
+		// live resize: the board grows and shrinks around the open cells, and
+		// counts and counters stay the same as a fresh count of the board
+		game = new MineSweeper(3, Level.EASY);
+		game.clickAt(4, 4);
+		game.flagAt(0, 0);
+		SplittableRandom grow = new SplittableRandom(3);
+		game.insertRow(4, 3, grow);
+		game.insertCol(0, 2, grow);
+		game.removeRow(0);
+		game.removeCol(5);
+		int mineCount = 0;
+		same = game.rowCount() == 9 && game.colCount() == 9;
+		for (int row = 0; row < game.rowCount(); row++) {
+			for (int col = 0; col < game.colCount(); col++) {
+				int count = 0;
+				for (int k = 0; k < 8; k++) {
+					count += game.hasMine(row + NBR_ROWS[k], col + NBR_COLS[k]) ? 1 : 0;
+				}
+				mineCount += game.hasMine(row, col) ? 1 : 0;
+				same &= game.getCount(row, col) == (game.hasMine(row, col) ? -1 : count);
+			}
+		}
+		if (same && mineCount == game.mineCount() && game.mineLeft() == mineCount) {
+			System.out.println("Yay 17");
+		}
+
+		// board diffs: a replica patched with the moves of a game looks the same
+		// as the game, and the same patch takes it back
+		game = new MineSweeper(3, Level.EASY);
+		BoardPlanes start = BoardPlanes.of(game);
+		BoardPlanes replica = start.copy();
+		game.clickAt(4, 4);
+		game.flagAt(0, 0);
+		BoardPlanes moved = BoardPlanes.of(game);
+		byte[] patch = BoardDiff.diff(start, moved);
+		BoardDiff.apply(replica, patch);
+		same = replica.equals(moved) && replica.isFlagged(0, 0) && !BoardDiff.isEmpty(patch)
+				&& BoardDiff.isEmpty(BoardDiff.diff(moved, replica));
+		BoardDiff.apply(replica, patch);
+		same &= replica.equals(start);
+		// a resize changes the size, so old planes and patches no longer fit
+		game.insertRow(0, 1, new SplittableRandom(18));
+		BoardPlanes grown = BoardPlanes.of(game);
+		try {
+			BoardDiff.diff(moved, grown);
+			same = false;
+		} catch (IllegalArgumentException ex) {
+		}
+		try {
+			BoardDiff.apply(grown, patch);
+			same = false;
+		} catch (IllegalArgumentException ex) {
+		}
+		try {
+			moved.capture(game);
+			same = false;
+		} catch (IllegalArgumentException ex) {
+		}
+		if (same) {
+			System.out.println("Yay 18");
+		}
 	}
 
 }
\ No newline at end of file
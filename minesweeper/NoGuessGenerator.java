@@ -0,0 +1,266 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds boards that can be solved without guessing. Candidates are safe first
+ * click boards (see MineSweeper.initBoardDeferred()): a candidate seed's layout
+ * is drawn with MineSweeper.drawMines(), without building any cells, and kept
+ * only if Solver clears it from the first click. The game is then built from
+ * the winning seed, so it is exactly the board that was verified.
+ *
+ * The search can run on one thread, which is deterministic, or on a pool,
+ * where every task checks candidates until one succeeds and the rest are
+ * cancelled; which seed wins then depends on timing.
+ *
+ * @author basel barham
+ */
+public class NoGuessGenerator {
+
+	/**
+	 * level of the boards.
+	 */
+	private final MineSweeper.Level level;
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private final int rowCount;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private final int colCount;
+
+	/**
+	 * Number of mines in the board.
+	 */
+	private final int mineCount;
+
+	/**
+	 * most candidates checked by one search before giving up.
+	 */
+	private long maxCandidates = 1_000_000;
+
+	/**
+	 * constructor, generate boards of a pre-defined level.
+	 *
+	 * @param level level, not CUSTOM
+	 */
+	public NoGuessGenerator(MineSweeper.Level level) {
+		if (level == MineSweeper.Level.CUSTOM)
+			throw new IllegalArgumentException("Customized games need more parameters!");
+		int[] size = MineSweeper.levelSize(level);
+		this.level = level;
+		rowCount = size[0];
+		colCount = size[1];
+		mineCount = size[2];
+	}
+
+	/**
+	 * constructor, generate customized boards.
+	 *
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount
+	 */
+	public NoGuessGenerator(int rowCount, int colCount, int mineCount) {
+		level = MineSweeper.Level.CUSTOM;
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		this.mineCount = mineCount;
+	}
+
+	/**
+	 * set the most candidates one search may check before it fails.
+	 *
+	 * @param maxCandidates maxCandidates
+	 */
+	public void setMaxCandidates(long maxCandidates) {
+		this.maxCandidates = maxCandidates;
+	}
+
+	/**
+	 * method that searches candidates start, start + 1, ... in order on this
+	 * thread. the same arguments always give the same seed.
+	 *
+	 * @param firstRow row of the first click
+	 * @param firstCol col of the first click
+	 * @param start    first candidate
+	 * @return seed of a no-guess board
+	 */
+	public int findSeed(int firstRow, int firstCol, long start) {
+		checkCell(firstRow, firstCol);
+		boolean[] mines = new boolean[rowCount * colCount];
+		Solver solver = new Solver(rowCount, colCount);
+		for (long i = 0; i < maxCandidates; i++) {
+			int seed = candidateSeed(start + i);
+			if (check(seed, firstRow, firstCol, mines, solver)) {
+				return seed;
+			}
+		}
+		throw new IllegalStateException("No no-guess board found in " + maxCandidates + " candidates!");
+	}
+
+	/**
+	 * method that searches candidates from start with tasks running on pool.
+	 * the first task to find a board wins and the others are cancelled.
+	 *
+	 * @param firstRow row of the first click
+	 * @param firstCol col of the first click
+	 * @param start    first candidate
+	 * @param pool     pool
+	 * @param tasks    number of tasks, usually the number of cores
+	 * @return seed of a no-guess board
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public int findSeed(int firstRow, int firstCol, long start, ExecutorService pool, int tasks)
+			throws InterruptedException {
+		checkCell(firstRow, firstCol);
+		AtomicLong next = new AtomicLong();
+		AtomicBoolean found = new AtomicBoolean();
+		List<Callable<Integer>> search = new ArrayList<>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			search.add(() -> {
+				boolean[] mines = new boolean[rowCount * colCount];
+				Solver solver = new Solver(rowCount, colCount);
+				while (!found.get() && !Thread.currentThread().isInterrupted()) {
+					long i = next.getAndIncrement();
+					if (i >= maxCandidates) {
+						break;
+					}
+					int seed = candidateSeed(start + i);
+					if (check(seed, firstRow, firstCol, mines, solver)) {
+						found.set(true);
+						return seed;
+					}
+				}
+				throw new IllegalStateException("No no-guess board found in " + maxCandidates + " candidates!");
+			});
+		}
+		try {
+			return pool.invokeAny(search);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
+	/**
+	 * method that builds the game for a seed found by findSeed() and makes the
+	 * first click, which opens the board without a mine.
+	 *
+	 * @param seed     seed
+	 * @param firstRow row of the first click
+	 * @param firstCol col of the first click
+	 * @return the game
+	 */
+	public MineSweeper newGame(int seed, int firstRow, int firstCol) {
+		MineSweeper game;
+		if (level == MineSweeper.Level.CUSTOM) {
+			game = new MineSweeper(seed, level, rowCount, colCount, mineCount, true);
+		} else {
+			game = new MineSweeper(seed, level, true);
+		}
+		game.clickAt(firstRow, firstCol);
+		return game;
+	}
+
+	/**
+	 * method that checks one candidate.
+	 *
+	 * @param seed     seed
+	 * @param firstRow firstRow
+	 * @param firstCol firstCol
+	 * @param mines    scratch layout
+	 * @param solver   solver
+	 * @return true if the board can be solved without guessing
+	 */
+	private boolean check(int seed, int firstRow, int firstCol, boolean[] mines, Solver solver) {
+		Arrays.fill(mines, false);
+		MineSweeper.drawMines(seed, rowCount, colCount, mineCount, firstRow, firstCol, mines);
+		return solver.solve(mines, firstRow, firstCol);
+	}
+
+	/**
+	 * method that rejects a first click off the board.
+	 *
+	 * @param row row
+	 * @param col col
+	 */
+	private void checkCell(int row, int col) {
+		if (row < 0 || row >= rowCount || col < 0 || col >= colCount) {
+			throw new IllegalArgumentException("First click is not on the board!");
+		}
+	}
+
+	/**
+	 * method that turns a candidate number into a seed. java.util.Random gives
+	 * similar first draws for nearby seeds, so candidates are mixed first.
+	 *
+	 * @param candidate candidate
+	 * @return seed
+	 */
+	private static int candidateSeed(long candidate) {
+		long z = candidate * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return (int) (z ^ (z >>> 31));
+	}
+
+	/**
+	 * This method is for testing code: every generated board is won by clicking
+	 * only cells hint() proves safe. then it times no-guess HARD boards.
+	 *
+	 * @param args number of boards, default 200
+	 * @throws InterruptedException if interrupted
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		boolean same = true;
+		for (MineSweeper.Level level : new MineSweeper.Level[] { MineSweeper.Level.EASY, MineSweeper.Level.MEDIUM,
+				MineSweeper.Level.HARD }) {
+			int[] size = MineSweeper.levelSize(level);
+			NoGuessGenerator generator = new NoGuessGenerator(level);
+			for (int i = 0; i < 20; i++) {
+				int seed = generator.findSeed(size[0] / 2, size[1] / 2, (long) i << 32);
+				MineSweeper game = generator.newGame(seed, size[0] / 2, size[1] / 2);
+				Hint hint;
+				while (!game.isSolved() && (hint = game.hint()) != null && hint.isSafe()) {
+					game.clickAt(hint.getRow(), hint.getCol());
+				}
+				same &= game.isSolved();
+			}
+		}
+		if (same) {
+			System.out.println("Yay 1");
+		}
+
+		int boards = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int cores = Runtime.getRuntime().availableProcessors();
+		NoGuessGenerator gen = new NoGuessGenerator(MineSweeper.Level.HARD);
+		ExecutorService pool = Executors.newFixedThreadPool(cores);
+		try {
+			long start = System.nanoTime();
+			for (int i = 0; i < boards; i++) {
+				int seed = gen.findSeed(8, 15, (long) i << 32, pool, cores);
+				MineSweeper game = gen.newGame(seed, 8, 15);
+				if (game.isExploded()) {
+					System.out.println("Boo: seed " + seed);
+				}
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d HARD boards in %.2f s, %.0f boards/s on %d cores%n", boards, seconds,
+					boards / seconds, cores);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
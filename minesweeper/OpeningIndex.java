@@ -0,0 +1,285 @@
+/**
+ * Precomputed openings of a board: every connected region of zero-count cells
+ * together with the numbered cells around it, which is exactly what one click
+ * on a zero cell opens. Built once when the mines are placed, it lets
+ * MineSweeper open a region from a stored list instead of searching
+ * neighbors, so a click costs O(region) with a flat, predictable latency.
+ *
+ * Regions are labelled with union-find in one scan and stored as one flat
+ * list per region (start offsets plus cells), over the padded cell indexes
+ * of MineSweeper. Memory is one int per cell plus one per listed cell; see
+ * memoryBytes().
+ *
+ * @author basel barham
+ */
+public class OpeningIndex {
+
+	/**
+	 * opening of each padded index, -1 for cells that are not zero-count.
+	 */
+	private final int[] openingOf;
+
+	/**
+	 * start of each opening in list, with a final entry for the end.
+	 */
+	private final int[] start;
+
+	/**
+	 * padded indexes of the cells of every opening, zero cells and the numbers
+	 * around them; a number next to two openings is in both.
+	 */
+	private final int[] list;
+
+	/**
+	 * constructor, index the openings of a padded board.
+	 *
+	 * @param cells  cells with a sentinel border, counts set
+	 * @param stride row length of cells
+	 * @param nbr    flat offsets of the 8 neighbors, the row above and the left
+	 *               one first
+	 */
+	OpeningIndex(Cell[] cells, int stride, int[] nbr) {
+		int size = cells.length;
+		openingOf = new int[size];
+		int[] parent = new int[size];
+
+		// join each zero cell with the zero cells before it, the three above and
+		// the left one (the first four offsets of nbr). the sentinel border never
+		// counts as zero
+		for (int p = stride + 1; p < size - stride - 1; p++) {
+			if (!isZero(cells[p])) {
+				continue;
+			}
+			parent[p] = p;
+			for (int k = 0; k < 4; k++) {
+				int q = p + nbr[k];
+				if (isZero(cells[q])) {
+					union(parent, p, q);
+				}
+			}
+		}
+
+		// number the roots, then count each opening's cells
+		int count = 0;
+		for (int p = 0; p < size; p++) {
+			openingOf[p] = -1;
+			if (isZero(cells[p]) && parent[p] == p) {
+				openingOf[p] = count++;
+			}
+		}
+		start = new int[count + 1];
+		for (int p = 0; p < size; p++) {
+			if (isZero(cells[p])) {
+				openingOf[p] = openingOf[find(parent, p)];
+				start[openingOf[p] + 1]++;
+			}
+		}
+		int[] seen = new int[8];
+		for (int p = 0; p < size; p++) {
+			if (isBorder(cells[p])) {
+				int n = openingsAround(cells, p, nbr, seen);
+				for (int i = 0; i < n; i++) {
+					start[seen[i] + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			start[i + 1] += start[i];
+		}
+
+		// fill the lists
+		list = new int[start[count]];
+		int[] fill = new int[count];
+		for (int p = 0; p < size; p++) {
+			if (isZero(cells[p])) {
+				int id = openingOf[p];
+				list[start[id] + fill[id]++] = p;
+			} else if (isBorder(cells[p])) {
+				int n = openingsAround(cells, p, nbr, seen);
+				for (int i = 0; i < n; i++) {
+					int id = seen[i];
+					list[start[id] + fill[id]++] = p;
+				}
+			}
+		}
+	}
+
+	/**
+	 * method reports number of openings.
+	 *
+	 * @return openings
+	 */
+	public int openingCount() {
+		return start.length - 1;
+	}
+
+	/**
+	 * method reports the memory the index holds on to.
+	 *
+	 * @return bytes, not counting object headers
+	 */
+	public long memoryBytes() {
+		return 4L * (openingOf.length + start.length + list.length);
+	}
+
+	/**
+	 * method reports the opening of a cell.
+	 *
+	 * @param p padded index
+	 * @return opening, -1 if the cell is not zero-count
+	 */
+	int openingOf(int p) {
+		return openingOf[p];
+	}
+
+	/**
+	 * method reports where an opening starts in the list.
+	 *
+	 * @param opening opening
+	 * @return first slot
+	 */
+	int start(int opening) {
+		return start[opening];
+	}
+
+	/**
+	 * method reports where an opening ends in the list.
+	 *
+	 * @param opening opening
+	 * @return slot after the last
+	 */
+	int end(int opening) {
+		return start[opening + 1];
+	}
+
+	/**
+	 * method returns a listed cell.
+	 *
+	 * @param slot slot
+	 * @return padded index
+	 */
+	int cellAt(int slot) {
+		return list[slot];
+	}
+
+	/**
+	 * method that lists the distinct openings next to a cell.
+	 *
+	 * @param cells cells
+	 * @param p     padded index
+	 * @param nbr   neighbor offsets
+	 * @param seen  8 slots for the result
+	 * @return number of openings in seen
+	 */
+	private int openingsAround(Cell[] cells, int p, int[] nbr, int[] seen) {
+		int n = 0;
+		for (int k = 0; k < 8; k++) {
+			int q = p + nbr[k];
+			if (!isZero(cells[q])) {
+				continue;
+			}
+			int id = openingOf[q];
+			int i = 0;
+			while (i < n && seen[i] != id) {
+				i++;
+			}
+			if (i == n) {
+				seen[n++] = id;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * method that checks for a zero-count cell.
+	 *
+	 * @param cell cell
+	 * @return true or false
+	 */
+	private static boolean isZero(Cell cell) {
+		return cell.getCount() == 0 && !cell.hasMine();
+	}
+
+	/**
+	 * method that checks for a numbered cell without a mine.
+	 *
+	 * @param cell cell
+	 * @return true or false
+	 */
+	private static boolean isBorder(Cell cell) {
+		return cell.getCount() > 0 && !cell.hasMine();
+	}
+
+	/**
+	 * method that joins the sets of two zero cells.
+	 *
+	 * @param parent parent links
+	 * @param a      a
+	 * @param b      b
+	 */
+	private static void union(int[] parent, int a, int b) {
+		a = find(parent, a);
+		b = find(parent, b);
+		if (a != b) {
+			// keep the earliest cell as root
+			parent[Math.max(a, b)] = Math.min(a, b);
+		}
+	}
+
+	/**
+	 * method that finds the root of a set, halving the path on the way.
+	 *
+	 * @param parent parent links
+	 * @param i      i
+	 * @return root
+	 */
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * This method is for testing code: each opening holds exactly the cells a
+	 * click on one of its zero cells opens on the same board without an index.
+	 *
+	 * @param args args
+	 */
+	public static void main(String[] args) {
+		int rows = 40;
+		int cols = 60;
+		int stride = cols + 2;
+		MineSweeper game = new MineSweeper(11, MineSweeper.Level.CUSTOM, rows, cols, 300);
+		OpeningIndex index = game.enableOpeningIndex();
+		boolean[] checked = new boolean[index.openingCount()];
+		int seen = 0;
+		boolean same = true;
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				int opening = index.openingOf((row + 1) * stride + col + 1);
+				same &= (opening >= 0) == (game.getCount(row, col) == 0);
+				if (opening < 0 || checked[opening]) {
+					continue;
+				}
+				checked[opening] = true;
+				seen++;
+				MineSweeper fresh = new MineSweeper(11, MineSweeper.Level.CUSTOM, rows, cols, 300);
+				fresh.clickAt(row, col);
+				int opened = 0;
+				for (int i = 0; i < rows * cols; i++) {
+					opened += fresh.isVisible(i / cols, i % cols) ? 1 : 0;
+				}
+				same &= opened == index.end(opening) - index.start(opening);
+				for (int slot = index.start(opening); slot < index.end(opening); slot++) {
+					int p = index.cellAt(slot);
+					same &= fresh.isVisible(p / stride - 1, p % stride - 1);
+				}
+			}
+		}
+		if (same && seen == index.openingCount() && seen > 1) {
+			System.out.println("Yay 1");
+		}
+	}
+}
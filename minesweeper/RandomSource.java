@@ -0,0 +1,60 @@
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Where the random numbers for placing mines come from: a generator made from
+ * a board seed. The same source and seed always give the same board.
+ *
+ * LEGACY is java.util.Random, which every board was drawn with before sources
+ * could be chosen, so existing seeds keep their boards; it is the default.
+ * The others are faster and have better statistical quality, but give other
+ * boards for the same seed. Any java.util.random algorithm can be used with
+ * of(), and a source can be any function from a seed to a generator.
+ *
+ * @author basel barham
+ */
+@FunctionalInterface
+public interface RandomSource {
+
+	/**
+	 * java.util.Random, the original boards.
+	 */
+	RandomSource LEGACY = Random::new;
+
+	/**
+	 * java.util.SplittableRandom.
+	 */
+	RandomSource SPLITTABLE = SplittableRandom::new;
+
+	/**
+	 * the L64X128MixRandom algorithm of java.util.random.
+	 */
+	RandomSource L64X128_MIX = of("L64X128MixRandom");
+
+	/**
+	 * the Xoroshiro128PlusPlus algorithm of java.util.random.
+	 */
+	RandomSource XOROSHIRO = of("Xoroshiro128PlusPlus");
+
+	/**
+	 * method that makes the generator for a board.
+	 *
+	 * @param seed seed of the board
+	 * @return a new generator
+	 */
+	RandomGenerator create(long seed);
+
+	/**
+	 * method that returns a source using a java.util.random algorithm. the
+	 * algorithm is looked up once, here.
+	 *
+	 * @param algorithm name, e.g. "L64X256MixRandom"
+	 * @return the source
+	 */
+	static RandomSource of(String algorithm) {
+		RandomGeneratorFactory<RandomGenerator> factory = RandomGeneratorFactory.of(algorithm);
+		return factory::create;
+	}
+}
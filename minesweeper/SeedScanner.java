@@ -0,0 +1,363 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans a range of seeds, up to the whole 32-bit seed space, and collects the
+ * figures of every board into SeedStats histograms. Boards are drawn with
+ * MineSweeper.drawMines(), the layout initBoard() would place, into a packed
+ * boolean[], and analyzed by a BoardAnalyzer that reuses its arrays: no grid
+ * or Cell is built, and a task allocates nothing per seed.
+ *
+ * Seeds are split over a ForkJoinPool like Tournament games, each task
+ * filling its own SeedStats, added up as tasks join. With a checkpoint file
+ * the stats are saved after every checkpointEvery seeds, and a later scan()
+ * of the same range on the same board size resumes from the file.
+ *
+ * @author basel barham
+ */
+public class SeedScanner {
+
+	/**
+	 * first bytes of a checkpoint, "MSSS".
+	 */
+	static final int MAGIC = 0x4D535353;
+
+	/**
+	 * checkpoint format version.
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * most seeds a task scans itself before splitting.
+	 */
+	private static final int LEAF_SEEDS = 4096;
+
+	/**
+	 * Number of rows of the boards.
+	 */
+	private final int rowCount;
+
+	/**
+	 * Number of columns of the boards.
+	 */
+	private final int colCount;
+
+	/**
+	 * Number of mines of the boards.
+	 */
+	private final int mineCount;
+
+	/**
+	 * source the boards are drawn with.
+	 */
+	private RandomSource random = RandomSource.LEGACY;
+
+	/**
+	 * file the stats are saved to, null for none.
+	 */
+	private Path checkpoint;
+
+	/**
+	 * seeds between two saves.
+	 */
+	private long checkpointEvery;
+
+	/**
+	 * constructor, scan boards of a pre-defined level.
+	 *
+	 * @param level level, not CUSTOM
+	 */
+	public SeedScanner(MineSweeper.Level level) {
+		if (level == MineSweeper.Level.CUSTOM)
+			throw new IllegalArgumentException("Customized games need more parameters!");
+		int[] size = MineSweeper.levelSize(level);
+		rowCount = size[0];
+		colCount = size[1];
+		mineCount = size[2];
+	}
+
+	/**
+	 * constructor, scan customized boards.
+	 *
+	 * @param rowCount  rowCount
+	 * @param colCount  colCount
+	 * @param mineCount mineCount, less than rowCount * colCount
+	 */
+	public SeedScanner(int rowCount, int colCount, int mineCount) {
+		if (rowCount <= 0 || colCount <= 0 || mineCount < 0 || mineCount >= rowCount * colCount)
+			throw new IllegalArgumentException("Bad board size!");
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		this.mineCount = mineCount;
+	}
+
+	/**
+	 * method that saves the stats to a file every few seeds, and resumes from it
+	 * if it exists when scan() is called.
+	 *
+	 * @param file  file
+	 * @param every seeds between saves, positive
+	 */
+	public void setCheckpoint(Path file, long every) {
+		if (every <= 0)
+			throw new IllegalArgumentException("Checkpoint interval must be positive!");
+		checkpoint = file;
+		checkpointEvery = every;
+	}
+
+	/**
+	 * method that draws the boards with another random source, LEGACY by
+	 * default. the checkpoint does not record the source, so resume with the
+	 * same one.
+	 *
+	 * @param source source
+	 */
+	public void setRandomSource(RandomSource source) {
+		random = source;
+	}
+
+	/**
+	 * method that scans the seeds from to to - 1.
+	 *
+	 * @param from     first seed, at least Integer.MIN_VALUE
+	 * @param to       seed after the last, at most Integer.MAX_VALUE + 1
+	 * @param forkJoin pool to scan on
+	 * @return stats of all boards of the range
+	 * @throws IOException if the checkpoint can not be read or written
+	 */
+	public SeedStats scan(long from, long to, ForkJoinPool forkJoin) throws IOException {
+		if (from < Integer.MIN_VALUE || to > Integer.MAX_VALUE + 1L || from > to)
+			throw new IllegalArgumentException("Seeds must be a range of ints!");
+		SeedStats totals = new SeedStats(rowCount * colCount);
+		long next = from;
+		if (checkpoint != null && Files.exists(checkpoint)) {
+			next = load(totals, from, to);
+		}
+		while (next < to) {
+			long end = checkpoint == null ? to : Math.min(to, next + checkpointEvery);
+			totals.add(forkJoin.invoke(new Seeds(next, end)));
+			next = end;
+			if (checkpoint != null) {
+				save(totals, from, to, next);
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * A range of seeds, split in halves until it is small enough to scan.
+	 */
+	private final class Seeds extends RecursiveTask<SeedStats> {
+
+		/**
+		 * serialization version, required by RecursiveTask.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * first seed.
+		 */
+		private final long from;
+
+		/**
+		 * seed after the last.
+		 */
+		private final long to;
+
+		/**
+		 * constructor, a range of seeds.
+		 *
+		 * @param from first seed
+		 * @param to   seed after the last
+		 */
+		private Seeds(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * method that scans the range, or splits it.
+		 *
+		 * @return stats of the range
+		 */
+		@Override
+		protected SeedStats compute() {
+			if (to - from <= LEAF_SEEDS) {
+				return scanRange(from, to);
+			}
+			long mid = (from + to) >> 1;
+			Seeds right = new Seeds(mid, to);
+			right.fork();
+			SeedStats stats = new Seeds(from, mid).compute();
+			stats.add(right.join());
+			return stats;
+		}
+	}
+
+	/**
+	 * method that scans a range of seeds on this thread.
+	 *
+	 * @param from first seed
+	 * @param to   seed after the last
+	 * @return stats of the range
+	 */
+	private SeedStats scanRange(long from, long to) {
+		SeedStats stats = new SeedStats(rowCount * colCount);
+		boolean[] mines = new boolean[rowCount * colCount];
+		BoardAnalyzer analyzer = new BoardAnalyzer(rowCount, colCount);
+		int center = rowCount / 2 * colCount + colCount / 2;
+		for (long seed = from; seed < to; seed++) {
+			Arrays.fill(mines, false);
+			MineSweeper.drawMines((int) seed, random, Topology.SQUARE, rowCount, colCount, mineCount, -1, -1, mines);
+			analyzer.analyze(mines);
+			stats.record(analyzer, analyzer.countAt(0), analyzer.countAt(center));
+		}
+		return stats;
+	}
+
+	/**
+	 * method that saves the stats to the checkpoint file.
+	 *
+	 * @param totals totals
+	 * @param from   first seed of the scan
+	 * @param to     seed after the last of the scan
+	 * @param next   first seed not scanned yet
+	 * @throws IOException if writing fails
+	 */
+	private void save(SeedStats totals, long from, long to, long next) throws IOException {
+		Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(rowCount);
+			out.writeInt(colCount);
+			out.writeInt(mineCount);
+			out.writeLong(from);
+			out.writeLong(to);
+			out.writeLong(next);
+			totals.writeTo(out);
+		}
+		Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * method that reads the stats from the checkpoint file.
+	 *
+	 * @param totals totals to fill
+	 * @param from   first seed of the scan
+	 * @param to     seed after the last of the scan
+	 * @return first seed not scanned yet
+	 * @throws IOException if reading fails
+	 */
+	private long load(SeedStats totals, long from, long to) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+			if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+				throw new IOException("Not a seed scan checkpoint: " + checkpoint + "!");
+			}
+			if (in.readInt() != rowCount | in.readInt() != colCount | in.readInt() != mineCount
+					| in.readLong() != from | in.readLong() != to)
+				throw new IllegalStateException("Checkpoint is for another scan!");
+			long next = in.readLong();
+			totals.readFrom(in);
+			return next;
+		}
+	}
+
+	/**
+	 * This method checks that a scan gives the stats of the same boards built
+	 * and analyzed one by one, also when scanned in parts or through a
+	 * checkpoint file. then it scans seeds of a level and prints the stats.
+	 *
+	 * @param args [level [seeds [checkpoint file]]], default EASY and 2^24
+	 *             seeds from 0; ALL scans every int seed
+	 * @throws IOException if the checkpoint fails
+	 */
+	public static void main(String[] args) throws IOException {
+		int seeds = 300;
+		int cells = 81;
+		int[][] figures = new int[SeedStats.Figure.values().length][seeds];
+		int cornerMines = 0;
+		int centerZeros = 0;
+		boolean same = true;
+		for (int seed = 0; seed < seeds; seed++) {
+			MineSweeper game = new MineSweeper(seed, MineSweeper.Level.EASY);
+			BoardAnalyzer analyzer = new BoardAnalyzer(game);
+			int zeros = 0;
+			for (int i = 0; i < cells; i++) {
+				zeros += game.getCount(i / 9, i % 9) == 0 ? 1 : 0;
+			}
+			same &= analyzer.zeroCells() == zeros;
+			int[] values = { analyzer.threeBV(), analyzer.openings(), analyzer.isolatedNumbers(), zeros,
+					analyzer.largestOpening(), analyzer.mineClusters(), analyzer.largestMineCluster() };
+			for (int f = 0; f < values.length; f++) {
+				figures[f][seed] = values[f];
+			}
+			cornerMines += game.hasMine(0, 0) ? 1 : 0;
+			centerZeros += game.getCount(4, 4) == 0 ? 1 : 0;
+		}
+		Path checkpoint = Files.createTempFile("seeds", ".ckpt");
+		Files.delete(checkpoint);
+		SeedScanner check = new SeedScanner(MineSweeper.Level.EASY);
+		SeedStats whole = check.scan(0, seeds, ForkJoinPool.commonPool());
+		SeedStats parts = check.scan(0, 100, ForkJoinPool.commonPool());
+		parts.add(check.scan(100, seeds, ForkJoinPool.commonPool()));
+		check.setCheckpoint(checkpoint, 64);
+		SeedStats checkpointed = check.scan(0, seeds, ForkJoinPool.commonPool());
+		SeedStats resumed = check.scan(0, seeds, ForkJoinPool.commonPool());
+		Files.delete(checkpoint);
+		same &= whole.boards() == seeds && whole.cornerMineRate() == (double) cornerMines / seeds
+				&& whole.centerOpeningRate() == (double) centerZeros / seeds;
+		for (SeedStats.Figure figure : SeedStats.Figure.values()) {
+			int[] values = figures[figure.ordinal()];
+			long sum = 0;
+			int[] tally = new int[cells + 1];
+			for (int value : values) {
+				sum += value;
+				tally[value]++;
+			}
+			for (int v = 0; v <= cells; v++) {
+				same &= whole.count(figure, v) == tally[v] && parts.count(figure, v) == tally[v]
+						&& checkpointed.count(figure, v) == tally[v] && resumed.count(figure, v) == tally[v];
+			}
+			same &= Math.abs(whole.mean(figure) - (double) sum / seeds) < 1e-9;
+			int[] ordered = values.clone();
+			Arrays.sort(ordered);
+			for (double fraction : new double[] { 0.01, 0.25, 0.5, 0.9, 1.0 }) {
+				same &= whole.percentile(figure, fraction) == ordered[(int) Math.ceil(fraction * seeds) - 1];
+			}
+		}
+		if (same && cornerMines > 0 && centerZeros > 0) {
+			System.out.println("Yay 1");
+		}
+
+		MineSweeper.Level level = args.length > 0 ? MineSweeper.Level.valueOf(args[0]) : MineSweeper.Level.EASY;
+		long from = 0;
+		long to = 1 << 24;
+		if (args.length > 1 && args[1].equals("ALL")) {
+			from = Integer.MIN_VALUE;
+			to = Integer.MAX_VALUE + 1L;
+		} else if (args.length > 1) {
+			to = Long.parseLong(args[1]);
+		}
+		SeedScanner scanner = new SeedScanner(level);
+		if (args.length > 2) {
+			scanner.setCheckpoint(Paths.get(args[2]), 1 << 24);
+		}
+		long start = System.nanoTime();
+		SeedStats stats = scanner.scan(from, to, ForkJoinPool.commonPool());
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.print(stats);
+		System.out.printf("%.0f seeds/s on %d threads%n", stats.boards() / seconds,
+				ForkJoinPool.commonPool().getParallelism());
+	}
+}
@@ -0,0 +1,300 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Histograms of board figures over many seeds, from SeedScanner. Every figure
+ * is a whole number between 0 and the number of cells, so each histogram is
+ * exact and takes one counter per possible value: memory depends on the board
+ * size, not on how many seeds were scanned. First-click safety is kept as
+ * counts of boards where a corner or the center is a mine, or opens a region.
+ *
+ * @author basel barham
+ */
+public class SeedStats {
+
+	/**
+	 * A figure of a board, from BoardAnalyzer.
+	 */
+	public enum Figure {
+		/** fewest clicks that clear the board. */
+		THREE_BV,
+		/** connected regions of zero cells. */
+		OPENINGS,
+		/** numbers no opening reveals. */
+		ISOLATED_NUMBERS,
+		/** zero cells, the cells whose first click opens a region. */
+		ZERO_CELLS,
+		/** zero cells in the biggest opening. */
+		LARGEST_OPENING,
+		/** groups of touching mines. */
+		MINE_CLUSTERS,
+		/** mines in the biggest group. */
+		LARGEST_MINE_CLUSTER
+	}
+
+	/**
+	 * number of cells of the boards.
+	 */
+	private final int cellCount;
+
+	/**
+	 * number of boards with each value, by figure then value.
+	 */
+	private final long[][] histograms;
+
+	/**
+	 * number of boards recorded.
+	 */
+	private long boards;
+
+	/**
+	 * boards with a mine in the top-left corner.
+	 */
+	private long cornerMines;
+
+	/**
+	 * boards whose top-left corner is a zero cell.
+	 */
+	private long cornerOpenings;
+
+	/**
+	 * boards with a mine in the center.
+	 */
+	private long centerMines;
+
+	/**
+	 * boards whose center is a zero cell.
+	 */
+	private long centerOpenings;
+
+	/**
+	 * constructor, empty histograms for boards of a size.
+	 *
+	 * @param cellCount rowCount x colCount
+	 */
+	public SeedStats(int cellCount) {
+		this.cellCount = cellCount;
+		histograms = new long[Figure.values().length][cellCount + 1];
+	}
+
+	/**
+	 * method that records one board.
+	 *
+	 * @param analyzer analyzer of the board
+	 * @param corner   count of the top-left cell, -1 for a mine
+	 * @param center   count of the center cell, -1 for a mine
+	 */
+	void record(BoardAnalyzer analyzer, int corner, int center) {
+		boards++;
+		histograms[Figure.THREE_BV.ordinal()][analyzer.threeBV()]++;
+		histograms[Figure.OPENINGS.ordinal()][analyzer.openings()]++;
+		histograms[Figure.ISOLATED_NUMBERS.ordinal()][analyzer.isolatedNumbers()]++;
+		histograms[Figure.ZERO_CELLS.ordinal()][analyzer.zeroCells()]++;
+		histograms[Figure.LARGEST_OPENING.ordinal()][analyzer.largestOpening()]++;
+		histograms[Figure.MINE_CLUSTERS.ordinal()][analyzer.mineClusters()]++;
+		histograms[Figure.LARGEST_MINE_CLUSTER.ordinal()][analyzer.largestMineCluster()]++;
+		cornerMines += corner < 0 ? 1 : 0;
+		cornerOpenings += corner == 0 ? 1 : 0;
+		centerMines += center < 0 ? 1 : 0;
+		centerOpenings += center == 0 ? 1 : 0;
+	}
+
+	/**
+	 * method that adds the boards of other stats of the same size.
+	 *
+	 * @param other other, not changed
+	 */
+	public void add(SeedStats other) {
+		if (other.cellCount != cellCount)
+			throw new IllegalArgumentException("Stats are for another board size!");
+		for (int f = 0; f < histograms.length; f++) {
+			for (int v = 0; v <= cellCount; v++) {
+				histograms[f][v] += other.histograms[f][v];
+			}
+		}
+		boards += other.boards;
+		cornerMines += other.cornerMines;
+		cornerOpenings += other.cornerOpenings;
+		centerMines += other.centerMines;
+		centerOpenings += other.centerOpenings;
+	}
+
+	/**
+	 * method reports number of boards recorded.
+	 *
+	 * @return boards
+	 */
+	public long boards() {
+		return boards;
+	}
+
+	/**
+	 * method reports number of boards with a value of a figure.
+	 *
+	 * @param figure figure
+	 * @param value  0 to the number of cells
+	 * @return boards
+	 */
+	public long count(Figure figure, int value) {
+		return histograms[figure.ordinal()][value];
+	}
+
+	/**
+	 * method reports the mean of a figure.
+	 *
+	 * @param figure figure
+	 * @return mean, 0 if no board was recorded
+	 */
+	public double mean(Figure figure) {
+		if (boards == 0) {
+			return 0;
+		}
+		double sum = 0;
+		long[] h = histograms[figure.ordinal()];
+		for (int v = 0; v <= cellCount; v++) {
+			sum += (double) v * h[v];
+		}
+		return sum / boards;
+	}
+
+	/**
+	 * method reports the value of a figure below which a fraction of boards
+	 * fall.
+	 *
+	 * @param figure   figure
+	 * @param fraction fraction, e.g. 0.5 for the median
+	 * @return value, 0 if no board was recorded
+	 */
+	public int percentile(Figure figure, double fraction) {
+		long rank = Math.max(1, (long) Math.ceil(fraction * boards));
+		long seen = 0;
+		long[] h = histograms[figure.ordinal()];
+		for (int v = 0; v <= cellCount; v++) {
+			seen += h[v];
+			if (seen >= rank) {
+				return v;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * method reports the share of boards where a first click on the top-left
+	 * corner hits a mine.
+	 *
+	 * @return share, 0 if no board was recorded
+	 */
+	public double cornerMineRate() {
+		return share(cornerMines);
+	}
+
+	/**
+	 * method reports the share of boards where a first click on the top-left
+	 * corner opens a region.
+	 *
+	 * @return share, 0 if no board was recorded
+	 */
+	public double cornerOpeningRate() {
+		return share(cornerOpenings);
+	}
+
+	/**
+	 * method reports the share of boards where a first click on the center hits
+	 * a mine.
+	 *
+	 * @return share, 0 if no board was recorded
+	 */
+	public double centerMineRate() {
+		return share(centerMines);
+	}
+
+	/**
+	 * method reports the share of boards where a first click on the center
+	 * opens a region.
+	 *
+	 * @return share, 0 if no board was recorded
+	 */
+	public double centerOpeningRate() {
+		return share(centerOpenings);
+	}
+
+	/**
+	 * method that divides a count by the number of boards.
+	 *
+	 * @param count count
+	 * @return share, 0 if no board was recorded
+	 */
+	private double share(long count) {
+		return boards == 0 ? 0 : (double) count / boards;
+	}
+
+	/**
+	 * method that writes the stats: the counters, then every histogram with
+	 * its trailing zeros left out.
+	 *
+	 * @param out out
+	 * @throws IOException if writing fails
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(cellCount);
+		out.writeLong(boards);
+		out.writeLong(cornerMines);
+		out.writeLong(cornerOpenings);
+		out.writeLong(centerMines);
+		out.writeLong(centerOpenings);
+		for (long[] h : histograms) {
+			int used = h.length;
+			while (used > 0 && h[used - 1] == 0) {
+				used--;
+			}
+			out.writeInt(used);
+			for (int v = 0; v < used; v++) {
+				out.writeLong(h[v]);
+			}
+		}
+	}
+
+	/**
+	 * method that replaces the stats with ones written by writeTo().
+	 *
+	 * @param in in
+	 * @throws IOException if reading fails or the board size differs
+	 */
+	void readFrom(DataInput in) throws IOException {
+		if (in.readInt() != cellCount) {
+			throw new IOException("Stats are for another board size!");
+		}
+		boards = in.readLong();
+		cornerMines = in.readLong();
+		cornerOpenings = in.readLong();
+		centerMines = in.readLong();
+		centerOpenings = in.readLong();
+		for (long[] h : histograms) {
+			int used = in.readInt();
+			if (used > h.length) {
+				throw new IOException("Bad histogram length: " + used + "!");
+			}
+			for (int v = 0; v < h.length; v++) {
+				h[v] = v < used ? in.readLong() : 0;
+			}
+		}
+	}
+
+	/**
+	 * method that returns a summary, one line per figure.
+	 *
+	 * @return text
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%d boards, first click: corner mine %.4f opening %.4f, center mine %.4f opening %.4f%n",
+				boards, cornerMineRate(), cornerOpeningRate(), centerMineRate(), centerOpeningRate()));
+		for (Figure figure : Figure.values()) {
+			text.append(String.format("%-20s mean %7.2f  p1 %4d  p50 %4d  p99 %4d%n", figure, mean(figure),
+					percentile(figure, 0.01), percentile(figure, 0.5), percentile(figure, 0.99)));
+		}
+		return text.toString();
+	}
+}
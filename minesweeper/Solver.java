@@ -0,0 +1,447 @@
+import java.util.Arrays;
+
+/**
+ * A deterministic minesweeper solver that never guesses. It plays a known mine
+ * layout from a first click using only sound deductions:
+ * - a number with all its mines flagged opens its other hidden neighbors;
+ * - a number with as many hidden neighbors as missing mines flags them all;
+ * - if the hidden neighbors of one number are a subset of another's, the
+ * difference holds the difference of their missing mines (same two rules);
+ * - with every mine flagged, the rest of the board is safe.
+ * If it clears the board, the board can be solved without guessing.
+ *
+ * Cells are kept in flat arrays with a one-cell border, like MineSweeper, and
+ * all buffers are reused, so one solver can check many candidate boards of the
+ * same size. A solver is not thread safe; use one per thread.
+ *
+ * @author basel barham
+ */
+public class Solver {
+
+	/**
+	 * state of a cell not opened or flagged yet.
+	 */
+	private static final byte HIDDEN = 0;
+
+	/**
+	 * state of an opened cell.
+	 */
+	private static final byte OPEN = 1;
+
+	/**
+	 * state of a cell deduced to be a mine.
+	 */
+	private static final byte FLAGGED = 2;
+
+	/**
+	 * state of the border around the board.
+	 */
+	private static final byte BORDER = 3;
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private final int rowCount;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private final int colCount;
+
+	/**
+	 * row length of the padded arrays, colCount + 2.
+	 */
+	private final int stride;
+
+	/**
+	 * flat offsets of the 8 neighbors.
+	 */
+	private final int[] nbr;
+
+	/**
+	 * flat offsets of the cells within two rows and columns, the numbers that
+	 * can share hidden neighbors with a cell.
+	 */
+	private final int[] near;
+
+	/**
+	 * 1 where a mine is, padded.
+	 */
+	private final byte[] mine;
+
+	/**
+	 * number of neighbor mines, -1 for a mine, padded.
+	 */
+	private final byte[] count;
+
+	/**
+	 * HIDDEN, OPEN, FLAGGED or BORDER, padded.
+	 */
+	private final byte[] state;
+
+	/**
+	 * open numbers to re-check.
+	 */
+	private final int[] work;
+
+	/**
+	 * whether a cell is in work.
+	 */
+	private final boolean[] queued;
+
+	/**
+	 * stack of open zero-count cells for flood fills.
+	 */
+	private final int[] stack;
+
+	/**
+	 * stamp per cell for set tests in the subset rule.
+	 */
+	private final int[] mark;
+
+	/**
+	 * cells changed by one subset deduction.
+	 */
+	private final int[] diff = new int[8];
+
+	/**
+	 * number of entries in work.
+	 */
+	private int workSize;
+
+	/**
+	 * current stamp in mark.
+	 */
+	private int stamp;
+
+	/**
+	 * number of mines on the board.
+	 */
+	private int mineCount;
+
+	/**
+	 * number of cells opened.
+	 */
+	private int opened;
+
+	/**
+	 * number of cells flagged.
+	 */
+	private int flagged;
+
+	/**
+	 * constructor, allocate buffers for boards of one size.
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 */
+	public Solver(int rowCount, int colCount) {
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		stride = colCount + 2;
+		int size = (rowCount + 2) * stride;
+		mine = new byte[size];
+		count = new byte[size];
+		state = new byte[size];
+		queued = new boolean[size];
+		work = new int[size];
+		stack = new int[size];
+		mark = new int[size];
+
+		nbr = new int[8];
+		near = new int[24];
+		int k = 0;
+		int j = 0;
+		for (int dr = -2; dr <= 2; dr++) {
+			for (int dc = -2; dc <= 2; dc++) {
+				if (dr == 0 && dc == 0) {
+					continue;
+				}
+				if (Math.abs(dr) <= 1 && Math.abs(dc) <= 1) {
+					nbr[k++] = dr * stride + dc;
+				}
+				near[j++] = dr * stride + dc;
+			}
+		}
+	}
+
+	/**
+	 * method that plays a layout from a first click, deducing as far as it can.
+	 * O(rowCount x colCount) per pass of the subset rule, and few passes are
+	 * needed on normal boards.
+	 *
+	 * @param mines    rowCount * colCount long, true where a mine is (row *
+	 *                 colCount + col)
+	 * @param firstRow row of the first click
+	 * @param firstCol col of the first click
+	 * @return true if every cell without a mine was opened
+	 */
+	public boolean solve(boolean[] mines, int firstRow, int firstCol) {
+		load(mines);
+		int first = (firstRow + 1) * stride + firstCol + 1;
+		if (mine[first] != 0) {
+			return false;
+		}
+		int safe = rowCount * colCount - mineCount;
+		open(first);
+		while (true) {
+			while (workSize > 0) {
+				int p = work[--workSize];
+				queued[p] = false;
+				check(p);
+			}
+			if (opened == safe) {
+				return true;
+			}
+			if (!allFlagged() && !subsets()) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * method reports how many cells the last solve() opened.
+	 *
+	 * @return opened
+	 */
+	public int openedCount() {
+		return opened;
+	}
+
+	/**
+	 * method that resets the buffers for a new layout and computes its counts.
+	 *
+	 * @param mines mines, unpadded
+	 */
+	private void load(boolean[] mines) {
+		Arrays.fill(state, BORDER);
+		mineCount = 0;
+		for (int row = 0, index = 0; row < rowCount; row++) {
+			int p = (row + 1) * stride + 1;
+			for (int col = 0; col < colCount; col++, p++, index++) {
+				mine[p] = (byte) (mines[index] ? 1 : 0);
+				mineCount += mine[p];
+				state[p] = HIDDEN;
+			}
+		}
+		for (int row = 0; row < rowCount; row++) {
+			int p = (row + 1) * stride + 1;
+			for (int col = 0; col < colCount; col++, p++) {
+				int c = 0;
+				for (int k = 0; k < 8; k++) {
+					c += mine[p + nbr[k]];
+				}
+				count[p] = (byte) (mine[p] != 0 ? -1 : c);
+			}
+		}
+		opened = 0;
+		flagged = 0;
+		workSize = 0;
+		Arrays.fill(queued, false);
+	}
+
+	/**
+	 * method that applies the two single-number rules to an open number.
+	 *
+	 * @param p padded index
+	 */
+	private void check(int p) {
+		int hidden = 0;
+		int flags = 0;
+		for (int k = 0; k < 8; k++) {
+			byte s = state[p + nbr[k]];
+			if (s == HIDDEN) {
+				hidden++;
+			} else if (s == FLAGGED) {
+				flags++;
+			}
+		}
+		if (hidden == 0) {
+			return;
+		}
+		int missing = count[p] - flags;
+		if (missing == 0 || missing == hidden) {
+			for (int k = 0; k < 8; k++) {
+				int n = p + nbr[k];
+				if (state[n] == HIDDEN) {
+					if (missing == 0) {
+						open(n);
+					} else {
+						flag(n);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * method that applies the subset rule to every pair of nearby open numbers
+	 * until one deduction is made.
+	 *
+	 * @return true if a cell was opened or flagged
+	 */
+	private boolean subsets() {
+		for (int row = 0; row < rowCount; row++) {
+			int a = (row + 1) * stride + 1;
+			for (int col = 0; col < colCount; col++, a++) {
+				if (state[a] != OPEN || count[a] == 0) {
+					continue;
+				}
+				// mark the hidden neighbors of a
+				stamp++;
+				int sizeA = 0;
+				int missingA = count[a];
+				for (int k = 0; k < 8; k++) {
+					int n = a + nbr[k];
+					if (state[n] == HIDDEN) {
+						mark[n] = stamp;
+						sizeA++;
+					} else if (state[n] == FLAGGED) {
+						missingA--;
+					}
+				}
+				if (sizeA == 0) {
+					continue;
+				}
+				for (int j = 0; j < near.length; j++) {
+					// two rows out may fall off the array; columns wrap onto the border
+					int b = a + near[j];
+					if (b < 0 || b >= state.length || state[b] != OPEN || count[b] == 0) {
+						continue;
+					}
+					int shared = 0;
+					int extra = 0;
+					int missingB = count[b];
+					for (int k = 0; k < 8; k++) {
+						int n = b + nbr[k];
+						if (state[n] == HIDDEN) {
+							if (mark[n] == stamp) {
+								shared++;
+							} else {
+								diff[extra++] = n;
+							}
+						} else if (state[n] == FLAGGED) {
+							missingB--;
+						}
+					}
+					// hidden(a) is a subset of hidden(b): the rest of b holds the
+					// rest of the mines
+					if (shared != sizeA || extra == 0) {
+						continue;
+					}
+					int missing = missingB - missingA;
+					if (missing == 0 || missing == extra) {
+						// opening one cell may flood the others open already
+						for (int i = 0; i < extra; i++) {
+							if (state[diff[i]] != HIDDEN) {
+								continue;
+							}
+							if (missing == 0) {
+								open(diff[i]);
+							} else {
+								flag(diff[i]);
+							}
+						}
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * method that opens every hidden cell once all mines are flagged.
+	 *
+	 * @return true if a cell was opened
+	 */
+	private boolean allFlagged() {
+		if (flagged != mineCount) {
+			return false;
+		}
+		boolean changed = false;
+		for (int p = 0; p < state.length; p++) {
+			if (state[p] == HIDDEN) {
+				open(p);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * method that opens a hidden cell deduced to be safe, flooding from
+	 * zero-count cells, and queues the numbers it touches.
+	 *
+	 * @param start padded index
+	 */
+	private void open(int start) {
+		int top = 0;
+		state[start] = OPEN;
+		stack[top++] = start;
+		while (top > 0) {
+			int p = stack[--top];
+			opened++;
+			if (count[p] > 0) {
+				enqueue(p);
+			}
+			for (int k = 0; k < 8; k++) {
+				int n = p + nbr[k];
+				if (count[p] == 0 && state[n] == HIDDEN) {
+					state[n] = OPEN;
+					stack[top++] = n;
+				} else if (state[n] == OPEN && count[n] > 0) {
+					enqueue(n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * method that flags a hidden cell deduced to be a mine and queues the numbers
+	 * around it.
+	 *
+	 * @param p padded index
+	 */
+	private void flag(int p) {
+		state[p] = FLAGGED;
+		flagged++;
+		for (int k = 0; k < 8; k++) {
+			int n = p + nbr[k];
+			if (state[n] == OPEN && count[n] > 0) {
+				enqueue(n);
+			}
+		}
+	}
+
+	/**
+	 * method that adds an open number to work unless it is there already.
+	 *
+	 * @param p padded index
+	 */
+	private void enqueue(int p) {
+		if (!queued[p]) {
+			queued[p] = true;
+			work[workSize++] = p;
+		}
+	}
+
+	/**
+	 * This method is for testing code: HARD layouts that end with two cells no
+	 * number touches and one mine between them are not solved.
+	 *
+	 * @param args args
+	 */
+	public static void main(String[] args) {
+		Solver solver = new Solver(16, 30);
+		boolean same = true;
+		for (int seed : new int[] { 1148295726, 668095382, 1119724991 }) {
+			boolean[] layout = new boolean[16 * 30];
+			MineSweeper.drawMines(seed, 16, 30, 99, 8, 15, layout);
+			same &= !solver.solve(layout, 8, 15);
+		}
+		if (same) {
+			System.out.println("Yay 1");
+		}
+	}
+}
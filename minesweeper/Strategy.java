@@ -0,0 +1,82 @@
+import java.util.SplittableRandom;
+
+/**
+ * A player for Tournament: picks the next cell to click, one click at a time,
+ * until the game is solved or exploded. A strategy sees the game the way a
+ * player does (isVisible(), getCount(), hint() ...) and must not look at
+ * hasMine(). It is shared by every thread of a tournament, so it must keep no
+ * state between calls; the random source is per game.
+ *
+ * @author basel barham
+ */
+@FunctionalInterface
+public interface Strategy {
+
+	/**
+	 * method that picks the next cell to click.
+	 *
+	 * @param game   game in progress
+	 * @param random random source of this game, seeded from the game's seed, so
+	 *               every strategy gets the same numbers on the same board
+	 * @return row * colCount + col of the cell
+	 */
+	int nextClick(MineSweeper game, SplittableRandom random);
+
+	/**
+	 * method that returns a strategy following MineSweeper.hint(): a proven
+	 * safe cell if there is one, otherwise the lowest estimated risk.
+	 *
+	 * @return the strategy
+	 */
+	static Strategy hints() {
+		return (game, random) -> {
+			Hint hint = game.hint();
+			return hint.getRow() * game.colCount() + hint.getCol();
+		};
+	}
+
+	/**
+	 * method that returns a strategy clicking proven safe cells from hint(),
+	 * and a random hidden cell when there is none.
+	 *
+	 * @return the strategy
+	 */
+	static Strategy safeThenRandom() {
+		return (game, random) -> {
+			Hint hint = game.hint();
+			if (hint.isSafe()) {
+				return hint.getRow() * game.colCount() + hint.getCol();
+			}
+			return randomHidden(game, random);
+		};
+	}
+
+	/**
+	 * method that returns a strategy clicking random hidden cells.
+	 *
+	 * @return the strategy
+	 */
+	static Strategy random() {
+		return Strategy::randomHidden;
+	}
+
+	/**
+	 * method that picks a random hidden, unflagged cell. expected O(cells /
+	 * hidden cells), and a game in progress always has a hidden cell.
+	 *
+	 * @param game   game
+	 * @param random random
+	 * @return row * colCount + col
+	 */
+	private static int randomHidden(MineSweeper game, SplittableRandom random) {
+		int cells = game.rowCount() * game.colCount();
+		while (true) {
+			int index = random.nextInt(cells);
+			int row = index / game.colCount();
+			int col = index % game.colCount();
+			if (!game.isVisible(row, col) && !game.isFlagged(row, col)) {
+				return index;
+			}
+		}
+	}
+}
@@ -0,0 +1,180 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Running totals of one strategy in a Tournament: games, wins, clicks and time
+ * per game. Memory is fixed no matter how many games are recorded: sums for
+ * the means, and LatencyHistograms for the percentiles. Totals of separate
+ * runs are combined with add().
+ *
+ * @author basel barham
+ */
+public class StrategyStats {
+
+	/**
+	 * number of games played.
+	 */
+	private long games;
+
+	/**
+	 * number of games solved.
+	 */
+	private long wins;
+
+	/**
+	 * clicks over all games.
+	 */
+	private long clicks;
+
+	/**
+	 * time over all games, in nanoseconds.
+	 */
+	private long nanos;
+
+	/**
+	 * clicks per game.
+	 */
+	private final LatencyHistogram clicksPerGame = new LatencyHistogram();
+
+	/**
+	 * time per game, in nanoseconds.
+	 */
+	private final LatencyHistogram nanosPerGame = new LatencyHistogram();
+
+	/**
+	 * method that records one game.
+	 *
+	 * @param won    whether it was solved
+	 * @param clicks clicks made
+	 * @param nanos  time spent
+	 */
+	void record(boolean won, int clicks, long nanos) {
+		games++;
+		wins += won ? 1 : 0;
+		this.clicks += clicks;
+		this.nanos += nanos;
+		clicksPerGame.record(clicks);
+		nanosPerGame.record(nanos);
+	}
+
+	/**
+	 * method that adds the games of other totals.
+	 *
+	 * @param other other, not changed
+	 */
+	public void add(StrategyStats other) {
+		games += other.games;
+		wins += other.wins;
+		clicks += other.clicks;
+		nanos += other.nanos;
+		clicksPerGame.add(other.clicksPerGame);
+		nanosPerGame.add(other.nanosPerGame);
+	}
+
+	/**
+	 * method reports number of games played.
+	 *
+	 * @return games
+	 */
+	public long games() {
+		return games;
+	}
+
+	/**
+	 * method reports number of games solved.
+	 *
+	 * @return wins
+	 */
+	public long wins() {
+		return wins;
+	}
+
+	/**
+	 * method reports the share of games solved.
+	 *
+	 * @return win rate, 0 before the first game
+	 */
+	public double winRate() {
+		return games == 0 ? 0 : (double) wins / games;
+	}
+
+	/**
+	 * method reports the mean clicks per game.
+	 *
+	 * @return clicks, 0 before the first game
+	 */
+	public double meanClicks() {
+		return games == 0 ? 0 : (double) clicks / games;
+	}
+
+	/**
+	 * method reports the mean time per game.
+	 *
+	 * @return nanoseconds, 0 before the first game
+	 */
+	public double meanNanos() {
+		return games == 0 ? 0 : (double) nanos / games;
+	}
+
+	/**
+	 * method reports a percentile of clicks per game.
+	 *
+	 * @param fraction fraction, e.g. 0.99
+	 * @return clicks
+	 */
+	public long clicksPercentile(double fraction) {
+		return clicksPerGame.percentile(fraction);
+	}
+
+	/**
+	 * method reports a percentile of time per game.
+	 *
+	 * @param fraction fraction, e.g. 0.99
+	 * @return nanoseconds
+	 */
+	public long nanosPercentile(double fraction) {
+		return nanosPerGame.percentile(fraction);
+	}
+
+	/**
+	 * method that writes the totals.
+	 *
+	 * @param out out
+	 * @throws IOException if writing fails
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeLong(games);
+		out.writeLong(wins);
+		out.writeLong(clicks);
+		out.writeLong(nanos);
+		clicksPerGame.writeTo(out);
+		nanosPerGame.writeTo(out);
+	}
+
+	/**
+	 * method that replaces the totals with ones written by writeTo().
+	 *
+	 * @param in in
+	 * @throws IOException if reading fails
+	 */
+	void readFrom(DataInput in) throws IOException {
+		games = in.readLong();
+		wins = in.readLong();
+		clicks = in.readLong();
+		nanos = in.readLong();
+		clicksPerGame.readFrom(in);
+		nanosPerGame.readFrom(in);
+	}
+
+	/**
+	 * method that returns the totals as text.
+	 *
+	 * @return e.g. "games 1000, win rate 0.412, clicks 93.5 (p99 231), time 41.2 us (p99 120.3 us)"
+	 */
+	@Override
+	public String toString() {
+		return String.format("games %d, win rate %.3f, clicks %.1f (p99 %d), time %.1f us (p99 %.1f us)", games,
+				winRate(), meanClicks(), clicksPercentile(0.99), meanNanos() / 1e3, nanosPercentile(0.99) / 1e3);
+	}
+}
@@ -0,0 +1,717 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A finite minesweeper board stored in 64x64 tiles, for CUSTOM boards far
+ * bigger than the region a player actually visits. Each tile is three bit
+ * planes of 64 longs (one long per tile row): mines, open cells and flags.
+ *
+ * Mines are not stored for tiles nobody has touched: the number of mines of
+ * every tile is fixed up front (one hypergeometric draw per tile from the cells
+ * and mines left, so the layout is uniform over the whole board) and the
+ * tile's mines are re-derived from (seed, tile) when needed. A tile that is still fully hidden is therefore
+ * implicit. Only tiles with open or flagged cells carry state; when more than
+ * maxResident tiles are in memory the least recently used one is dropped, and
+ * its state planes are written to a spill file first if it has any.
+ *
+ * Boards are not the same as MineSweeper boards for the same seed.
+ *
+ * @author basel barham
+ */
+public class TiledBoard implements Closeable {
+
+	/**
+	 * log2 of the tile side.
+	 */
+	private static final int TILE_BITS = 6;
+
+	/**
+	 * number of rows/cols of a tile.
+	 */
+	private static final int TILE = 1 << TILE_BITS;
+
+	/**
+	 * bytes of spilled state per tile: open and flag planes.
+	 */
+	private static final int SPILL_BYTES = 2 * TILE * Long.BYTES;
+
+	/**
+	 * tile state: never touched, fully derived from the seed.
+	 */
+	private static final byte IMPLICIT = 0;
+
+	/**
+	 * tile state: open/flag planes are in memory only.
+	 */
+	private static final byte RESIDENT = 1;
+
+	/**
+	 * tile state: open/flag planes are in the spill file.
+	 */
+	private static final byte SPILLED = 2;
+
+	/**
+	 * A tile in memory.
+	 */
+	private static final class Tile {
+
+		/**
+		 * mine bits, one long per tile row.
+		 */
+		final long[] mines;
+
+		/**
+		 * open bits, one long per tile row.
+		 */
+		final long[] visible = new long[TILE];
+
+		/**
+		 * flag bits, one long per tile row.
+		 */
+		final long[] flagged = new long[TILE];
+
+		/**
+		 * whether visible/flagged differ from a fresh tile.
+		 */
+		boolean dirty;
+
+		/**
+		 * constructor.
+		 *
+		 * @param mines mines
+		 */
+		Tile(long[] mines) {
+			this.mines = mines;
+		}
+	}
+
+	/**
+	 * number of rows.
+	 */
+	private final int rowCount;
+
+	/**
+	 * number of columns.
+	 */
+	private final int colCount;
+
+	/**
+	 * number of mines.
+	 */
+	private final long mineTotalCount;
+
+	/**
+	 * seed of the board.
+	 */
+	private final long seed;
+
+	/**
+	 * number of tile columns.
+	 */
+	private final int tileCols;
+
+	/**
+	 * number of mines in each tile.
+	 */
+	private final short[] tileMines;
+
+	/**
+	 * IMPLICIT, RESIDENT or SPILLED for each tile.
+	 */
+	private final byte[] tileState;
+
+	/**
+	 * tiles in memory, least recently used first.
+	 */
+	private final LinkedHashMap<Integer, Tile> resident;
+
+	/**
+	 * directory for the spill file.
+	 */
+	private final Path spillDir;
+
+	/**
+	 * spill file, opened on first eviction of a dirty tile.
+	 */
+	private FileChannel spill;
+
+	/**
+	 * path of the spill file.
+	 */
+	private Path spillPath;
+
+	/**
+	 * number of tiles in the spill file.
+	 */
+	private int spilledCount;
+
+	/**
+	 * number of cells opened.
+	 */
+	private long clickedCount;
+
+	/**
+	 * number of cells flagged.
+	 */
+	private long flaggedCount;
+
+	/**
+	 * game status.
+	 */
+	private MineSweeper.Status status = MineSweeper.Status.INIT;
+
+	/**
+	 * constructor. O(number of tiles), no per-cell memory.
+	 *
+	 * @param seed        seed
+	 * @param rowCount    rowCount
+	 * @param colCount    colCount
+	 * @param mineCount   mineCount, less than rowCount x colCount
+	 * @param maxResident max number of tiles kept in memory
+	 * @param spillDir    directory for the spill file
+	 */
+	public TiledBoard(long seed, int rowCount, int colCount, long mineCount, int maxResident, Path spillDir) {
+		if (rowCount <= 0 || colCount <= 0 || mineCount < 0 || mineCount >= (long) rowCount * colCount) {
+			throw new IllegalArgumentException("Invalid board size or mine count!");
+		}
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		this.mineTotalCount = mineCount;
+		this.seed = seed;
+		this.spillDir = spillDir;
+
+		int tileRows = (rowCount + TILE - 1) >>> TILE_BITS;
+		tileCols = (colCount + TILE - 1) >>> TILE_BITS;
+		tileMines = new short[tileRows * tileCols];
+		tileState = new byte[tileMines.length];
+
+		// split the mines between tiles: each tile draws from what is left
+		SplittableRandom random = new SplittableRandom(seed);
+		long cellsLeft = (long) rowCount * colCount;
+		long minesLeft = mineCount;
+		for (int t = 0; t < tileMines.length; t++) {
+			int cells = tileHeight(t) * tileWidth(t);
+			int mines = (int) Hypergeometric.sample(random, cellsLeft, minesLeft, cells);
+			minesLeft -= mines;
+			cellsLeft -= cells;
+			tileMines[t] = (short) mines;
+		}
+
+		final int limit = Math.max(4, maxResident);
+		resident = new LinkedHashMap<Integer, Tile>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Tile> eldest) {
+				if (size() <= limit) {
+					return false;
+				}
+				evict(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * method reports number of rows.
+	 *
+	 * @return rowCount
+	 */
+	public int rowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * method reports number of columns.
+	 *
+	 * @return colCount
+	 */
+	public int colCount() {
+		return colCount;
+	}
+
+	/**
+	 * report how many mines have not be flagged.
+	 *
+	 * @return unflagged mines
+	 */
+	public long mineLeft() {
+		return mineTotalCount - flaggedCount;
+	}
+
+	/**
+	 * method reports whether board is solved.
+	 *
+	 * @return true or false
+	 */
+	public boolean isSolved() {
+		return status == MineSweeper.Status.SOLVED;
+	}
+
+	/**
+	 * method reports whether a mine has exploded.
+	 *
+	 * @return true or false
+	 */
+	public boolean isExploded() {
+		return status == MineSweeper.Status.EXPLODED;
+	}
+
+	/**
+	 * report current game status.
+	 *
+	 * @return status
+	 */
+	public String getStatus() {
+		return MineSweeper.Status_STRINGS[status.ordinal()];
+	}
+
+	/**
+	 * method reports number of tiles in memory.
+	 *
+	 * @return number of tiles
+	 */
+	public int residentTiles() {
+		return resident.size();
+	}
+
+	/**
+	 * method reports number of tiles whose state is in the spill file.
+	 *
+	 * @return number of tiles
+	 */
+	public int spilledTiles() {
+		return spilledCount;
+	}
+
+	/**
+	 * method to report if cell has mine. return false for invalid cell indexes
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean hasMine(int row, int col) {
+		if (!isValidCell(row, col)) {
+			return false;
+		}
+		return bit(tileAt(row, col).mines, row, col);
+	}
+
+	/**
+	 * method to report if cell isn't hidden. return false for invalid cell indexes
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean isVisible(int row, int col) {
+		if (!isValidCell(row, col) || tileState[tileIndex(row, col)] == IMPLICIT) {
+			return false;
+		}
+		return bit(tileAt(row, col).visible, row, col);
+	}
+
+	/**
+	 * method to report if cell flagged. return false for invalid cell indexes
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	public boolean isFlagged(int row, int col) {
+		if (!isValidCell(row, col) || tileState[tileIndex(row, col)] == IMPLICIT) {
+			return false;
+		}
+		return bit(tileAt(row, col).flagged, row, col);
+	}
+
+	/**
+	 * method that returns the count of cell at (row,col).
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return -2 for invalid cell indexes, -1 for a mine, count otherwise
+	 */
+	public int getCount(int row, int col) {
+		if (!isValidCell(row, col)) {
+			return -2;
+		}
+		Tile tile = tileAt(row, col);
+		if (bit(tile.mines, row, col)) {
+			return -1;
+		}
+		int r = row & (TILE - 1);
+		int c = col & (TILE - 1);
+		if (r > 0 && r < TILE - 1 && c > 0 && c < TILE - 1) {
+			// whole 3x3 window inside the tile: three shifted words
+			long window = 7L << (c - 1);
+			return Long.bitCount(tile.mines[r - 1] & window) + Long.bitCount(tile.mines[r] & window)
+					+ Long.bitCount(tile.mines[r + 1] & window);
+		}
+		int count = 0;
+		for (int dr = -1; dr <= 1; dr++) {
+			for (int dc = -1; dc <= 1; dc++) {
+				if ((dr != 0 || dc != 0) && hasMine(row + dr, col + dc)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * method to open cell located at (row,col), opening the zero region around
+	 * zero-count cells.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return -2 for invalid, flagged or open cells, -1 for a mine, count otherwise
+	 */
+	public int clickAt(int row, int col) {
+		if (!isValidCell(row, col)) {
+			return -2;
+		}
+		status = MineSweeper.Status.INGAME;
+		if (isFlagged(row, col) || isVisible(row, col)) {
+			return -2;
+		}
+		int count = getCount(row, col);
+		markOpen(row, col);
+		if (count == -1) {
+			status = MineSweeper.Status.EXPLODED;
+			return -1;
+		}
+		clickedCount++;
+
+		if (count == 0) {
+			int[] stack = new int[64];
+			int top = 0;
+			stack[top++] = row;
+			stack[top++] = col;
+			while (top > 0) {
+				int c = stack[--top];
+				int r = stack[--top];
+				for (int dr = -1; dr <= 1; dr++) {
+					for (int dc = -1; dc <= 1; dc++) {
+						int nr = r + dr;
+						int nc = c + dc;
+						if (!isValidCell(nr, nc) || isVisible(nr, nc) || isFlagged(nr, nc)) {
+							continue;
+						}
+						int n = getCount(nr, nc);
+						markOpen(nr, nc);
+						clickedCount++;
+						if (n == 0) {
+							if (top + 2 > stack.length) {
+								stack = Arrays.copyOf(stack, stack.length * 2);
+							}
+							stack[top++] = nr;
+							stack[top++] = nc;
+						}
+					}
+				}
+			}
+		}
+		if (clickedCount == (long) rowCount * colCount - mineTotalCount) {
+			status = MineSweeper.Status.SOLVED;
+		}
+		return count;
+	}
+
+	/**
+	 * method to flag a hidden cell.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return false for an invalid or open cell, true otherwise
+	 */
+	public boolean flagAt(int row, int col) {
+		if (!isValidCell(row, col) || isVisible(row, col)) {
+			return false;
+		}
+		Tile tile = touch(row, col);
+		if (!bit(tile.flagged, row, col)) {
+			tile.flagged[row & (TILE - 1)] |= 1L << col;
+			flaggedCount++;
+		}
+		return true;
+	}
+
+	/**
+	 * method to un-flag a flagged cell.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true if the cell went from flagged to unflagged
+	 */
+	public boolean unFlagAt(int row, int col) {
+		if (!isFlagged(row, col)) {
+			return false;
+		}
+		Tile tile = touch(row, col);
+		tile.flagged[row & (TILE - 1)] &= ~(1L << col);
+		flaggedCount--;
+		return true;
+	}
+
+	/**
+	 * method that deletes the spill file.
+	 *
+	 * @throws IOException if the file can not be removed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (spill != null) {
+			spill.close();
+			Files.deleteIfExists(spillPath);
+			spill = null;
+		}
+	}
+
+	/**
+	 * method that checks (row,col) is on the board.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return true or false
+	 */
+	private boolean isValidCell(int row, int col) {
+		return row >= 0 && row < rowCount && col >= 0 && col < colCount;
+	}
+
+	/**
+	 * method that sets the open bit of a cell.
+	 *
+	 * @param row row
+	 * @param col col
+	 */
+	private void markOpen(int row, int col) {
+		touch(row, col).visible[row & (TILE - 1)] |= 1L << col;
+	}
+
+	/**
+	 * method that returns the tile of a cell, marked as carrying state.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return the tile
+	 */
+	private Tile touch(int row, int col) {
+		Tile tile = tileAt(row, col);
+		if (!tile.dirty) {
+			tile.dirty = true;
+			int t = tileIndex(row, col);
+			if (tileState[t] == IMPLICIT) {
+				tileState[t] = RESIDENT;
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * method that returns the tile of a cell, loading or deriving it if needed.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return the tile
+	 */
+	private Tile tileAt(int row, int col) {
+		int t = tileIndex(row, col);
+		Tile tile = resident.get(t);
+		if (tile != null) {
+			return tile;
+		}
+		tile = new Tile(genMines(t));
+		if (tileState[t] == SPILLED) {
+			ByteBuffer buf = ByteBuffer.allocate(SPILL_BYTES);
+			try {
+				while (buf.hasRemaining()) {
+					if (spill.read(buf, (long) t * SPILL_BYTES + buf.position()) < 0) {
+						throw new IOException("Spill file is truncated!");
+					}
+				}
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			buf.flip();
+			buf.asLongBuffer().get(tile.visible).get(tile.flagged);
+			tile.dirty = true;
+		}
+		resident.put(t, tile);
+		return tile;
+	}
+
+	/**
+	 * method called when a tile leaves memory; dirty tiles go to the spill file.
+	 *
+	 * @param t    tile index
+	 * @param tile tile
+	 */
+	private void evict(int t, Tile tile) {
+		if (!tile.dirty) {
+			return;
+		}
+		try {
+			if (spill == null) {
+				spillPath = Files.createTempFile(spillDir, "tiles", ".spill");
+				spill = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+						StandardOpenOption.DELETE_ON_CLOSE);
+			}
+			ByteBuffer buf = ByteBuffer.allocate(SPILL_BYTES);
+			buf.asLongBuffer().put(tile.visible).put(tile.flagged);
+			while (buf.hasRemaining()) {
+				spill.write(buf, (long) t * SPILL_BYTES + buf.position());
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		if (tileState[t] != SPILLED) {
+			tileState[t] = SPILLED;
+			spilledCount++;
+		}
+	}
+
+	/**
+	 * method that derives the mines of a tile from the seed.
+	 *
+	 * @param t tile index
+	 * @return mine bits, one long per tile row
+	 */
+	private long[] genMines(int t) {
+		long[] mines = new long[TILE];
+		int height = tileHeight(t);
+		int width = tileWidth(t);
+		int cells = height * width;
+		int count = tileMines[t];
+
+		// for dense tiles place the non-mines instead, then flip
+		boolean flip = count > cells / 2;
+		int target = flip ? cells - count : count;
+		SplittableRandom random = new SplittableRandom(seed ^ (t * 0x9E3779B97F4A7C15L));
+		for (int placed = 0; placed < target;) {
+			int i = random.nextInt(cells);
+			long mask = 1L << (i % width);
+			if ((mines[i / width] & mask) == 0) {
+				mines[i / width] |= mask;
+				placed++;
+			}
+		}
+		if (flip) {
+			long rowMask = width == TILE ? -1L : (1L << width) - 1;
+			for (int r = 0; r < height; r++) {
+				mines[r] ^= rowMask;
+			}
+		}
+		return mines;
+	}
+
+	/**
+	 * method that reports the tile index of a cell.
+	 *
+	 * @param row row
+	 * @param col col
+	 * @return tile index
+	 */
+	private int tileIndex(int row, int col) {
+		return (row >>> TILE_BITS) * tileCols + (col >>> TILE_BITS);
+	}
+
+	/**
+	 * method that reports how many board rows a tile covers.
+	 *
+	 * @param t tile index
+	 * @return 1 to TILE
+	 */
+	private int tileHeight(int t) {
+		return Math.min(TILE, rowCount - (t / tileCols) * TILE);
+	}
+
+	/**
+	 * method that reports how many board columns a tile covers.
+	 *
+	 * @param t tile index
+	 * @return 1 to TILE
+	 */
+	private int tileWidth(int t) {
+		return Math.min(TILE, colCount - (t % tileCols) * TILE);
+	}
+
+	/**
+	 * method that tests the bit of a cell in a tile plane (shifts by col only
+	 * use its low 6 bits, i.e. the column inside the tile).
+	 *
+	 * @param plane plane
+	 * @param row   row
+	 * @param col   col
+	 * @return true if set
+	 */
+	private static boolean bit(long[] plane, int row, int col) {
+		return (plane[row & (TILE - 1)] & (1L << col)) != 0;
+	}
+
+	/**
+	 * This method is for testing code: the tiles split the mines exactly, and
+	 * open cells, flags and counts are the same after their tiles went to the
+	 * spill file and came back.
+	 *
+	 * @param args args
+	 * @throws IOException if the spill file fails
+	 */
+	public static void main(String[] args) throws IOException {
+		Path tmp = Path.of(System.getProperty("java.io.tmpdir"));
+		try (TiledBoard small = new TiledBoard(22, 300, 300, 18_000, 64, tmp);
+				TiledBoard tiled = new TiledBoard(22, 1000, 1000, 150_000, 4, tmp)) {
+			int mineCount = 0;
+			for (int row = 0; row < 300; row++) {
+				for (int col = 0; col < 300; col++) {
+					mineCount += small.hasMine(row, col) ? 1 : 0;
+				}
+			}
+			boolean same = mineCount == 18_000;
+			// one click and one flag in each of 40 tiles, far more than stay in memory
+			int[] seen = new int[40 * 16];
+			for (int pass = 0; pass < 2; pass++) {
+				for (int i = 0; i < 40; i++) {
+					int row0 = (i / 8) * 200 + 7;
+					int col0 = (i % 8) * 120 + 9;
+					if (pass == 0) {
+						tiled.flagAt(row0 + 2, col0 + 2);
+						tiled.clickAt(row0 + 1, col0 + 1);
+					}
+					for (int k = 0; k < 16; k++) {
+						int row = row0 + k / 4;
+						int col = col0 + k % 4;
+						int count = 0;
+						for (int dr = -1; dr <= 1; dr++) {
+							for (int dc = -1; dc <= 1; dc++) {
+								count += (dr != 0 || dc != 0) && tiled.hasMine(row + dr, col + dc) ? 1 : 0;
+							}
+						}
+						same &= tiled.getCount(row, col) == (tiled.hasMine(row, col) ? -1 : count);
+						int state = (tiled.isVisible(row, col) ? 1 : 0) + (tiled.isFlagged(row, col) ? 2 : 0)
+								+ (tiled.getCount(row, col) + 1) * 4;
+						if (pass == 0) {
+							seen[i * 16 + k] = state;
+						} else {
+							same &= seen[i * 16 + k] == state;
+						}
+					}
+				}
+			}
+			if (same && tiled.spilledTiles() > 0 && tiled.mineLeft() == 150_000 - 40) {
+				System.out.println("Yay 1");
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * How the cells of a board touch. SQUARE is the classic board: 8 neighbors,
+ * fewer at the edges. TORUS wraps around, the last row touching the first and
+ * the last column the first, so every cell has 8 neighbors. HEX lays the rows
+ * out as hexagons, every odd row shifted half a cell to the right, for 6
+ * neighbors.
+ *
+ * A topology is only asked about neighbors when a board is built: table()
+ * turns them into a flat array over padded indexes that the counting, flood
+ * fill and mine placement loops read directly, with no call per cell.
+ *
+ * @author basel barham
+ */
+public enum Topology {
+
+	/**
+	 * rows and columns end at the edges.
+	 */
+	SQUARE {
+		@Override
+		public int neighbors(int rowCount, int colCount, int row, int col, int[] into) {
+			int size = 0;
+			for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rowCount - 1); r++) {
+				for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, colCount - 1); c++) {
+					if (r != row || c != col) {
+						into[size++] = r * colCount + c;
+					}
+				}
+			}
+			return size;
+		}
+	},
+
+	/**
+	 * rows and columns wrap around.
+	 */
+	TORUS {
+		@Override
+		public int neighbors(int rowCount, int colCount, int row, int col, int[] into) {
+			int size = 0;
+			for (int dr = -1; dr <= 1; dr++) {
+				int r = (row + dr + rowCount) % rowCount;
+				for (int dc = -1; dc <= 1; dc++) {
+					int c = (col + dc + colCount) % colCount;
+					// a board 2 or fewer wide meets the same cell twice
+					size = addNew(into, size, r * colCount + c, row * colCount + col);
+				}
+			}
+			return size;
+		}
+	},
+
+	/**
+	 * hexagons, odd rows shifted right: the rows above and below touch col - 1
+	 * and col on an even row, col and col + 1 on an odd one.
+	 */
+	HEX {
+		@Override
+		public int neighbors(int rowCount, int colCount, int row, int col, int[] into) {
+			int size = 0;
+			int left = (row & 1) == 0 ? col - 1 : col;
+			for (int r = row - 1; r <= row + 1; r += 2) {
+				if (r >= 0 && r < rowCount) {
+					for (int c = Math.max(left, 0); c <= Math.min(left + 1, colCount - 1); c++) {
+						into[size++] = r * colCount + c;
+					}
+				}
+			}
+			if (col > 0) {
+				into[size++] = row * colCount + col - 1;
+			}
+			if (col < colCount - 1) {
+				into[size++] = row * colCount + col + 1;
+			}
+			return size;
+		}
+	};
+
+	/**
+	 * most neighbors a cell has in any topology, the width of a table() row.
+	 */
+	public static final int MAX_NEIGHBORS = 8;
+
+	/**
+	 * method that lists the neighbors of a cell.
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 * @param row      row
+	 * @param col      col
+	 * @param into     at least MAX_NEIGHBORS long; filled with flat indexes
+	 *                 (row * colCount + col), each cell once
+	 * @return number of neighbors
+	 */
+	public abstract int neighbors(int rowCount, int colCount, int row, int col, int[] into);
+
+	/**
+	 * method that builds the neighbor table of a board in the padded layout of
+	 * MineSweeper, where cell (row,col) is at p = (row + 1) * (colCount + 2) +
+	 * col + 1 and index 0 is a sentinel. the neighbors of p are at
+	 * table[p * MAX_NEIGHBORS] onwards, the unused places pointing at the
+	 * sentinel, so every cell is read the same way. O(rowCount x colCount)
+	 *
+	 * @param rowCount rowCount
+	 * @param colCount colCount
+	 * @return the table, MAX_NEIGHBORS per padded index
+	 */
+	int[] table(int rowCount, int colCount) {
+		int stride = colCount + 2;
+		int[] table = new int[(rowCount + 2) * stride * MAX_NEIGHBORS];
+		int[] near = new int[MAX_NEIGHBORS];
+		for (int row = 0; row < rowCount; row++) {
+			for (int col = 0; col < colCount; col++) {
+				int base = ((row + 1) * stride + col + 1) * MAX_NEIGHBORS;
+				int size = neighbors(rowCount, colCount, row, col, near);
+				for (int k = 0; k < size; k++) {
+					table[base + k] = (near[k] / colCount + 1) * stride + near[k] % colCount + 1;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * method that adds a cell to a list unless it is there already or is the
+	 * cell itself.
+	 *
+	 * @param into  list
+	 * @param size  size of the list
+	 * @param index cell to add
+	 * @param self  cell whose neighbors these are
+	 * @return new size
+	 */
+	private static int addNew(int[] into, int size, int index, int self) {
+		if (index == self) {
+			return size;
+		}
+		for (int k = 0; k < size; k++) {
+			if (into[k] == index) {
+				return size;
+			}
+		}
+		into[size] = index;
+		return size + 1;
+	}
+}
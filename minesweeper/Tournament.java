@@ -0,0 +1,435 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays the same boards with several strategies and compares them. Game i is
+ * seeded with firstSeed + i and played once by every strategy, on the board
+ * new MineSweeper(seed, level) would give; boards come from a GamePool, so
+ * games are not allocated one by one.
+ *
+ * Games are split over a ForkJoinPool: each task plays a range of seeds into
+ * its own StrategyStats and the results are added up as the tasks join, so
+ * memory does not grow with the number of games. With a checkpoint file, the
+ * totals are saved after every checkpointEvery games (written to a temporary
+ * file and moved over the old one), and a later run() with the same
+ * tournament picks up where the file left off.
+ *
+ * @author basel barham
+ */
+public class Tournament {
+
+	/**
+	 * first bytes of a checkpoint, "MSTN".
+	 */
+	static final int MAGIC = 0x4D53544E;
+
+	/**
+	 * checkpoint format version.
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * most games a task plays itself before splitting.
+	 */
+	private static final int LEAF_GAMES = 64;
+
+	/**
+	 * level of every game.
+	 */
+	private final MineSweeper.Level level;
+
+	/**
+	 * seed of the first game.
+	 */
+	private final int firstSeed;
+
+	/**
+	 * names of the strategies, in the order they were added.
+	 */
+	private final List<String> names = new ArrayList<>();
+
+	/**
+	 * the strategies, in the same order as names.
+	 */
+	private final List<Strategy> strategies = new ArrayList<>();
+
+	/**
+	 * boards reused between games.
+	 */
+	private final GamePool pool = new GamePool(1024);
+
+	/**
+	 * file the totals are saved to, null for none.
+	 */
+	private Path checkpoint;
+
+	/**
+	 * games between two saves.
+	 */
+	private long checkpointEvery;
+
+	/**
+	 * number of games played by each strategy so far.
+	 */
+	private long gamesDone;
+
+	/**
+	 * constructor, a tournament without strategies.
+	 *
+	 * @param level     level, not CUSTOM
+	 * @param firstSeed seed of the first game
+	 */
+	public Tournament(MineSweeper.Level level, int firstSeed) {
+		if (level == MineSweeper.Level.CUSTOM)
+			throw new IllegalArgumentException("Customized games need more parameters!");
+		this.level = level;
+		this.firstSeed = firstSeed;
+	}
+
+	/**
+	 * method that adds a strategy.
+	 *
+	 * @param name     name, unique
+	 * @param strategy strategy
+	 * @return this tournament
+	 */
+	public Tournament add(String name, Strategy strategy) {
+		if (names.contains(name))
+			throw new IllegalArgumentException("Strategy " + name + " was already added!");
+		names.add(name);
+		strategies.add(strategy);
+		return this;
+	}
+
+	/**
+	 * method that saves the totals to a file every few games, and resumes from
+	 * it if it exists when run() is called.
+	 *
+	 * @param file  file
+	 * @param every games between saves, positive
+	 */
+	public void setCheckpoint(Path file, long every) {
+		if (every <= 0)
+			throw new IllegalArgumentException("Checkpoint interval must be positive!");
+		checkpoint = file;
+		checkpointEvery = every;
+	}
+
+	/**
+	 * method that plays games until every strategy has played games games,
+	 * counting games read from the checkpoint.
+	 *
+	 * @param games    total games per strategy
+	 * @param forkJoin pool to play on
+	 * @return totals by strategy name, in the order strategies were added
+	 * @throws IOException if the checkpoint can not be read or written
+	 */
+	public Map<String, StrategyStats> run(long games, ForkJoinPool forkJoin) throws IOException {
+		if (strategies.isEmpty())
+			throw new IllegalStateException("No strategies to run!");
+		StrategyStats[] totals = newStats();
+		long done = 0;
+		if (checkpoint != null && Files.exists(checkpoint)) {
+			done = load(totals);
+		}
+		while (done < games) {
+			long end = checkpoint == null ? games : Math.min(games, done + checkpointEvery);
+			StrategyStats[] batch = forkJoin.invoke(new Games(done, end));
+			add(totals, batch);
+			done = end;
+			if (checkpoint != null) {
+				save(totals, done);
+			}
+		}
+		gamesDone = done;
+		Map<String, StrategyStats> result = new LinkedHashMap<>();
+		for (int s = 0; s < names.size(); s++) {
+			result.put(names.get(s), totals[s]);
+		}
+		return result;
+	}
+
+	/**
+	 * method reports number of games each strategy played in the last run(),
+	 * counting games read from the checkpoint.
+	 *
+	 * @return games
+	 */
+	public long gamesDone() {
+		return gamesDone;
+	}
+
+	/**
+	 * A range of games, split in halves until it is small enough to play.
+	 */
+	private final class Games extends RecursiveTask<StrategyStats[]> {
+
+		/**
+		 * serialization version, required by RecursiveTask.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * first game.
+		 */
+		private final long from;
+
+		/**
+		 * game after the last.
+		 */
+		private final long to;
+
+		/**
+		 * constructor, a range of games.
+		 *
+		 * @param from first game
+		 * @param to   game after the last
+		 */
+		private Games(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * method that plays the range, or splits it.
+		 *
+		 * @return totals of the range, one per strategy
+		 */
+		@Override
+		protected StrategyStats[] compute() {
+			if (to - from <= LEAF_GAMES) {
+				return play(from, to);
+			}
+			long mid = (from + to) >>> 1;
+			Games right = new Games(mid, to);
+			right.fork();
+			StrategyStats[] stats = new Games(from, mid).compute();
+			add(stats, right.join());
+			return stats;
+		}
+	}
+
+	/**
+	 * method that plays a range of games with every strategy.
+	 *
+	 * @param from first game
+	 * @param to   game after the last
+	 * @return totals, one per strategy
+	 */
+	private StrategyStats[] play(long from, long to) {
+		StrategyStats[] stats = newStats();
+		for (long i = from; i < to; i++) {
+			int seed = (int) (firstSeed + i);
+			for (int s = 0; s < strategies.size(); s++) {
+				MineSweeper game = pool.acquire(seed, level);
+				Strategy strategy = strategies.get(s);
+				SplittableRandom random = new SplittableRandom(seed);
+				// every useful click opens a cell, so a game can not need more
+				int limit = game.rowCount() * game.colCount();
+				int clicks = 0;
+				long start = System.nanoTime();
+				while (!game.isSolved() && !game.isExploded() && clicks < limit) {
+					int cell = strategy.nextClick(game, random);
+					game.clickAt(cell / game.colCount(), cell % game.colCount());
+					clicks++;
+				}
+				stats[s].record(game.isSolved(), clicks, System.nanoTime() - start);
+				pool.release(game);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * method that makes empty totals, one per strategy.
+	 *
+	 * @return totals
+	 */
+	private StrategyStats[] newStats() {
+		StrategyStats[] stats = new StrategyStats[strategies.size()];
+		for (int s = 0; s < stats.length; s++) {
+			stats[s] = new StrategyStats();
+		}
+		return stats;
+	}
+
+	/**
+	 * method that adds totals into others, strategy by strategy.
+	 *
+	 * @param into  into
+	 * @param other other
+	 */
+	private static void add(StrategyStats[] into, StrategyStats[] other) {
+		for (int s = 0; s < into.length; s++) {
+			into[s].add(other[s]);
+		}
+	}
+
+	/**
+	 * method that saves the totals to the checkpoint file.
+	 *
+	 * @param totals totals
+	 * @param done   games played by each strategy
+	 * @throws IOException if writing fails
+	 */
+	private void save(StrategyStats[] totals, long done) throws IOException {
+		Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeUTF(level.name());
+			out.writeInt(firstSeed);
+			out.writeLong(done);
+			out.writeInt(names.size());
+			for (int s = 0; s < names.size(); s++) {
+				out.writeUTF(names.get(s));
+				totals[s].writeTo(out);
+			}
+		}
+		Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * method that reads the totals from the checkpoint file.
+	 *
+	 * @param totals totals to fill
+	 * @return games played by each strategy
+	 * @throws IOException if reading fails
+	 */
+	private long load(StrategyStats[] totals) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+			if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+				throw new IOException("Not a tournament checkpoint: " + checkpoint + "!");
+			}
+			boolean same = in.readUTF().equals(level.name()) & in.readInt() == firstSeed;
+			long done = in.readLong();
+			same &= in.readInt() == names.size();
+			for (int s = 0; same && s < names.size(); s++) {
+				same = in.readUTF().equals(names.get(s));
+				totals[s].readFrom(in);
+			}
+			if (!same)
+				throw new IllegalStateException("Checkpoint is for another tournament!");
+			return done;
+		}
+	}
+
+	/**
+	 * method that makes a tournament of the built-in strategies.
+	 *
+	 * @param level     level
+	 * @param firstSeed seed of the first game
+	 * @return tournament
+	 */
+	private static Tournament builtIn(MineSweeper.Level level, int firstSeed) {
+		return new Tournament(level, firstSeed).add("hints", Strategy.hints())
+				.add("safeThenRandom", Strategy.safeThenRandom()).add("random", Strategy.random());
+	}
+
+	/**
+	 * method reports whether two sets of totals have the same games, wins and
+	 * clicks per game. time is not compared.
+	 *
+	 * @param a a
+	 * @param b b
+	 * @return true or false
+	 */
+	private static boolean sameGames(Map<String, StrategyStats> a, Map<String, StrategyStats> b) {
+		if (!a.keySet().equals(b.keySet())) {
+			return false;
+		}
+		for (String name : a.keySet()) {
+			StrategyStats x = a.get(name);
+			StrategyStats y = b.get(name);
+			if (x.games() != y.games() || x.wins() != y.wins() || x.meanClicks() != y.meanClicks()) {
+				return false;
+			}
+			for (int k = 1; k <= 100; k++) {
+				if (x.clicksPercentile(k / 100.0) != y.clicksPercentile(k / 100.0)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * method reports whether run() rejects a checkpoint.
+	 *
+	 * @param tournament tournament to run, without a checkpoint set
+	 * @param file       checkpoint of another tournament
+	 * @return true if it was rejected
+	 * @throws IOException if the checkpoint can not be read
+	 */
+	private static boolean rejects(Tournament tournament, Path file) throws IOException {
+		tournament.setCheckpoint(file, 500);
+		try {
+			tournament.run(2500, ForkJoinPool.commonPool());
+			return false;
+		} catch (IllegalStateException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * This method checks that a tournament resumed from a checkpoint plays the
+	 * same games as one run straight through, and that a checkpoint of another
+	 * tournament is rejected. then it runs the built-in strategies against each
+	 * other on HARD.
+	 *
+	 * @param args [games [checkpoint file]], default 100000 games per strategy
+	 * @throws IOException if the checkpoint fails
+	 */
+	public static void main(String[] args) throws IOException {
+		Path file = Files.createTempFile("tournament", ".ckpt");
+		Files.delete(file);
+		Tournament first = builtIn(MineSweeper.Level.EASY, 100);
+		first.setCheckpoint(file, 500);
+		boolean same = first.run(2000, ForkJoinPool.commonPool()).get("hints").games() == 2000;
+		Tournament resumed = builtIn(MineSweeper.Level.EASY, 100);
+		resumed.setCheckpoint(file, 500);
+		Map<String, StrategyStats> afterResume = resumed.run(5000, ForkJoinPool.commonPool());
+		Map<String, StrategyStats> straight = builtIn(MineSweeper.Level.EASY, 100).run(5000,
+				ForkJoinPool.commonPool());
+		if (same && resumed.gamesDone() == 5000 && sameGames(afterResume, straight)) {
+			System.out.println("Yay 1");
+		}
+
+		boolean rejected = rejects(builtIn(MineSweeper.Level.MEDIUM, 100), file)
+				&& rejects(builtIn(MineSweeper.Level.EASY, 101), file)
+				&& rejects(new Tournament(MineSweeper.Level.EASY, 100).add("hints", Strategy.hints())
+						.add("random", Strategy.random()), file)
+				&& rejects(new Tournament(MineSweeper.Level.EASY, 100).add("random", Strategy.random())
+						.add("safeThenRandom", Strategy.safeThenRandom()).add("hints", Strategy.hints()), file);
+		Files.delete(file);
+		if (rejected) {
+			System.out.println("Yay 2");
+		}
+
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+		Tournament tournament = builtIn(MineSweeper.Level.HARD, 0);
+		if (args.length > 1) {
+			tournament.setCheckpoint(Paths.get(args[1]), 100_000);
+		}
+		long start = System.nanoTime();
+		Map<String, StrategyStats> result = tournament.run(games, ForkJoinPool.commonPool());
+		double seconds = (System.nanoTime() - start) / 1e9;
+		result.forEach((name, stats) -> System.out.println(name + ": " + stats));
+		System.out.printf("%.0f games/s on %d threads%n", result.size() * games / seconds,
+				ForkJoinPool.commonPool().getParallelism());
+	}
+}
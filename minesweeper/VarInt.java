@@ -0,0 +1,135 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Helper methods for the variable-length integer encoding used by game logs.
+ * Values are written as unsigned LEB128: seven bits per byte, low bits first,
+ * with the high bit set on every byte except the last one.
+ *
+ * @author basel barham
+ */
+public final class VarInt {
+
+	/**
+	 * Max number of bytes an int can take.
+	 */
+	public static final int MAX_BYTES = 5;
+
+	/**
+	 * Max number of bytes a long can take.
+	 */
+	public static final int MAX_LONG_BYTES = 10;
+
+	/**
+	 * no instances, static helpers only.
+	 */
+	private VarInt() {
+	}
+
+	/**
+	 * method that reports how many bytes value takes once encoded.
+	 *
+	 * @param value value (treated as unsigned)
+	 * @return number of bytes, 1 to 5
+	 */
+	public static int size(int value) {
+		int bytes = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			bytes++;
+		}
+		return bytes;
+	}
+
+	/**
+	 * method that writes value into buf starting at pos. the caller makes sure
+	 * there is room for size(value) bytes.
+	 *
+	 * @param buf   buf
+	 * @param pos   pos
+	 * @param value value (treated as unsigned)
+	 * @return position right after the last byte written
+	 */
+	public static int put(byte[] buf, int pos, int value) {
+		while ((value & ~0x7F) != 0) {
+			buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[pos++] = (byte) value;
+		return pos;
+	}
+
+	/**
+	 * method that writes value into a buffer at its current position.
+	 *
+	 * @param buf   buf
+	 * @param value value (treated as unsigned)
+	 */
+	public static void put(ByteBuffer buf, int value) {
+		while ((value & ~0x7F) != 0) {
+			buf.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	/**
+	 * method that writes a long value into a buffer at its current position.
+	 *
+	 * @param buf   buf
+	 * @param value value (treated as unsigned)
+	 */
+	public static void putLong(ByteBuffer buf, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	/**
+	 * method that reads one value from a buffer at its current position.
+	 * throws IllegalArgumentException for truncated or malformed input.
+	 *
+	 * @param buf buf
+	 * @return value read
+	 */
+	public static int get(ByteBuffer buf) {
+		int value = 0;
+		try {
+			for (int shift = 0; shift < 7 * MAX_BYTES; shift += 7) {
+				byte b = buf.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		} catch (BufferUnderflowException ex) {
+			throw new IllegalArgumentException("Truncated varint!");
+		}
+		throw new IllegalArgumentException("Malformed varint!");
+	}
+
+	/**
+	 * method that reads one long value from a buffer at its current position.
+	 * throws IllegalArgumentException for truncated or malformed input.
+	 *
+	 * @param buf buf
+	 * @return value read
+	 */
+	public static long getLong(ByteBuffer buf) {
+		long value = 0;
+		try {
+			for (int shift = 0; shift < 7 * MAX_LONG_BYTES; shift += 7) {
+				byte b = buf.get();
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		} catch (BufferUnderflowException ex) {
+			throw new IllegalArgumentException("Truncated varint!");
+		}
+		throw new IllegalArgumentException("Malformed varint!");
+	}
+}
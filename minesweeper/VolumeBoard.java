@@ -0,0 +1,755 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A three-dimensional minesweeper board: layers of rows of columns, where a
+ * cell touches the 26 cells of the 3x3x3 cube around it. Clicks and flags
+ * work like MineSweeper's, with a layer in front of row and col.
+ *
+ * Every cell is one byte: its count in the low 5 bits, then mine, open and
+ * flag bits. The bytes are stored in 16x16x16 blocks of 4 KB, blocks in
+ * layer, row, col order, so the 26 neighbors of a cell are mostly in the same
+ * block, at most 273 bytes away, instead of a whole layer away as in a plain
+ * layer-row-col array. Cells not on a block face find their neighbors at
+ * fixed offsets; the rest add up one index part per axis. Cells of a partial
+ * block past the board edge are kept open, like the sentinel border of
+ * MineSweeper, so the fixed offsets never open them. Counts are set once, by
+ * adding each mine to its neighbors, so building a board costs O(cells + 26 x
+ * mines).
+ *
+ * Flood fills go block by block too: every block has a 4096-bit mask of zero
+ * cells still to expand, and a block is drained, with its cells in L1, before
+ * the next one is taken off a stack of blocks. A stack of single cells hops
+ * between far-apart blocks and misses the cache on most neighbors.
+ *
+ * Boards are not the same as MineSweeper boards for the same seed.
+ *
+ * @author basel barham
+ */
+public class VolumeBoard {
+
+	/**
+	 * log2 of the block side.
+	 */
+	private static final int BLOCK_BITS = 4;
+
+	/**
+	 * number of layers/rows/cols of a block.
+	 */
+	private static final int BLOCK = 1 << BLOCK_BITS;
+
+	/**
+	 * bits of a cell byte holding its count.
+	 */
+	private static final int COUNT = 0x1F;
+
+	/**
+	 * bit of a cell byte set for a mine.
+	 */
+	private static final int MINE = 0x20;
+
+	/**
+	 * bit of a cell byte set for an open cell.
+	 */
+	private static final int OPEN = 0x40;
+
+	/**
+	 * bit of a cell byte set for a flag.
+	 */
+	private static final int FLAG = 0x80;
+
+	/**
+	 * neighbor layer offsets, in the same order as NBR_ROWS and NBR_COLS.
+	 */
+	private static final int[] NBR_LAYERS = new int[26];
+
+	/**
+	 * neighbor row offsets.
+	 */
+	private static final int[] NBR_ROWS = new int[26];
+
+	/**
+	 * neighbor column offsets.
+	 */
+	private static final int[] NBR_COLS = new int[26];
+
+	/**
+	 * flat offsets of the neighbors inside a block, for a cell not on its faces.
+	 */
+	private static final int[] NBR_INNER = new int[26];
+
+	static {
+		int k = 0;
+		for (int dl = -1; dl <= 1; dl++) {
+			for (int dr = -1; dr <= 1; dr++) {
+				for (int dc = -1; dc <= 1; dc++) {
+					if (dl != 0 || dr != 0 || dc != 0) {
+						NBR_LAYERS[k] = dl;
+						NBR_ROWS[k] = dr;
+						NBR_COLS[k] = dc;
+						NBR_INNER[k] = (dl << 2 * BLOCK_BITS) + (dr << BLOCK_BITS) + dc;
+						k++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of layers of the board.
+	 */
+	private final int layerCount;
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private final int rowCount;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private final int colCount;
+
+	/**
+	 * blocks per row of blocks.
+	 */
+	private final int blockCols;
+
+	/**
+	 * blocks per layer of blocks.
+	 */
+	private final int blockRows;
+
+	/**
+	 * one byte per cell, in blocks (see index()).
+	 */
+	private final byte[] cells;
+
+	/**
+	 * Number of mines in the board.
+	 */
+	private final long mineTotalCount;
+
+	/**
+	 * Number of cells clicked / exposed.
+	 */
+	private long clickedCount;
+
+	/**
+	 * number of cells flagged as a mine.
+	 */
+	private long flaggedCount;
+
+	/**
+	 * zero cells still to expand in a flood fill, one bit per cell in the same
+	 * order as cells; null until the first fill.
+	 */
+	private long[] pending;
+
+	/**
+	 * whether a block is on the flood fill stack or being drained.
+	 */
+	private boolean[] queued;
+
+	/**
+	 * stack of blocks with pending cells; a block is on it at most once.
+	 */
+	private int[] blocks;
+
+	/**
+	 * index parts of the layers, rows and cols around a cell being expanded,
+	 * three each.
+	 */
+	private final int[] parts = new int[9];
+
+	/**
+	 * game status.
+	 */
+	private MineSweeper.Status status = MineSweeper.Status.INIT;
+
+	/**
+	 * constructor, places the mines from seed and sets every count.
+	 *
+	 * @param seed       seed
+	 * @param layerCount layerCount
+	 * @param rowCount   rowCount
+	 * @param colCount   colCount
+	 * @param mineCount  mineCount, less than layerCount x rowCount x colCount
+	 */
+	public VolumeBoard(long seed, int layerCount, int rowCount, int colCount, long mineCount) {
+		long cellCount = (long) layerCount * rowCount * colCount;
+		if (layerCount <= 0 || rowCount <= 0 || colCount <= 0 || mineCount < 0 || mineCount >= cellCount) {
+			throw new IllegalArgumentException("Invalid board size or mine count!");
+		}
+		int blockLayers = (layerCount + BLOCK - 1) >>> BLOCK_BITS;
+		blockRows = (rowCount + BLOCK - 1) >>> BLOCK_BITS;
+		blockCols = (colCount + BLOCK - 1) >>> BLOCK_BITS;
+		long bytes = (long) blockLayers * blockRows * blockCols << 3 * BLOCK_BITS;
+		if (bytes > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Board is too big!");
+		}
+		this.layerCount = layerCount;
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		this.mineTotalCount = mineCount;
+		cells = new byte[(int) bytes];
+		if (((layerCount | rowCount | colCount) & (BLOCK - 1)) != 0) {
+			Arrays.fill(cells, (byte) OPEN);
+			for (int layer = 0; layer < layerCount; layer++) {
+				for (int row = 0; row < rowCount; row++) {
+					for (int col = 0; col < colCount; col++) {
+						cells[index(layer, row, col)] = 0;
+					}
+				}
+			}
+		}
+
+		// place mines, then add each one to the counts around it
+		SplittableRandom random = new SplittableRandom(seed);
+		int[] near = new int[26];
+		for (long placed = 0; placed < mineCount;) {
+			long cell = random.nextLong(cellCount);
+			int layer = (int) (cell / ((long) rowCount * colCount));
+			int row = (int) (cell / colCount % rowCount);
+			int col = (int) (cell % colCount);
+			int i = index(layer, row, col);
+			if ((cells[i] & MINE) != 0) {
+				continue;
+			}
+			cells[i] |= MINE;
+			placed++;
+			int size = neighbors(layer, row, col, near);
+			for (int k = 0; k < size; k++) {
+				cells[near[k]]++;
+			}
+		}
+	}
+
+	/**
+	 * method reports number of layers.
+	 *
+	 * @return layerCount
+	 */
+	public int layerCount() {
+		return layerCount;
+	}
+
+	/**
+	 * method reports number of rows.
+	 *
+	 * @return rowCount
+	 */
+	public int rowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * method reports number of columns.
+	 *
+	 * @return colCount
+	 */
+	public int colCount() {
+		return colCount;
+	}
+
+	/**
+	 * method reports number of cells opened.
+	 *
+	 * @return clickedCount
+	 */
+	public long clickedCount() {
+		return clickedCount;
+	}
+
+	/**
+	 * report how many mines have not be flagged.
+	 *
+	 * @return unflagged mines
+	 */
+	public long mineLeft() {
+		return mineTotalCount - flaggedCount;
+	}
+
+	/**
+	 * method reports whether board is solved.
+	 *
+	 * @return true or false
+	 */
+	public boolean isSolved() {
+		return status == MineSweeper.Status.SOLVED;
+	}
+
+	/**
+	 * method reports whether a mine has exploded.
+	 *
+	 * @return true or false
+	 */
+	public boolean isExploded() {
+		return status == MineSweeper.Status.EXPLODED;
+	}
+
+	/**
+	 * report current game status.
+	 *
+	 * @return status
+	 */
+	public String getStatus() {
+		return MineSweeper.Status_STRINGS[status.ordinal()];
+	}
+
+	/**
+	 * method to report if cell has mine. return false for invalid cell indexes
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return true or false
+	 */
+	public boolean hasMine(int layer, int row, int col) {
+		return isValidCell(layer, row, col) && (cells[index(layer, row, col)] & MINE) != 0;
+	}
+
+	/**
+	 * method to report if cell isn't hidden. return false for invalid cell indexes
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return true or false
+	 */
+	public boolean isVisible(int layer, int row, int col) {
+		return isValidCell(layer, row, col) && (cells[index(layer, row, col)] & OPEN) != 0;
+	}
+
+	/**
+	 * method to report if cell flagged. return false for invalid cell indexes
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return true or false
+	 */
+	public boolean isFlagged(int layer, int row, int col) {
+		return isValidCell(layer, row, col) && (cells[index(layer, row, col)] & FLAG) != 0;
+	}
+
+	/**
+	 * method that returns the count of cell at (layer,row,col).
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return -2 for invalid cell indexes, -1 for a mine, count otherwise
+	 */
+	public int getCount(int layer, int row, int col) {
+		if (!isValidCell(layer, row, col)) {
+			return -2;
+		}
+		int cell = cells[index(layer, row, col)];
+		return (cell & MINE) != 0 ? -1 : cell & COUNT;
+	}
+
+	/**
+	 * method to open cell located at (layer,row,col), opening the zero region
+	 * around zero-count cells.
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return -2 for invalid, flagged or open cells, -1 for a mine, count otherwise
+	 */
+	public int clickAt(int layer, int row, int col) {
+		if (!isValidCell(layer, row, col)) {
+			return -2;
+		}
+		status = MineSweeper.Status.INGAME;
+		int i = index(layer, row, col);
+		int cell = cells[i];
+		if ((cell & (FLAG | OPEN)) != 0) {
+			return -2;
+		}
+		cells[i] |= OPEN;
+		if ((cell & MINE) != 0) {
+			status = MineSweeper.Status.EXPLODED;
+			return -1;
+		}
+		clickedCount++;
+		if ((cell & COUNT) == 0) {
+			flood(i);
+		}
+		if (clickedCount == (long) layerCount * rowCount * colCount - mineTotalCount) {
+			status = MineSweeper.Status.SOLVED;
+		}
+		return cell & COUNT;
+	}
+
+	/**
+	 * method to flag a hidden cell.
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return false for an invalid or open cell, true otherwise
+	 */
+	public boolean flagAt(int layer, int row, int col) {
+		if (!isValidCell(layer, row, col)) {
+			return false;
+		}
+		int i = index(layer, row, col);
+		if ((cells[i] & OPEN) != 0) {
+			return false;
+		}
+		if ((cells[i] & FLAG) == 0) {
+			cells[i] |= FLAG;
+			flaggedCount++;
+		}
+		return true;
+	}
+
+	/**
+	 * method to un-flag a flagged cell.
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return true if the cell went from flagged to unflagged
+	 */
+	public boolean unFlagAt(int layer, int row, int col) {
+		if (!isFlagged(layer, row, col)) {
+			return false;
+		}
+		cells[index(layer, row, col)] &= ~FLAG;
+		flaggedCount--;
+		return true;
+	}
+
+	/**
+	 * method that opens everything reachable from an open zero-count cell,
+	 * draining one block at a time.
+	 *
+	 * @param start index of the cell
+	 */
+	private void flood(int start) {
+		if (pending == null) {
+			pending = new long[cells.length >>> 6];
+			queued = new boolean[cells.length >>> 3 * BLOCK_BITS];
+			blocks = new int[queued.length];
+		}
+		int top = mark(start, 0);
+		while (top > 0) {
+			int block = blocks[--top];
+			top = drain(block, top);
+			queued[block] = false;
+		}
+	}
+
+	/**
+	 * method that expands the pending cells of a block, and those they mark in
+	 * it, until none is left.
+	 *
+	 * @param block block
+	 * @param top   size of the block stack
+	 * @return new size of the block stack
+	 */
+	private int drain(int block, int top) {
+		int layer0 = block / (blockRows * blockCols) << BLOCK_BITS;
+		int row0 = block / blockCols % blockRows << BLOCK_BITS;
+		int col0 = block % blockCols << BLOCK_BITS;
+		int first = block << 3 * BLOCK_BITS - 6;
+		int end = first + (1 << 3 * BLOCK_BITS - 6);
+		// expanding a cell can mark cells of this block in words already passed,
+		// so pass over the block until a pass finds nothing
+		boolean found = true;
+		while (found) {
+			found = false;
+			for (int w = first; w < end; w++) {
+				for (long bits = pending[w]; bits != 0; bits = pending[w]) {
+					found = true;
+					pending[w] = bits & (bits - 1);
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					top = expand(i, layer0 + (i >>> 2 * BLOCK_BITS & (BLOCK - 1)),
+							row0 + (i >>> BLOCK_BITS & (BLOCK - 1)), col0 + (i & (BLOCK - 1)), top);
+				}
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * method that visits the 26 neighbors of an open zero cell.
+	 *
+	 * @param i     index of the cell
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @param top   size of the block stack
+	 * @return new size of the block stack
+	 */
+	private int expand(int i, int layer, int row, int col, int top) {
+		if (inner(layer) && inner(row) && inner(col)) {
+			// the whole cube is in this block: fixed offsets, no bounds
+			for (int k = 0; k < 26; k++) {
+				top = visit(i + NBR_INNER[k], top);
+			}
+			return top;
+		}
+		// index parts of the coordinates either side, -1 off the board
+		for (int d = 0; d < 3; d++) {
+			parts[d] = layerPart(layer + d - 1);
+			parts[3 + d] = rowPart(row + d - 1);
+			parts[6 + d] = colPart(col + d - 1);
+		}
+		for (int dl = 0; dl < 3; dl++) {
+			for (int dr = 3; dr < 6; dr++) {
+				for (int dc = 6; dc < 9; dc++) {
+					if ((parts[dl] | parts[dr] | parts[dc]) >= 0 && (dl != 1 || dr != 4 || dc != 7)) {
+						top = visit(parts[dl] + parts[dr] + parts[dc], top);
+					}
+				}
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * method that opens a neighbor during a flood fill, and marks it if it is a
+	 * zero-count cell.
+	 *
+	 * @param i   index of the neighbor
+	 * @param top size of the block stack
+	 * @return new size of the block stack
+	 */
+	private int visit(int i, int top) {
+		int cell = cells[i];
+		if ((cell & (OPEN | FLAG)) != 0) {
+			return top;
+		}
+		// no neighbor of an open zero cell is a mine
+		cells[i] = (byte) (cell | OPEN);
+		clickedCount++;
+		return (cell & COUNT) == 0 ? mark(i, top) : top;
+	}
+
+	/**
+	 * method that marks a zero cell to be expanded, pushing its block unless it
+	 * is queued already.
+	 *
+	 * @param i   index of the cell
+	 * @param top size of the block stack
+	 * @return new size of the block stack
+	 */
+	private int mark(int i, int top) {
+		pending[i >>> 6] |= 1L << i;
+		int block = i >>> 3 * BLOCK_BITS;
+		if (!queued[block]) {
+			queued[block] = true;
+			blocks[top++] = block;
+		}
+		return top;
+	}
+
+	/**
+	 * method that lists the indexes of the neighbors of a cell on the board.
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @param into  at least 26 long
+	 * @return number of neighbors
+	 */
+	private int neighbors(int layer, int row, int col, int[] into) {
+		int size = 0;
+		for (int k = 0; k < 26; k++) {
+			int l = layer + NBR_LAYERS[k];
+			int r = row + NBR_ROWS[k];
+			int c = col + NBR_COLS[k];
+			if (isValidCell(l, r, c)) {
+				into[size++] = index(l, r, c);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * method that checks (layer,row,col) is on the board.
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return true or false
+	 */
+	private boolean isValidCell(int layer, int row, int col) {
+		return layer >= 0 && layer < layerCount && row >= 0 && row < rowCount && col >= 0 && col < colCount;
+	}
+
+	/**
+	 * method that reports the index of a cell in cells: its block, then its
+	 * place in the block.
+	 *
+	 * @param layer layer
+	 * @param row   row
+	 * @param col   col
+	 * @return index
+	 */
+	private int index(int layer, int row, int col) {
+		int block = ((layer >>> BLOCK_BITS) * blockRows + (row >>> BLOCK_BITS)) * blockCols + (col >>> BLOCK_BITS);
+		int inside = ((layer & (BLOCK - 1)) << 2 * BLOCK_BITS) | ((row & (BLOCK - 1)) << BLOCK_BITS)
+				| (col & (BLOCK - 1));
+		return block << 3 * BLOCK_BITS | inside;
+	}
+
+	/**
+	 * method that reports what a layer adds to index(): the index is the sum of
+	 * layerPart(), rowPart() and colPart().
+	 *
+	 * @param layer layer
+	 * @return part, -1 off the board
+	 */
+	private int layerPart(int layer) {
+		if (layer < 0 || layer >= layerCount) {
+			return -1;
+		}
+		return ((layer >>> BLOCK_BITS) * blockRows * blockCols << 3 * BLOCK_BITS)
+				+ ((layer & (BLOCK - 1)) << 2 * BLOCK_BITS);
+	}
+
+	/**
+	 * method that reports what a row adds to index().
+	 *
+	 * @param row row
+	 * @return part, -1 off the board
+	 */
+	private int rowPart(int row) {
+		if (row < 0 || row >= rowCount) {
+			return -1;
+		}
+		return ((row >>> BLOCK_BITS) * blockCols << 3 * BLOCK_BITS) + ((row & (BLOCK - 1)) << BLOCK_BITS);
+	}
+
+	/**
+	 * method that reports what a col adds to index().
+	 *
+	 * @param col col
+	 * @return part, -1 off the board
+	 */
+	private int colPart(int col) {
+		if (col < 0 || col >= colCount) {
+			return -1;
+		}
+		return ((col >>> BLOCK_BITS) << 3 * BLOCK_BITS) + (col & (BLOCK - 1));
+	}
+
+	/**
+	 * method that checks a coordinate is not on a block face, so both of its
+	 * neighbors along that axis are in the same block.
+	 *
+	 * @param coord layer, row or col
+	 * @return true or false
+	 */
+	private static boolean inner(int coord) {
+		int local = coord & (BLOCK - 1);
+		return local != 0 && local != BLOCK - 1;
+	}
+
+	/**
+	 * This method checks the counts and a flood fill against a brute-force
+	 * search, on a board that ends inside its blocks. then it builds a
+	 * 256x256x256 board and times the build, a flood fill from the center and
+	 * random count lookups.
+	 *
+	 * @param args [side [mine density]], default 256 and 0.03
+	 */
+	public static void main(String[] args) {
+		int layers = 20;
+		int rows = 37;
+		int cols = 18;
+		VolumeBoard volume = new VolumeBoard(5, layers, rows, cols, 400);
+		int[] counts = new int[layers * rows * cols];
+		int mineCount = 0;
+		boolean same = true;
+		for (int i = 0; i < counts.length; i++) {
+			int layer = i / (rows * cols);
+			int row = i / cols % rows;
+			int col = i % cols;
+			mineCount += volume.hasMine(layer, row, col) ? 1 : 0;
+			for (int n = 0; n < 27; n++) {
+				counts[i] += volume.hasMine(layer + n / 9 - 1, row + n / 3 % 3 - 1, col + n % 3 - 1) ? 1 : 0;
+			}
+			counts[i] = volume.hasMine(layer, row, col) ? -1 : counts[i];
+			same &= volume.getCount(layer, row, col) == counts[i];
+		}
+		for (int i = 0; i < counts.length; i += 997) {
+			volume.flagAt(i / (rows * cols), i / cols % rows, i % cols);
+		}
+		int first = 0;
+		while (counts[first] != 0 || volume.isFlagged(first / (rows * cols), first / cols % rows, first % cols)) {
+			first++;
+		}
+		boolean[] opened = new boolean[counts.length];
+		int[] stack = new int[counts.length];
+		int stackTop = 0;
+		opened[first] = true;
+		stack[stackTop++] = first;
+		long openedCount = 1;
+		while (stackTop > 0) {
+			int i = stack[--stackTop];
+			int layer = i / (rows * cols);
+			int row = i / cols % rows;
+			int col = i % cols;
+			for (int n = 0; n < 27; n++) {
+				int l = layer + n / 9 - 1;
+				int r = row + n / 3 % 3 - 1;
+				int c = col + n % 3 - 1;
+				int j = (l * rows + r) * cols + c;
+				if (l < 0 || l >= layers || r < 0 || r >= rows || c < 0 || c >= cols || opened[j]
+						|| volume.isFlagged(l, r, c)) {
+					continue;
+				}
+				opened[j] = true;
+				openedCount++;
+				if (counts[j] == 0) {
+					stack[stackTop++] = j;
+				}
+			}
+		}
+		volume.clickAt(first / (rows * cols), first / cols % rows, first % cols);
+		for (int i = 0; i < counts.length; i++) {
+			same &= volume.isVisible(i / (rows * cols), i / cols % rows, i % cols) == opened[i];
+		}
+		if (same && mineCount == 400 && openedCount > 1 && volume.clickedCount() == openedCount) {
+			System.out.println("Yay 1");
+		}
+
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.03;
+		long cellCount = (long) side * side * side;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			VolumeBoard board = new VolumeBoard(round, side, side, side, (long) (cellCount * density));
+			long built = System.nanoTime();
+
+			// click the zero cell nearest the center along its row
+			int mid = side / 2;
+			int col = mid;
+			while (col < side - 1 && board.getCount(mid, mid, col) != 0) {
+				col++;
+			}
+			board.clickAt(mid, mid, col);
+			long flooded = System.nanoTime();
+
+			SplittableRandom random = new SplittableRandom(round);
+			long sum = 0;
+			int lookups = 10_000_000;
+			for (int i = 0; i < lookups; i++) {
+				sum += board.getCount(random.nextInt(side), random.nextInt(side), random.nextInt(side));
+			}
+			long looked = System.nanoTime();
+
+			System.out.printf("%d^3, %d mines: build %.0f ms (%.1f ns/cell), flood %d cells in %.0f ms "
+					+ "(%.1f ns/cell), lookup %.1f ns (%d)%n", side, board.mineTotalCount, (built - start) / 1e6,
+					(double) (built - start) / cellCount, board.clickedCount(), (flooded - built) / 1e6,
+					(double) (flooded - built) / Math.max(1, board.clickedCount()),
+					(double) (looked - flooded) / lookups, sum);
+		}
+	}
+}